@@ -1,10 +1,11 @@
 package com.example.dmdb.config;
 
-import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-public class DataSourceInterceptor implements HandlerInterceptor {
+public class DataSourceInterceptor implements AsyncHandlerInterceptor {
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
@@ -16,6 +17,14 @@ public class DataSourceInterceptor implements HandlerInterceptor {
         if (connId != null && !connId.isEmpty()) {
             DynamicContext.setKey(connId);
         }
+
+        // 按接口标注选择连接的负载类别
+        if (handler instanceof HandlerMethod) {
+            HandlerMethod method = (HandlerMethod) handler;
+            Workload workload = method.getMethodAnnotation(Workload.class);
+            if (workload == null) workload = method.getBeanType().getAnnotation(Workload.class);
+            if (workload != null) DynamicContext.setWorkload(workload.value());
+        }
         return true;
     }
 
@@ -24,4 +33,10 @@ public class DataSourceInterceptor implements HandlerInterceptor {
         // 3. 请求结束后清理上下文，防止内存泄漏
         DynamicContext.clear();
     }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 异步请求（如流式查询）会释放当前线程，同样需要清理
+        DynamicContext.clear();
+    }
 }
\ No newline at end of file
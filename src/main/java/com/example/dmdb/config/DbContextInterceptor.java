@@ -2,7 +2,7 @@ package com.example.dmdb.config;
 
 import com.example.dmdb.context.DbContext;
 import org.springframework.stereotype.Component;
-import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -12,7 +12,7 @@ import javax.servlet.http.HttpServletResponse;
  * 作用：自动提取请求头中的 Conn-Id，并在请求结束后自动清理，防止内存泄漏
  */
 @Component
-public class DbContextInterceptor implements HandlerInterceptor {
+public class DbContextInterceptor implements AsyncHandlerInterceptor {
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
@@ -31,4 +31,10 @@ public class DbContextInterceptor implements HandlerInterceptor {
         // 3. 请求结束（无论成功失败），强制清理 ThreadLocal
         DbContext.clear();
     }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        // 异步请求（如流式查询）会释放当前线程，同样需要清理
+        DbContext.clear();
+    }
 }
\ No newline at end of file
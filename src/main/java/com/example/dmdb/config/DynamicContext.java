@@ -1,5 +1,7 @@
 package com.example.dmdb.config;
 
+import java.util.concurrent.Callable;
+
 /**
  * 动态数据源上下文
  * 用于存放当前请求对应的连接ID (Conn-Id)
@@ -7,6 +9,8 @@ package com.example.dmdb.config;
 public class DynamicContext {
     // 使用 ThreadLocal 保证线程安全，存放当前线程的数据库连接ID
     private static final ThreadLocal<String> CONTEXT = new ThreadLocal<>();
+    // 当前线程取连接时使用的负载类别
+    private static final ThreadLocal<WorkloadClass> WORKLOAD = new ThreadLocal<>();
 
     /**
      * 设置当前线程的数据库连接ID
@@ -27,6 +31,19 @@ public class DynamicContext {
      */
     public static void clear() {
         CONTEXT.remove();
+        WORKLOAD.remove();
+    }
+
+    /**
+     * 设置当前线程的负载类别，null 表示默认的 INTERACTIVE
+     */
+    public static void setWorkload(WorkloadClass workload) {
+        if (workload == null) WORKLOAD.remove(); else WORKLOAD.set(workload);
+    }
+
+    public static WorkloadClass getWorkload() {
+        WorkloadClass workload = WORKLOAD.get();
+        return workload != null ? workload : WorkloadClass.INTERACTIVE;
     }
 
     /**
@@ -36,4 +53,21 @@ public class DynamicContext {
     public static String getConnId() {
         return getKey();
     }
+
+    /**
+     * 包装异步任务：在执行线程中设置指定的连接ID和调用线程的负载类别，执行完毕后清理
+     * 线程池中的工作线程不经过拦截器，必须显式传递上下文
+     */
+    public static <T> Callable<T> wrap(String key, Callable<T> task) {
+        WorkloadClass workload = WORKLOAD.get();
+        return () -> {
+            setKey(key);
+            setWorkload(workload);
+            try {
+                return task.call();
+            } finally {
+                clear();
+            }
+        };
+    }
 }
\ No newline at end of file
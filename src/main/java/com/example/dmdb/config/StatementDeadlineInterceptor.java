@@ -0,0 +1,28 @@
+package com.example.dmdb.config;
+
+import com.example.dmdb.service.FanOutExecutor;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+/**
+ * MyBatis 语句拦截器
+ * 在并行查询任务中创建的语句按任务剩余时间设置查询超时，并登记到任务上，截止时可从数据库端取消
+ */
+@Component
+@Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+public class StatementDeadlineInterceptor implements Interceptor {
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+        if (result instanceof Statement) FanOutExecutor.bind((Statement) result);
+        return result;
+    }
+}
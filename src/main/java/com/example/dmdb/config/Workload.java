@@ -0,0 +1,16 @@
+package com.example.dmdb.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标注接口使用的连接负载类别，由 DataSourceInterceptor 在请求开始时设置到 DynamicContext；
+ * 方法上的标注优先于类上的标注，未标注的接口为 INTERACTIVE
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Workload {
+    WorkloadClass value();
+}
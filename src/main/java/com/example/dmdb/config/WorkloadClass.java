@@ -0,0 +1,37 @@
+package com.example.dmdb.config;
+
+import java.util.Locale;
+
+/**
+ * 连接的负载类别
+ * 每个连接ID的连接池按类别划分出各自的连接配额，长时间占用连接的批量任务和 LOB 传输不会挤占交互查询与对象树的连接
+ */
+public enum WorkloadClass {
+    // 数据浏览、控制台短查询等交互操作（默认）
+    INTERACTIVE,
+    // 对象树、列定义等元数据查询
+    METADATA,
+    // 导入导出、批量执行等长时间任务
+    BULK,
+    // LOB 预览、下载与上传
+    LOB,
+    // SQL 控制台会话的长连接
+    CONSOLE,
+    // 服务端游标，翻页期间一直占用连接
+    CURSOR;
+
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 按名称解析（不区分大小写），无法识别时返回 null
+     */
+    public static WorkloadClass of(String name) {
+        if (name == null) return null;
+        for (WorkloadClass c : values()) {
+            if (c.name().equalsIgnoreCase(name.trim())) return c;
+        }
+        return null;
+    }
+}
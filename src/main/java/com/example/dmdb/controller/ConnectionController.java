@@ -2,6 +2,7 @@ package com.example.dmdb.controller;
 
 import com.example.dmdb.common.Result;
 import com.example.dmdb.service.ConnectionManager;
+import com.example.dmdb.service.ConsoleSessionManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
@@ -15,23 +16,22 @@ import java.util.UUID;
 public class ConnectionController {
 
     @Autowired private ConnectionManager connectionManager;
+    @Autowired private ConsoleSessionManager consoleSessionManager;
 
+    /**
+     * 建立连接
+     * 可选参数 pools 按负载类别指定连接配额: { "interactive": {"size": 6, "timeout": 5000, "fair": true}, "metadata": ..., "bulk": ..., "lob": ..., "console": ... }
+     */
     @PostMapping("/connect")
-    public Result<String> connect(@RequestBody Map<String, String> config) {
+    public Result<String> connect(@RequestBody Map<String, Object> config) {
         try {
             // 【修改】优先使用前端传来的 ID (用于刷新页面后重连)，如果没有则生成新 ID
-            String connId = config.get("id");
+            String connId = str(config, "id");
             if (connId == null || connId.isEmpty()) {
                 connId = UUID.randomUUID().toString();
             }
 
-            connectionManager.addDataSource(
-                    connId,
-                    config.get("host"),
-                    config.get("port"),
-                    config.get("user"),
-                    config.get("password")
-            );
+            addDs(connId, config);
 
             return Result.success(connId);
         } catch (Exception e) {
@@ -41,11 +41,9 @@ public class ConnectionController {
 
     // 【新增】更新连接
     @PostMapping("/update")
-    public Result<String> update(@RequestHeader("Conn-Id") String connId, @RequestBody Map<String, String> config) {
+    public Result<String> update(@RequestHeader("Conn-Id") String connId, @RequestBody Map<String, Object> config) {
         try {
-            // 先移除旧的
-            connectionManager.removeDataSource(connId);
-            // 再添加新的 (ID不变)
+            // 新连接校验通过后原子替换旧连接 (ID不变)，失败时旧连接保持可用
             addDs(connId, config);
             return Result.success("更新成功");
         } catch (Exception e) {
@@ -57,14 +55,36 @@ public class ConnectionController {
     @DeleteMapping("/delete")
     public Result<String> delete(@RequestHeader("Conn-Id") String connId) {
         connectionManager.removeDataSource(connId);
+        consoleSessionManager.close(connId);
         return Result.success("删除成功");
     }
 
+    /**
+     * 连接池状态：各负载类别的配额、占用中与排队的连接数；不带 Conn-Id 时返回所有连接的概况（状态分布、物理连接总数与全局上限）
+     */
+    @GetMapping("/pools")
+    public Result<Object> pools(@RequestHeader(value = "Conn-Id", required = false) String connId) {
+        if (connId == null || connId.isEmpty()) return Result.success(connectionManager.getPoolSummary());
+        Map<String, Object> status = connectionManager.getPoolStatus(connId);
+        if (status == null) return Result.error(404, "连接不存在");
+        return Result.success(status);
+    }
+
     // 提取公共方法
-    private void addDs(String id, Map<String, String> config) throws SQLException {
+    private void addDs(String id, Map<String, Object> config) throws SQLException {
+        Object pools = config.get("pools");
         connectionManager.addDataSource(
-                id, config.get("host"), config.get("port"), config.get("user"), config.get("password")
+                id, str(config, "host"), str(config, "port"), str(config, "user"), str(config, "password"),
+                pools instanceof Map ? (Map<String, Object>) pools : null
         );
+        // 旧连接池上的控制台会话随之关闭
+        consoleSessionManager.close(id);
+    }
+
+    // 端口等字段前端可能以数字提交
+    private static String str(Map<String, Object> config, String key) {
+        Object v = config.get(key);
+        return v == null ? null : String.valueOf(v);
     }
 
 
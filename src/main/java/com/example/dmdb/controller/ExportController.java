@@ -0,0 +1,80 @@
+package com.example.dmdb.controller;
+
+import com.example.dmdb.common.Result;
+import com.example.dmdb.config.DynamicContext;
+import com.example.dmdb.service.impl.ExportServiceImpl;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/db")
+@CrossOrigin
+public class ExportController {
+
+    @Autowired
+    private ExportServiceImpl exportService;
+
+    /**
+     * 导出整张表
+     * format: csv / jsonl / sql，gzip=true 时压缩输出
+     */
+    @GetMapping("/export")
+    public ResponseEntity<?> exportTable(@RequestParam String schema, @RequestParam String tableName,
+                                         @RequestParam(required = false) String format,
+                                         @RequestParam(defaultValue = "false") boolean gzip) {
+        ExportServiceImpl.ExportPlan plan;
+        try {
+            plan = exportService.planTable(schema, tableName, null, null, null, format, gzip);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Result.error(e.getMessage()));
+        }
+        return stream(plan, null, null);
+    }
+
+    /**
+     * 按条件导出表，或导出任意查询
+     * 前端参数: { "schema", "tableName", "conditions", "logic", "orderBy" } 或 { "sql", "targetTable" }，
+     * 以及 "format"、"gzip"、"requestId"（可通过 /execute/{id}/cancel 中止）、"timeout"
+     */
+    @PostMapping("/export")
+    public ResponseEntity<?> export(@RequestBody Map<String, Object> payload) {
+        String format = (String) payload.get("format");
+        boolean gzip = payload.get("gzip") != null && Boolean.parseBoolean(String.valueOf(payload.get("gzip")));
+        ExportServiceImpl.ExportPlan plan;
+        try {
+            String sql = (String) payload.get("sql");
+            if (sql != null && !sql.trim().isEmpty()) {
+                plan = exportService.planQuery(sql, (String) payload.get("targetTable"), format, gzip);
+            } else {
+                plan = exportService.planTable((String) payload.get("schema"), (String) payload.get("tableName"),
+                        (List<Map<String, Object>>) payload.get("conditions"), (String) payload.get("logic"),
+                        (List<Map<String, Object>>) payload.get("orderBy"), format, gzip);
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Result.error(e.getMessage()));
+        }
+        String requestId = payload.get("requestId") != null ? String.valueOf(payload.get("requestId")) : null;
+        Integer timeout = payload.get("timeout") != null ? Integer.valueOf(String.valueOf(payload.get("timeout"))) : null;
+        return stream(plan, requestId, timeout);
+    }
+
+    private ResponseEntity<StreamingResponseBody> stream(ExportServiceImpl.ExportPlan plan, String requestId, Integer timeout) {
+        // StreamingResponseBody 在异步线程中执行，必须在请求线程中提前取出连接ID
+        String connId = DynamicContext.getKey();
+        StreamingResponseBody body = out -> exportService.export(connId, plan, requestId, timeout, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(plan.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(plan.getFileName(), StandardCharsets.UTF_8).build().toString())
+                .body(body);
+    }
+}
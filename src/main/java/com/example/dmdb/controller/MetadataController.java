@@ -1,6 +1,8 @@
 package com.example.dmdb.controller;
 
 import com.example.dmdb.common.Result;
+import com.example.dmdb.config.Workload;
+import com.example.dmdb.config.WorkloadClass;
 import com.example.dmdb.service.impl.MetadataServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
@@ -9,6 +11,7 @@ import java.util.Map;
 
 @RestController
 @RequestMapping("/api/db/") // 保持与原来一致
+@Workload(WorkloadClass.METADATA)
 @CrossOrigin
 public class MetadataController {
 
@@ -38,6 +41,18 @@ public class MetadataController {
     @GetMapping("/foreign-keys")
     public Result<List<Map<String, Object>>> getForeignKeys(@RequestParam String schema, @RequestParam String tableName) { return metadataService.getForeignKeys(schema, tableName); }
 
+    // 对象目录增量同步，since 传上次返回的 token
+    @GetMapping("/catalog")
+    public Result<Map<String, Object>> getCatalog(@RequestParam String schema, @RequestParam(required = false) String since) { return metadataService.getCatalog(schema, since); }
+
+    // 元数据缓存命中统计
+    @GetMapping("/metadata/cache/stats")
+    public Result<Map<String, Object>> getCacheStats() { return metadataService.getCacheStats(); }
+
+    // 手动清空当前连接的元数据缓存（外部工具修改了表结构时使用）
+    @DeleteMapping("/metadata/cache")
+    public Result<Object> clearCache() { return metadataService.clearCache(); }
+
     @GetMapping("/er-data")
     public Result<Map<String, Object>> getErData(@RequestParam String schema, @RequestParam String tableName, @RequestParam(defaultValue = "false") boolean showAll, @RequestParam(required = false) List<String> expandedTables) { return metadataService.getErData(schema, tableName, showAll, expandedTables); }
 }
\ No newline at end of file
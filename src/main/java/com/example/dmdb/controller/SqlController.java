@@ -1,9 +1,14 @@
 package com.example.dmdb.controller;
 
 import com.example.dmdb.common.Result;
+import com.example.dmdb.config.DynamicContext;
 import com.example.dmdb.service.impl.SqlServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.util.List;
 import java.util.Map;
 
@@ -17,10 +22,12 @@ public class SqlController {
 
     /**
      * 执行单条 SQL
-     * 前端参数: { "sql": "SELECT...", "manualCommit": true/false }
+     * 前端参数: { "sql": "SELECT...", "manualCommit": true/false, "requestId": "...", "timeout": 30 }
+     * 手动提交模式下可选 "sessionId" 指定控制台会话（多个编辑器标签页各自独立的连接与事务），缺省为 default 会话
      */
     @PostMapping("/execute")
-    public Result<Object> execute(@RequestBody Map<String, Object> payload) {
+    public Result<Object> execute(@RequestBody Map<String, Object> payload,
+                                  @RequestParam(required = false) String format) {
         String sql = (String) payload.get("sql");
 
         // 获取前端传递的事务标志
@@ -31,37 +38,251 @@ public class SqlController {
             manualCommit = Boolean.parseBoolean(String.valueOf(payload.get("manualCommit")));
         }
 
-        return sqlService.executeSql(sql, manualCommit);
+        // 游标模式：保持结果集打开，后续通过 /cursor/{id}/next 翻页，无需重复执行 SQL
+        if (payload.get("cursor") != null && Boolean.parseBoolean(String.valueOf(payload.get("cursor")))) {
+            int fetchRows = payload.get("fetchRows") != null ? Integer.parseInt(String.valueOf(payload.get("fetchRows"))) : 100;
+            return sqlService.openCursor(sql, fetchRows, getRequestId(payload), getTimeout(payload));
+        }
+
+        return sqlService.executeSql(sql, execOptions(payload, manualCommit, format));
+    }
+
+    /**
+     * 从服务端游标读取下一批数据
+     */
+    @GetMapping("/cursor/{id}/next")
+    public Result<Object> cursorNext(@PathVariable String id, @RequestParam(defaultValue = "100") int rows) {
+        return sqlService.fetchCursor(id, rows);
+    }
+
+    /**
+     * 显式关闭游标，释放其占用的连接
+     */
+    @DeleteMapping("/cursor/{id}")
+    public Result<Object> cursorClose(@PathVariable String id) {
+        return sqlService.closeCursor(id);
+    }
+
+    /**
+     * 流式执行单条 SQL，以 NDJSON 逐行返回结果 (header / row / trailer 帧)
+     * 前端参数: { "sql": "SELECT...", "maxRows": 0 }，maxRows <= 0 表示不限制
+     */
+    @PostMapping("/execute/stream")
+    public ResponseEntity<StreamingResponseBody> executeStream(@RequestBody Map<String, Object> payload) {
+        String sql = (String) payload.get("sql");
+        int maxRows = 0;
+        if (payload.get("maxRows") != null) {
+            maxRows = Integer.parseInt(String.valueOf(payload.get("maxRows")));
+        }
+        // StreamingResponseBody 在异步线程中执行，必须在请求线程中提前取出连接ID
+        String connId = DynamicContext.getKey();
+        int rowLimit = maxRows;
+        String requestId = getRequestId(payload);
+        Integer timeout = getTimeout(payload);
+        StreamingResponseBody body = out -> sqlService.streamSql(connId, sql, rowLimit, requestId, timeout, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson;charset=UTF-8"))
+                .body(body);
     }
 
     /**
      * 【新增】执行多条 SQL (脚本模式)
      */
     @PostMapping("/execute/script")
-    public Result<Object> executeScript(@RequestBody Map<String, Object> payload) {
+    public Result<Object> executeScript(@RequestBody Map<String, Object> payload,
+                                        @RequestParam(required = false) String format) {
         List<String> sqls = (List<String>) payload.get("sqls");
+        String script = (String) payload.get("script");
         boolean manualCommit = false;
         if (payload.get("manualCommit") != null) {
             manualCommit = Boolean.parseBoolean(String.valueOf(payload.get("manualCommit")));
         }
-        return sqlService.executeScript(sqls, manualCommit);
+        // 传入整段 script 时由服务端切分，否则按前端拆分好的 sqls 执行
+        if (script != null && !script.trim().isEmpty()) {
+            return sqlService.executeScriptText(script, execOptions(payload, manualCommit, format));
+        }
+        return sqlService.executeScript(sqls, execOptions(payload, manualCommit, format));
+    }
+
+    /**
+     * 取消正在执行的语句，id 为执行时传入的 requestId
+     */
+    @PostMapping("/execute/{id}/cancel")
+    public Result<Object> cancel(@PathVariable String id) {
+        return sqlService.cancelExecution(id);
+    }
+
+    /**
+     * 提交异步查询任务，立即返回 jobId，适合长时间运行的报表脚本
+     * 前端参数: { "sql": "SELECT..." }、{ "sqls": [...] } 或 { "script": "..." }，可选 "timeout"
+     */
+    @PostMapping("/job")
+    public Result<Object> submitJob(@RequestBody Map<String, Object> payload,
+                                    @RequestParam(required = false) String format) {
+        String sql = (String) payload.get("sql");
+        List<String> sqls = (List<String>) payload.get("sqls");
+        String script = (String) payload.get("script");
+        return sqlService.submitJob(sql, sqls, script, isColumnar(format), getTimeout(payload));
+    }
+
+    /**
+     * 查询任务状态 (排队/执行中/已读取行数/耗时)
+     */
+    @GetMapping("/job/{id}")
+    public Result<Object> jobStatus(@PathVariable String id) {
+        return sqlService.getJobStatus(id);
+    }
+
+    /**
+     * 取回已完成任务的结果
+     */
+    @GetMapping("/job/{id}/result")
+    public Result<Object> jobResult(@PathVariable String id) {
+        return sqlService.getJobResult(id);
+    }
+
+    /**
+     * 取消任务并丢弃结果
+     */
+    @DeleteMapping("/job/{id}")
+    public Result<Object> cancelJob(@PathVariable String id) {
+        return sqlService.cancelJob(id);
+    }
+
+    @GetMapping("/jobs")
+    public Result<Object> listJobs() {
+        return sqlService.listJobs();
+    }
+
+    /**
+     * 上传 .sql 脚本文件后台执行，返回导入任务ID，通过 /execute/import/{id} 轮询进度
+     */
+    @PostMapping("/execute/import")
+    public Result<Object> importScript(@RequestParam("file") MultipartFile file,
+                                       @RequestParam(defaultValue = "UTF-8") String charset,
+                                       @RequestParam(defaultValue = "500") int batchSize,
+                                       @RequestParam(defaultValue = "false") boolean continueOnError) {
+        return sqlService.importScript(file, charset, batchSize, continueOnError);
+    }
+
+    /**
+     * 查询导入进度 (已读字节、已执行语句数、失败明细)
+     */
+    @GetMapping("/execute/import/{id}")
+    public Result<Object> importStatus(@PathVariable String id) {
+        return sqlService.getImportStatus(id);
+    }
+
+    @DeleteMapping("/execute/import/{id}")
+    public Result<Object> cancelImport(@PathVariable String id) {
+        return sqlService.cancelImport(id);
+    }
+
+    @GetMapping("/execute/imports")
+    public Result<Object> listImports() {
+        return sqlService.listImports();
+    }
+
+    /**
+     * 查看当前连接下正在执行的语句
+     */
+    @GetMapping("/execute/running")
+    public Result<Object> running() {
+        return sqlService.listRunning();
     }
 
     /**
      * 批量执行 SQL
      * 前端参数: { "sqls": ["INSERT...", "UPDATE..."] }
+     * 可选: "chunkSize" 每块语句数 (默认 1000)、"commitInterval" 提交间隔 (默认 0，全部成功后提交)、
+     * "continueOnError" 失败后是否继续 (默认 false，回滚未提交部分)
      */
     @PostMapping("/execute/batch")
     public Result<Object> executeBatch(@RequestBody Map<String, Object> payload) {
         List<String> sqls = (List<String>) payload.get("sqls");
-        return sqlService.executeBatchSql(sqls);
+        int chunkSize = payload.get("chunkSize") != null ? Integer.parseInt(String.valueOf(payload.get("chunkSize"))) : 1000;
+        int commitInterval = payload.get("commitInterval") != null ? Integer.parseInt(String.valueOf(payload.get("commitInterval"))) : 0;
+        boolean continueOnError = Boolean.parseBoolean(String.valueOf(payload.get("continueOnError")));
+        return sqlService.executeBatchSql(sqls, chunkSize, commitInterval, continueOnError);
     }
 
     /**
-     * 【新增】获取当前事务是否未提交 (Dirty Check)
+     * 【新增】获取当前事务是否未提交 (Dirty Check)，sessionId 为空时为 default 会话
      */
     @GetMapping("/transaction/status")
-    public Result<Boolean> getStatus() {
-        return sqlService.getTransactionStatus();
+    public Result<Boolean> getStatus(@RequestParam(required = false) String sessionId) {
+        return sqlService.getTransactionStatus(sessionId);
+    }
+
+    /**
+     * 提交指定控制台会话的事务
+     */
+    @PostMapping("/transaction/commit")
+    public Result<Object> commit(@RequestParam(required = false) String sessionId) {
+        return sqlService.endTransaction(sessionId, true);
+    }
+
+    /**
+     * 回滚指定控制台会话的事务
+     */
+    @PostMapping("/transaction/rollback")
+    public Result<Object> rollback(@RequestParam(required = false) String sessionId) {
+        return sqlService.endTransaction(sessionId, false);
+    }
+
+    /**
+     * 控制台会话列表：创建时间、空闲时长与是否有未提交事务，用于排查长期占用连接的会话
+     */
+    @GetMapping("/console/sessions")
+    public Result<Object> consoleSessions() {
+        return sqlService.listConsoleSessions();
+    }
+
+    /**
+     * 分配新的控制台会话ID，执行时通过 sessionId 参数使用
+     */
+    @PostMapping("/console/session")
+    public Result<Object> newConsoleSession() {
+        return sqlService.newConsoleSession();
+    }
+
+    /**
+     * 关闭当前连接的控制台会话（回滚未提交的事务），sessionId 为空时为 default 会话，为 * 时关闭全部会话
+     */
+    @DeleteMapping("/console/session")
+    public Result<Object> closeConsoleSession(@RequestParam(required = false) String sessionId) {
+        return sqlService.closeConsoleSession(sessionId);
+    }
+
+    private SqlServiceImpl.ExecOptions execOptions(Map<String, Object> payload, boolean manualCommit, String format) {
+        return new SqlServiceImpl.ExecOptions()
+                .manualCommit(manualCommit)
+                .columnar(isColumnar(format))
+                .requestId(getRequestId(payload))
+                .timeout(getTimeout(payload))
+                .sessionId(getSessionId(payload));
+    }
+
+    // 前端生成的请求ID，用于取消执行；为空时由服务端生成
+    private String getRequestId(Map<String, Object> payload) {
+        Object id = payload.get("requestId");
+        return id != null ? String.valueOf(id) : null;
+    }
+
+    // 控制台会话ID，为空时使用 default 会话
+    private String getSessionId(Map<String, Object> payload) {
+        Object id = payload.get("sessionId");
+        return id != null ? String.valueOf(id) : null;
+    }
+
+    // 单次执行超时（秒），为空时使用默认配置
+    private Integer getTimeout(Map<String, Object> payload) {
+        Object timeout = payload.get("timeout");
+        return timeout != null ? Integer.valueOf(String.valueOf(timeout)) : null;
+    }
+
+    // ?format=columnar 时以列式结构返回查询结果 (columns + rows)
+    static boolean isColumnar(String format) {
+        return "columnar".equalsIgnoreCase(format);
     }
 }
\ No newline at end of file
@@ -2,12 +2,21 @@ package com.example.dmdb.controller;
 
 import com.example.dmdb.common.Result;
 import com.example.dmdb.config.DynamicContext;
+import com.example.dmdb.service.impl.DataImportServiceImpl;
 import com.example.dmdb.service.impl.TableDataServiceImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 
@@ -19,14 +28,27 @@ public class TableDataController {
     @Autowired
     private TableDataServiceImpl tableDataService;
 
+    @Autowired
+    private DataImportServiceImpl dataImportService;
+
     @GetMapping("/data")
-    public Result<Map<String, Object>> getData(@RequestParam String schema, @RequestParam String tableName, @RequestParam(defaultValue = "1") int page, @RequestParam(defaultValue = "50") int size) {
-        return tableDataService.getData(schema, tableName, page, size);
+    public Result<Map<String, Object>> getData(@RequestParam String schema, @RequestParam String tableName, @RequestParam(defaultValue = "1") int page, @RequestParam(defaultValue = "50") int size, @RequestParam(required = false) String format,
+                                               @RequestParam(required = false) String countMode) {
+        return tableDataService.getData(schema, tableName, page, size, SqlController.isColumnar(format), countMode);
+    }
+
+    // 游标分页：token 取上次返回的 next/prev，last=true 从最后一页开始，count=true 时按 countMode 返回总行数
+    @GetMapping("/data/seek")
+    public Result<Map<String, Object>> getDataBySeek(@RequestParam String schema, @RequestParam String tableName, @RequestParam(defaultValue = "50") int size,
+                                                     @RequestParam(required = false) String token, @RequestParam(defaultValue = "false") boolean last,
+                                                     @RequestParam(defaultValue = "false") boolean count, @RequestParam(required = false) String countMode,
+                                                     @RequestParam(required = false) String format) {
+        return tableDataService.getDataBySeek(schema, tableName, size, token, last, count, countMode, SqlController.isColumnar(format));
     }
 
     @PostMapping("/filter")
-    public Result<Map<String, Object>> filter(@RequestBody Map<String, Object> payload) {
-        return tableDataService.filterData(payload);
+    public Result<Map<String, Object>> filter(@RequestBody Map<String, Object> payload, @RequestParam(required = false) String format) {
+        return tableDataService.filterData(payload, SqlController.isColumnar(format));
     }
 
     @PostMapping("/save")
@@ -85,5 +107,37 @@ public class TableDataController {
         return tableDataService.uploadLob(schema, tableName, colName, rowId, file);
     }
 
+    /**
+     * 上传 CSV 文件后台导入到表，首行为表头；返回导入任务ID，通过 /execute/import/{id} 轮询进度
+     * mapping 为可选的 JSON {表头: 列名}，writers 为并行写入的连接数
+     */
+    @PostMapping("/data/import")
+    public Result<Object> importCsv(@RequestParam String schema,
+                                   @RequestParam String tableName,
+                                   @RequestParam("file") MultipartFile file,
+                                   @RequestParam(defaultValue = "UTF-8") String charset,
+                                   @RequestParam(required = false) String delimiter,
+                                   @RequestParam(required = false) String mapping,
+                                   @RequestParam(defaultValue = "1000") int batchSize,
+                                   @RequestParam(defaultValue = "0") int writers,
+                                   @RequestParam(defaultValue = "true") boolean continueOnError) {
+        return dataImportService.importCsv(schema, tableName, file, charset, delimiter, mapping, batchSize, writers, continueOnError);
+    }
+
+    /**
+     * 下载 CSV 导入被拒绝的行（行号、原因与原始记录），任务结束后可用
+     */
+    @GetMapping("/data/import/{id}/errors")
+    public ResponseEntity<?> importErrors(@PathVariable String id) {
+        Path file = dataImportService.getErrorFile(id);
+        if (file == null) return ResponseEntity.ok(Result.error(404, "错误文件不存在：任务未结束、已过期或没有被拒绝的行"));
+        Resource body = new FileSystemResource(file);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename("import-errors-" + id + ".csv", StandardCharsets.UTF_8).build().toString())
+                .body(body);
+    }
+
 
 }
\ No newline at end of file
@@ -19,4 +19,9 @@ public interface MetadataMapper {
     List<Map<String, Object>> getTableComments(@Param("schema") String schema, @Param("tableList") List<String> tableList);
     List<Map<String, String>> getAllChildTables(@Param("schema") String schema, @Param("tableName") String tableName);
     String getPkColumn(@Param("schema") String schema, @Param("tableName") String tableName);
+    Map<String, Object> getTableStats(@Param("schema") String schema, @Param("tableName") String tableName);
+    List<String> getPkColumns(@Param("schema") String schema, @Param("tableName") String tableName);
+    List<Map<String, Object>> getCatalogObjects(@Param("schema") String schema);
+    List<Map<String, Object>> getCatalogDelta(@Param("schema") String schema, @Param("since") java.sql.Timestamp since);
+    List<Map<String, Object>> getTriggerStatus(@Param("schema") String schema, @Param("names") List<String> names);
 }
\ No newline at end of file
@@ -1,4 +1,5 @@
 package com.example.dmdb.mapper;
+import com.example.dmdb.sql.FilterSpec;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import java.util.List;
@@ -8,11 +9,15 @@ import java.util.Map;
 public interface TableDataMapper {
     long countData(@Param("schema") String schema, @Param("tableName") String tableName);
     List<Map<String, Object>> getDataPage(@Param("schema") String schema, @Param("tableName") String tableName, @Param("limit") int limit, @Param("offset") int offset);
+    List<Map<String, Object>> getDataPageByKey(@Param("schema") String schema, @Param("tableName") String tableName, @Param("keyColumn") String keyColumn, @Param("keyValue") Object keyValue, @Param("backward") boolean backward, @Param("limit") int limit);
     Map<String, Object> getDataByRowId(@Param("schema") String schema, @Param("tableName") String tableName, @Param("rowId") String rowId);
-    long countByConditions(@Param("schema") String schema, @Param("tableName") String tableName, @Param("conditions") List<Map<String, String>> conditions, @Param("logic") String logic);
-    List<Map<String, Object>> queryByConditionsPage(@Param("schema") String schema, @Param("tableName") String tableName, @Param("conditions") List<Map<String, String>> conditions, @Param("logic") String logic, @Param("limit") int limit, @Param("offset") int offset);
+    long countByConditions(@Param("schema") String schema, @Param("tableName") String tableName, @Param("filter") FilterSpec filter);
+    List<Map<String, Object>> queryByConditionsPage(@Param("schema") String schema, @Param("tableName") String tableName, @Param("filter") FilterSpec filter, @Param("limit") int limit, @Param("offset") int offset);
     void insertData(@Param("schema") String schema, @Param("tableName") String tableName, @Param("data") Map<String, Object> data);
     void updateByRowId(@Param("schema") String schema, @Param("tableName") String tableName, @Param("rowId") String rowId, @Param("data") Map<String, Object> data);
     void deleteByRowId(@Param("schema") String schema, @Param("tableName") String tableName, @Param("rowId") String rowId);
+    int deleteByRowIds(@Param("schema") String schema, @Param("tableName") String tableName, @Param("rowIds") List<String> rowIds);
     int countReference(@Param("schema") String schema, @Param("tableName") String tableName, @Param("columnName") String columnName, @Param("value") Object value);
+    List<Map<String, Object>> getPkValuesByRowIds(@Param("schema") String schema, @Param("tableName") String tableName, @Param("pkColumn") String pkColumn, @Param("rowIds") List<String> rowIds);
+    List<Map<String, Object>> countReferenceGrouped(@Param("schema") String schema, @Param("tableName") String tableName, @Param("columnName") String columnName, @Param("values") List<Object> values);
 }
\ No newline at end of file
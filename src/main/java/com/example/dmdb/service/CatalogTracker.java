@@ -0,0 +1,271 @@
+package com.example.dmdb.service;
+
+import com.example.dmdb.mapper.MetadataMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 模式对象目录的增量同步
+ * 按 Conn-Id + 模式维护对象快照（表、视图、触发器、存储过程、函数），每次同步只查询 LAST_DDL_TIME 不早于上次最大值的对象，
+ * 并用对象总数判断是否有对象被删除（只有发现删除时才重新拉取轻量的全量名称列表）。
+ * 每个对象记录最后变化的版本号，删除的对象保留墓碑，客户端凭版本令牌取得自该版本以来的变化
+ */
+@Component
+public class CatalogTracker {
+
+    // 分批查询注释/触发器状态时 IN 列表的最大长度
+    private static final int IN_LIST_CHUNK = 500;
+
+    @Autowired
+    private MetadataMapper metadataMapper;
+
+    @Autowired
+    private ConnectionManager connectionManager;
+
+    // 每个快照保留的删除墓碑数，超出后更早的令牌只能全量同步
+    @Value("${dmdb.catalog.max-tombstones:1000}")
+    private int maxTombstones;
+
+    // 快照空闲多久后回收（毫秒）
+    @Value("${dmdb.catalog.idle-ttl:1800000}")
+    private long idleTtl;
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * 同步模式目录。since 为空、无法识别或已过期时返回全量 (full=true)，否则只返回变化和删除的对象
+     */
+    public Map<String, Object> sync(String connId, String schema, String since) {
+        Snapshot snapshot = snapshots.computeIfAbsent(connId + "|" + schema, k -> new Snapshot(connId, schema));
+        synchronized (snapshot) {
+            snapshot.lastAccess = System.currentTimeMillis();
+            refresh(snapshot);
+
+            long sinceVersion = parseToken(snapshot, since);
+            boolean full = sinceVersion < 0;
+            List<Map<String, Object>> changed = new ArrayList<>();
+            for (Entry e : snapshot.entries.values()) {
+                if (full || e.version > sinceVersion) changed.add(e.toMap());
+            }
+            List<Map<String, Object>> dropped = new ArrayList<>();
+            if (!full) {
+                for (Map.Entry<String, Long> t : snapshot.tombstones.entrySet()) {
+                    if (t.getValue() > sinceVersion && !snapshot.entries.containsKey(t.getKey())) {
+                        String[] parts = t.getKey().split(":", 2);
+                        Map<String, Object> d = new HashMap<>();
+                        d.put("OBJECT_TYPE", parts[0]);
+                        d.put("OBJECT_NAME", parts[1]);
+                        dropped.add(d);
+                    }
+                }
+            }
+
+            Map<String, Object> res = new HashMap<>();
+            res.put("schema", schema);
+            res.put("token", snapshot.epoch + "." + snapshot.version);
+            res.put("full", full);
+            res.put("changed", changed);
+            res.put("dropped", dropped);
+            res.put("total", snapshot.entries.size());
+            return res;
+        }
+    }
+
+    private void refresh(Snapshot snapshot) {
+        String schema = snapshot.schema;
+        if (snapshot.version == 0) {
+            applyFull(snapshot, metadataMapper.getCatalogObjects(schema));
+            return;
+        }
+
+        List<Map<String, Object>> rows = metadataMapper.getCatalogDelta(schema, new Timestamp(snapshot.maxDdlTime));
+        long total = rows.isEmpty() ? -1 : toLong(rows.get(0).get("TOTAL_CNT"));
+        int added = 0;
+        for (Map<String, Object> row : rows) {
+            if (!snapshot.entries.containsKey(keyOf(row))) added++;
+        }
+        // 总数与 "原有 + 新增" 不符说明有对象被删除（或改名），需要全量比对名称
+        if (total != snapshot.entries.size() + added) {
+            applyFull(snapshot, metadataMapper.getCatalogObjects(schema));
+        } else {
+            applyChanges(snapshot, rows, null);
+        }
+    }
+
+    private void applyFull(Snapshot snapshot, List<Map<String, Object>> rows) {
+        Set<String> present = new HashSet<>();
+        for (Map<String, Object> row : rows) {
+            present.add(keyOf(row));
+        }
+        List<String> dropped = new ArrayList<>();
+        for (String key : snapshot.entries.keySet()) {
+            if (!present.contains(key)) dropped.add(key);
+        }
+        applyChanges(snapshot, rows, dropped);
+    }
+
+    private void applyChanges(Snapshot snapshot, List<Map<String, Object>> rows, List<String> dropped) {
+        List<Entry> changed = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            String key = keyOf(row);
+            long ddlTime = toMillis(row.get("LAST_DDL_TIME"));
+            String status = row.get("STATUS") == null ? null : row.get("STATUS").toString();
+            snapshot.maxDdlTime = Math.max(snapshot.maxDdlTime, ddlTime);
+            Entry existing = snapshot.entries.get(key);
+            if (existing != null && existing.lastDdlTime == ddlTime && Objects.equals(existing.objectStatus, status)) {
+                continue;
+            }
+            Entry e = new Entry(String.valueOf(row.get("OBJECT_NAME")), String.valueOf(row.get("OBJECT_TYPE")), status, ddlTime);
+            changed.add(e);
+        }
+        boolean hasDrops = dropped != null && !dropped.isEmpty();
+        if (changed.isEmpty() && !hasDrops && snapshot.version > 0) return;
+
+        long version = ++snapshot.version;
+        enrich(snapshot.schema, changed);
+        for (Entry e : changed) {
+            e.version = version;
+            snapshot.entries.put(e.type + ":" + e.name, e);
+            snapshot.tombstones.remove(e.type + ":" + e.name);
+        }
+        if (hasDrops) {
+            for (String key : dropped) {
+                snapshot.entries.remove(key);
+                snapshot.tombstones.put(key, version);
+            }
+            // 墓碑超出上限时丢弃最早的，并提高可增量同步的最低版本
+            Iterator<Map.Entry<String, Long>> it = snapshot.tombstones.entrySet().iterator();
+            while (snapshot.tombstones.size() > maxTombstones && it.hasNext()) {
+                snapshot.minVersion = Math.max(snapshot.minVersion, it.next().getValue());
+                it.remove();
+            }
+        }
+    }
+
+    // 补充表注释和触发器启用状态，与原有的 /tables、/triggers 接口字段保持一致
+    private void enrich(String schema, List<Entry> changed) {
+        Map<String, Entry> tables = new HashMap<>();
+        Map<String, Entry> triggers = new HashMap<>();
+        for (Entry e : changed) {
+            if ("TABLE".equals(e.type)) tables.put(e.name, e);
+            else if ("TRIGGER".equals(e.type)) triggers.put(e.name, e);
+        }
+        for (List<String> chunk : chunks(new ArrayList<>(tables.keySet()))) {
+            for (Map<String, Object> row : metadataMapper.getTableComments(schema, chunk)) {
+                Entry e = tables.get(String.valueOf(row.get("TABLE_NAME")));
+                if (e != null) e.extra.put("COMMENTS", row.get("COMMENTS"));
+            }
+        }
+        for (List<String> chunk : chunks(new ArrayList<>(triggers.keySet()))) {
+            for (Map<String, Object> row : metadataMapper.getTriggerStatus(schema, chunk)) {
+                Entry e = triggers.get(String.valueOf(row.get("TRIGGER_NAME")));
+                if (e != null) e.extra.put("TRIGGER_STATUS", row.get("STATUS"));
+            }
+        }
+    }
+
+    private static List<List<String>> chunks(List<String> names) {
+        List<List<String>> chunks = new ArrayList<>();
+        for (int i = 0; i < names.size(); i += IN_LIST_CHUNK) {
+            chunks.add(names.subList(i, Math.min(i + IN_LIST_CHUNK, names.size())));
+        }
+        return chunks;
+    }
+
+    // 令牌格式为 "快照标识.版本号"，快照重建或版本过旧时返回 -1 表示需全量同步
+    private static long parseToken(Snapshot snapshot, String token) {
+        if (token == null || token.isEmpty()) return -1;
+        int dot = token.lastIndexOf('.');
+        if (dot < 0 || !token.substring(0, dot).equals(snapshot.epoch)) return -1;
+        try {
+            long version = Long.parseLong(token.substring(dot + 1));
+            if (version < snapshot.minVersion || version > snapshot.version) return -1;
+            return version;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String keyOf(Map<String, Object> row) {
+        return row.get("OBJECT_TYPE") + ":" + row.get("OBJECT_NAME");
+    }
+
+    private static long toLong(Object val) {
+        return val instanceof Number ? ((Number) val).longValue() : -1;
+    }
+
+    private static long toMillis(Object val) {
+        if (val instanceof java.util.Date) return ((java.util.Date) val).getTime();
+        if (val instanceof LocalDateTime) return ((LocalDateTime) val).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return 0;
+    }
+
+    /**
+     * 回收长时间未同步或所属数据源已移除的快照
+     */
+    @Scheduled(fixedDelay = 300000)
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        snapshots.values().removeIf(s -> now - s.lastAccess > idleTtl || !connectionManager.hasDataSource(s.connId));
+    }
+
+    private static class Snapshot {
+        final String connId;
+        final String schema;
+        final String epoch = UUID.randomUUID().toString().substring(0, 8);
+        final Map<String, Entry> entries = new HashMap<>();
+        // 已删除对象 -> 删除时的版本号，按删除先后排列
+        final LinkedHashMap<String, Long> tombstones = new LinkedHashMap<>();
+        long version;
+        long minVersion;
+        long maxDdlTime;
+        volatile long lastAccess = System.currentTimeMillis();
+
+        Snapshot(String connId, String schema) {
+            this.connId = connId;
+            this.schema = schema;
+        }
+    }
+
+    private static class Entry {
+        final String name;
+        final String type;
+        final String objectStatus;
+        final long lastDdlTime;
+        final Map<String, Object> extra = new HashMap<>();
+        long version;
+
+        Entry(String name, String type, String objectStatus, long lastDdlTime) {
+            this.name = name;
+            this.type = type;
+            this.objectStatus = objectStatus;
+            this.lastDdlTime = lastDdlTime;
+        }
+
+        Map<String, Object> toMap() {
+            Map<String, Object> m = new HashMap<>(extra);
+            m.put("OBJECT_NAME", name);
+            m.put("OBJECT_TYPE", type);
+            m.put("STATUS", objectStatus);
+            m.put("LAST_DDL_TIME", lastDdlTime);
+            return m;
+        }
+    }
+}
@@ -1,85 +1,181 @@
 package com.example.dmdb.service;
 
 import com.example.dmdb.config.DynamicContext;
+import com.example.dmdb.config.WorkloadClass;
+import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.PreDestroy;
 import javax.sql.DataSource;
 import java.io.Closeable;
 import java.io.IOException;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 
 @Component
 public class ConnectionManager extends AbstractRoutingDataSource {
 
+    private static final Logger log = LoggerFactory.getLogger(ConnectionManager.class);
+
+    // 连接ID -> 数据源。路由时直接按 Conn-Id 查找，增删与替换都是单次原子操作，不再重建父类的解析映射
     private static final Map<Object, Object> targetDataSources = new ConcurrentHashMap<>();
 
-    // 缓存 SQL 控制台的专用长连接
-    private static final Map<String, Connection> consoleConnections = new ConcurrentHashMap<>();
+    // 各负载类别的默认连接配额与等待超时（毫秒），可在 /api/connection/connect 的 pools 参数中按连接覆盖
+    @Value("${dmdb.pool.interactive.size:6}")
+    private int interactiveSize;
+    @Value("${dmdb.pool.interactive.timeout:5000}")
+    private long interactiveTimeout;
+    @Value("${dmdb.pool.metadata.size:2}")
+    private int metadataSize;
+    @Value("${dmdb.pool.metadata.timeout:10000}")
+    private long metadataTimeout;
+    @Value("${dmdb.pool.bulk.size:2}")
+    private int bulkSize;
+    @Value("${dmdb.pool.bulk.timeout:60000}")
+    private long bulkTimeout;
+    @Value("${dmdb.pool.lob.size:2}")
+    private int lobSize;
+    @Value("${dmdb.pool.lob.timeout:30000}")
+    private long lobTimeout;
+    @Value("${dmdb.pool.console.size:4}")
+    private int consoleSize;
+    @Value("${dmdb.pool.console.timeout:5000}")
+    private long consoleTimeout;
+    @Value("${dmdb.pool.cursor.size:3}")
+    private int cursorSize;
+    @Value("${dmdb.pool.cursor.timeout:5000}")
+    private long cursorTimeout;
+
+    // 配额用尽时是否按请求先后分配连接
+    @Value("${dmdb.pool.fair:true}")
+    private boolean fair;
+
+    // 使用中的连接池保持的最小空闲连接数
+    @Value("${dmdb.pool.min-idle:2}")
+    private int minIdle;
+
+    // 空闲连接的回收时间（毫秒）
+    @Value("${dmdb.pool.idle-timeout:600000}")
+    private long idleTimeout;
+
+    // 连接池无借出连接超过该时间（毫秒）后收缩到 0 个空闲连接，0 表示不收缩
+    @Value("${dmdb.pool.shrink-after:300000}")
+    private long shrinkAfter;
 
-    // 缓存 SQL 控制台的事务状态 (true=有未提交事务, false=无)
-    private static final Map<String, Boolean> consoleDirtyStatus = new ConcurrentHashMap<>();
+    // 连接池无借出连接超过该时间（毫秒）后休眠：关闭连接池只保留配置，下次使用时重建；0 表示不休眠
+    @Value("${dmdb.pool.hibernate-after:1800000}")
+    private long hibernateAfter;
+
+    // 所有连接同时借出的物理连接总数上限，0 表示不限制
+    @Value("${dmdb.pool.max-total:200}")
+    private int maxTotal;
+
+    private volatile Semaphore globalPermits;
 
     @Override
     protected Object determineCurrentLookupKey() {
         return DynamicContext.getKey();
     }
 
+    /**
+     * 直接从注册表按 Conn-Id 查找，不经过父类在 afterPropertiesSet 时复制出的解析映射
+     */
+    @Override
+    protected DataSource determineTargetDataSource() {
+        Object key = determineCurrentLookupKey();
+        Object ds = key == null ? null : targetDataSources.get(key);
+        if (!(ds instanceof DataSource)) {
+            throw new IllegalStateException("Cannot determine target DataSource for lookup key [" + key + "]");
+        }
+        return (DataSource) ds;
+    }
+
     @Override
     public void afterPropertiesSet() {
-        super.setTargetDataSources(targetDataSources);
+        // 父类要求非空的目标映射；之后的路由与增删都直接使用注册表，只在启动时初始化一次
+        super.setTargetDataSources(new ConcurrentHashMap<>());
         super.afterPropertiesSet();
     }
 
     public void addDataSource(String key, String host, String port, String user, String password) throws SQLException {
-        if (targetDataSources.containsKey(key)) {
-            removeDataSource(key);
-        }
+        addDataSource(key, host, port, user, password, null);
+    }
 
-        HikariDataSource ds = new HikariDataSource();
-        ds.setJdbcUrl("jdbc:dm://" + host + ":" + port);
-        ds.setUsername(user);
-        ds.setPassword(password);
-        ds.setDriverClassName("dm.jdbc.driver.DmDriver");
+    /**
+     * @param pools 可选的各类别配额 {interactive: {size, timeout, fair}, metadata: {...}, bulk, lob, console}，未指定的取默认值
+     */
+    public void addDataSource(String key, String host, String port, String user, String password,
+                              Map<String, Object> pools) throws SQLException {
+        Map<WorkloadClass, ConnectionPoolGroup.Lane> lanes = buildLanes(pools);
+
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:dm://" + host + ":" + port);
+        config.setUsername(user);
+        config.setPassword(password);
+        config.setDriverClassName("dm.jdbc.driver.DmDriver");
+        config.setPoolName("dmdb-" + key);
 
-        ds.setMaximumPoolSize(10);
-        ds.setMinimumIdle(2);
-        ds.setConnectionTimeout(5000);
-        ds.setValidationTimeout(3000);
-        ds.setIdleTimeout(600000);
+        // 最大连接数由 ConnectionPoolGroup 按各类别配额之和设置
+        config.setMinimumIdle(minIdle);
+        config.setConnectionTimeout(5000);
+        config.setValidationTimeout(3000);
+        config.setIdleTimeout(idleTimeout);
 
-        try (Connection conn = ds.getConnection()) {
+        ConnectionPoolGroup group = new ConnectionPoolGroup(config, lanes, globalPermits());
+        try {
+            group.inflate();
         } catch (SQLException e) {
-            ds.close();
+            group.close();
             throw e;
         }
 
-        targetDataSources.put(key, ds);
-        super.setTargetDataSources(targetDataSources);
-        super.afterPropertiesSet();
+        // 新连接池校验通过后一次性替换（例如以新凭据重连），期间的请求要么路由到旧连接池，要么路由到新连接池
+        register(key, group);
     }
 
-    public void removeDataSource(String key) {
-        closeConsoleConnection(key);
+    /**
+     * 原子地登记数据源，已存在时替换并退役旧的数据源
+     * @return 被替换的数据源，没有时为 null
+     */
+    Object register(String key, DataSource ds) {
+        Object previous = targetDataSources.put(key, ds);
+        if (previous != null && previous != ds) retire(previous);
+        return previous;
+    }
 
+    public void removeDataSource(String key) {
+        if (key == null) return;
         Object ds = targetDataSources.remove(key);
-        if (ds != null) {
-            if (ds instanceof HikariDataSource) {
-                ((HikariDataSource) ds).close();
-            } else if (ds instanceof Closeable) {
-                try {
-                    ((Closeable) ds).close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+        if (ds != null) retire(ds);
+    }
+
+    // 连接池组等待借出的连接归还后再关闭，其余数据源立即关闭
+    private static void retire(Object ds) {
+        if (ds instanceof ConnectionPoolGroup) {
+            ((ConnectionPoolGroup) ds).retire();
+        } else if (ds instanceof HikariDataSource) {
+            ((HikariDataSource) ds).close();
+        } else if (ds instanceof Closeable) {
+            try {
+                ((Closeable) ds).close();
+            } catch (IOException e) {
+                e.printStackTrace();
             }
         }
-        super.setTargetDataSources(targetDataSources);
-        super.afterPropertiesSet();
     }
 
     public boolean hasDataSource(String key) {
@@ -87,58 +183,144 @@ public class ConnectionManager extends AbstractRoutingDataSource {
     }
 
     /**
-     * 获取控制台专用长连接
+     * 当前登记的数据源，不存在时返回 null；连接被替换后返回新的数据源
      */
-    public static Connection getConsoleConnection(String key) throws SQLException {
-        if (key == null) return null; // 【修复】防止 NPE
+    public DataSource lookup(String key) {
+        Object ds = key == null ? null : targetDataSources.get(key);
+        return ds instanceof DataSource ? (DataSource) ds : null;
+    }
 
-        Connection existingConn = consoleConnections.get(key);
-        if (existingConn != null && !existingConn.isClosed()) {
-            return existingConn;
-        }
+    /**
+     * 连接池组状态：各类别的配额、占用、排队与超时次数，连接不存在时返回 null
+     */
+    public Map<String, Object> getPoolStatus(String key) {
+        Object ds = key == null ? null : targetDataSources.get(key);
+        return ds instanceof ConnectionPoolGroup ? ((ConnectionPoolGroup) ds).toStatus() : null;
+    }
 
-        Object dsObj = targetDataSources.get(key);
-        if (dsObj instanceof DataSource) {
-            Connection newConn = ((DataSource) dsObj).getConnection();
-            consoleConnections.put(key, newConn);
-            consoleDirtyStatus.put(key, false);
-            return newConn;
+    private Semaphore globalPermits() {
+        if (maxTotal <= 0) return null;
+        if (globalPermits == null) {
+            synchronized (this) {
+                if (globalPermits == null) globalPermits = new Semaphore(maxTotal, true);
+            }
         }
-        return null;
+        return globalPermits;
     }
 
     /**
-     * 获取普通短连接
+     * 连接池生命周期维护：收缩、休眠长期未使用的连接池；物理连接总数超过上限时，按最久未使用的顺序关闭空闲连接
      */
-    public static Connection getNewConnection(String key) throws SQLException {
-        if (key == null) return null; // 【修复】关键修改：防止 key 为 null 时 ConcurrentHashMap 报错
+    @Scheduled(fixedDelay = 30000)
+    public void maintainPools() {
+        long now = System.currentTimeMillis();
+        List<ConnectionPoolGroup> groups = new ArrayList<>();
+        for (Map.Entry<Object, Object> e : targetDataSources.entrySet()) {
+            if (!(e.getValue() instanceof ConnectionPoolGroup)) continue;
+            ConnectionPoolGroup group = (ConnectionPoolGroup) e.getValue();
+            if (group.maintain(now, shrinkAfter, hibernateAfter)) {
+                log.info("Connection pool {} hibernated after idle", e.getKey());
+            }
+            groups.add(group);
+        }
+        if (maxTotal <= 0) return;
 
-        Object dsObj = targetDataSources.get(key);
-        if (dsObj instanceof DataSource) {
-            return ((DataSource) dsObj).getConnection();
+        int physical = 0;
+        for (ConnectionPoolGroup group : groups) physical += group.getPhysicalConnections();
+        if (physical <= maxTotal) return;
+        groups.sort(Comparator.comparingLong(ConnectionPoolGroup::getLastUsed));
+        for (ConnectionPoolGroup group : groups) {
+            if (physical <= maxTotal) break;
+            int before = group.getPhysicalConnections();
+            group.evictIdle();
+            physical -= before - group.getPhysicalConnections();
         }
-        return null;
     }
 
-    public static void closeConsoleConnection(String key) {
-        if (key == null) return;
-        Connection conn = consoleConnections.remove(key);
-        consoleDirtyStatus.remove(key);
+    @PreDestroy
+    public void shutdown() {
+        for (Object key : new ArrayList<>(targetDataSources.keySet())) {
+            Object ds = targetDataSources.remove(key);
+            if (ds instanceof ConnectionPoolGroup) ((ConnectionPoolGroup) ds).close();
+        }
+    }
 
-        if (conn != null) {
-            try {
-                if (!conn.isClosed()) conn.close();
-            } catch (SQLException e) {
-                e.printStackTrace();
-            }
+    /**
+     * 所有连接的概况：状态（使用中/已收缩/休眠）与物理连接数
+     */
+    public Map<String, Object> getPoolSummary() {
+        Map<String, Object> res = new LinkedHashMap<>();
+        Map<String, Integer> states = new LinkedHashMap<>();
+        int physical = 0;
+        for (Object ds : targetDataSources.values()) {
+            if (!(ds instanceof ConnectionPoolGroup)) continue;
+            ConnectionPoolGroup group = (ConnectionPoolGroup) ds;
+            states.merge(group.getState().name(), 1, Integer::sum);
+            physical += group.getPhysicalConnections();
+        }
+        res.put("connections", targetDataSources.size());
+        res.put("states", states);
+        res.put("physicalConnections", physical);
+        res.put("maxTotal", maxTotal);
+        Semaphore permits = globalPermits;
+        res.put("leased", permits == null ? null : maxTotal - permits.availablePermits());
+        return res;
+    }
+
+    /**
+     * 指定类别的连接配额，连接不存在时返回 0
+     */
+    public int getLaneSize(String key, WorkloadClass workload) {
+        Object ds = key == null ? null : targetDataSources.get(key);
+        return ds instanceof ConnectionPoolGroup ? ((ConnectionPoolGroup) ds).getLaneSize(workload) : 0;
+    }
+
+    private Map<WorkloadClass, ConnectionPoolGroup.Lane> buildLanes(Map<String, Object> pools) {
+        Map<WorkloadClass, ConnectionPoolGroup.Lane> lanes = new EnumMap<>(WorkloadClass.class);
+        lanes.put(WorkloadClass.INTERACTIVE, lane(pools, WorkloadClass.INTERACTIVE, interactiveSize, interactiveTimeout));
+        lanes.put(WorkloadClass.METADATA, lane(pools, WorkloadClass.METADATA, metadataSize, metadataTimeout));
+        lanes.put(WorkloadClass.BULK, lane(pools, WorkloadClass.BULK, bulkSize, bulkTimeout));
+        lanes.put(WorkloadClass.LOB, lane(pools, WorkloadClass.LOB, lobSize, lobTimeout));
+        lanes.put(WorkloadClass.CONSOLE, lane(pools, WorkloadClass.CONSOLE, consoleSize, consoleTimeout));
+        lanes.put(WorkloadClass.CURSOR, lane(pools, WorkloadClass.CURSOR, cursorSize, cursorTimeout));
+        return lanes;
+    }
+
+    private ConnectionPoolGroup.Lane lane(Map<String, Object> pools, WorkloadClass workload, int size, long timeout) {
+        Object spec = pools == null ? null : pools.get(workload.key());
+        if (spec instanceof Number) return new ConnectionPoolGroup.Lane(((Number) spec).intValue(), timeout, fair);
+        if (!(spec instanceof Map)) return new ConnectionPoolGroup.Lane(size, timeout, fair);
+        Map<?, ?> m = (Map<?, ?>) spec;
+        try {
+            return new ConnectionPoolGroup.Lane(
+                    m.get("size") != null ? Integer.parseInt(String.valueOf(m.get("size"))) : size,
+                    m.get("timeout") != null ? Long.parseLong(String.valueOf(m.get("timeout"))) : timeout,
+                    m.get("fair") != null ? Boolean.parseBoolean(String.valueOf(m.get("fair"))) : fair);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("连接池 [" + workload.key() + "] 配置错误: " + e.getMessage());
         }
     }
 
-    public static void setDirty(String key, boolean dirty) {
-        if (key != null) consoleDirtyStatus.put(key, dirty);
+    /**
+     * 获取普通短连接（当前线程的负载类别）
+     */
+    public static Connection getNewConnection(String key) throws SQLException {
+        return getNewConnection(key, DynamicContext.getWorkload());
     }
 
-    public static boolean isDirty(String key) {
-        return key != null && consoleDirtyStatus.getOrDefault(key, false);
+    /**
+     * 按指定负载类别获取普通短连接
+     */
+    public static Connection getNewConnection(String key, WorkloadClass workload) throws SQLException {
+        if (key == null) return null; // 【修复】关键修改：防止 key 为 null 时 ConcurrentHashMap 报错
+
+        Object dsObj = targetDataSources.get(key);
+        if (dsObj instanceof ConnectionPoolGroup) {
+            return ((ConnectionPoolGroup) dsObj).getConnection(workload);
+        }
+        if (dsObj instanceof DataSource) {
+            return ((DataSource) dsObj).getConnection();
+        }
+        return null;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,309 @@
+package com.example.dmdb.service;
+
+import com.example.dmdb.config.DynamicContext;
+import com.example.dmdb.config.WorkloadClass;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个连接ID的连接池组
+ * 底层是一个 Hikari 连接池，容量为各负载类别配额之和；每个类别用各自的信号量限制同时占用的连接数，
+ * 并有独立的等待超时与公平策略。某个类别占满只会让该类别排队，其余类别的配额始终可用。
+ * 长时间未使用时先收缩（最小空闲数降为 0，空闲连接按 idleTimeout 逐步关闭），再休眠（关闭连接池，只保留配置），
+ * 下次取连接时自动重建
+ */
+public class ConnectionPoolGroup extends AbstractDataSource implements Closeable {
+
+    public enum State { ACTIVE, SHRUNK, HIBERNATED, CLOSED }
+
+    /**
+     * 单个类别的配额：size 个连接，等待 timeout 毫秒，fair 为 true 时按请求先后分配
+     */
+    public static final class Lane {
+        private final int size;
+        private final long timeout;
+        private final boolean fair;
+        private final Semaphore permits;
+        private final LongAdder acquired = new LongAdder();
+        private final LongAdder timeouts = new LongAdder();
+
+        public Lane(int size, long timeout, boolean fair) {
+            this.size = Math.max(1, size);
+            this.timeout = Math.max(0, timeout);
+            this.fair = fair;
+            this.permits = new Semaphore(this.size, fair);
+        }
+
+        public int getSize() { return size; }
+        public long getTimeout() { return timeout; }
+        public boolean isFair() { return fair; }
+
+        Map<String, Object> toStatus() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("size", size);
+            m.put("timeout", timeout);
+            m.put("fair", fair);
+            m.put("active", size - permits.availablePermits());
+            m.put("waiting", permits.getQueueLength());
+            m.put("acquired", acquired.sum());
+            m.put("timeouts", timeouts.sum());
+            return m;
+        }
+    }
+
+    private final HikariConfig config;
+    private final int minimumIdle;
+    private final Map<WorkloadClass, Lane> lanes;
+    // 所有连接共用的借出上限，为 null 时不限制
+    private final Semaphore global;
+
+    // 以下状态由 this 锁保护
+    private HikariDataSource pool;
+    private State state = State.HIBERNATED;
+    private int leased;
+    private long lastUsed = System.currentTimeMillis();
+    private int inflations;
+    // 已被替换或移除，最后一个借出的连接归还后关闭连接池
+    private boolean retiring;
+
+    /**
+     * @param config 连接池配置，最大连接数由各类别配额之和决定；创建时不建立连接，首次取连接或调用 inflate 时再创建连接池
+     */
+    public ConnectionPoolGroup(HikariConfig config, Map<WorkloadClass, Lane> lanes, Semaphore global) {
+        this.lanes = new EnumMap<>(lanes);
+        this.config = config;
+        this.minimumIdle = Math.min(config.getMinimumIdle(), capacity(lanes));
+        this.config.setMaximumPoolSize(capacity(lanes));
+        this.global = global;
+    }
+
+    /**
+     * 各类别配额之和，作为底层连接池的最大连接数
+     */
+    public static int capacity(Map<WorkloadClass, Lane> lanes) {
+        int total = 0;
+        for (Lane lane : lanes.values()) total += lane.size;
+        return total;
+    }
+
+    /**
+     * 立即创建连接池（校验连接参数），失败时保持休眠状态并抛出异常
+     */
+    public void inflate() throws SQLException {
+        reserve();
+        release();
+    }
+
+    /**
+     * 按当前线程的负载类别取连接（供路由数据源与 MyBatis 使用）
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        return getConnection(DynamicContext.getWorkload());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new UnsupportedOperationException("不支持指定用户名取连接");
+    }
+
+    /**
+     * 在指定类别的配额内取连接，配额用尽时最多等待该类别的超时时间；连接关闭时归还配额
+     */
+    public Connection getConnection(WorkloadClass workload) throws SQLException {
+        Lane lane = lanes.get(workload);
+        if (lane == null) lane = lanes.get(WorkloadClass.INTERACTIVE);
+        long deadline = System.currentTimeMillis() + lane.timeout;
+        acquire(lane.permits, lane.timeout, lane, "连接池 [" + workload.key() + "] 繁忙，等待 " + lane.timeout + " ms 后仍无可用连接");
+        boolean globalHeld = false;
+        try {
+            if (global != null) {
+                acquire(global, Math.max(0, deadline - System.currentTimeMillis()), lane, "全局连接数已达上限，等待超时");
+                globalHeld = true;
+            }
+            HikariDataSource ds = reserve();
+            Connection conn;
+            try {
+                conn = ds.getConnection();
+            } catch (SQLException | RuntimeException e) {
+                release();
+                throw e;
+            }
+            lane.acquired.increment();
+            return leased(conn, lane.permits, globalHeld ? global : null);
+        } catch (SQLException | RuntimeException e) {
+            if (globalHeld) global.release();
+            lane.permits.release();
+            throw e;
+        }
+    }
+
+    private static void acquire(Semaphore permits, long timeout, Lane lane, String busyMessage) throws SQLException {
+        try {
+            if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                lane.timeouts.increment();
+                throw new SQLTransientConnectionException(busyMessage);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("等待数据库连接时被中断");
+        }
+    }
+
+    // 登记一次借出，休眠或收缩状态下先恢复连接池
+    private synchronized HikariDataSource reserve() throws SQLException {
+        if (state == State.CLOSED) throw new SQLException("连接已关闭");
+        if (pool == null) {
+            try {
+                pool = new HikariDataSource(config);
+            } catch (RuntimeException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                throw cause instanceof SQLException ? (SQLException) cause : new SQLException(cause.getMessage(), cause);
+            }
+            inflations++;
+        } else if (state == State.SHRUNK) {
+            pool.getHikariConfigMXBean().setMinimumIdle(minimumIdle);
+        }
+        state = State.ACTIVE;
+        leased++;
+        lastUsed = System.currentTimeMillis();
+        return pool;
+    }
+
+    private synchronized void release() {
+        leased--;
+        lastUsed = System.currentTimeMillis();
+        if (retiring && leased == 0) closePool();
+    }
+
+    // 包装连接：第一次 close 时归还类别配额与全局配额
+    private Connection leased(Connection conn, Semaphore permits, Semaphore globalPermits) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class[]{Connection.class},
+                (proxy, method, args) -> {
+                    if ("close".equals(method.getName())) {
+                        try {
+                            conn.close();
+                        } finally {
+                            if (released.compareAndSet(false, true)) {
+                                release();
+                                if (globalPermits != null) globalPermits.release();
+                                permits.release();
+                            }
+                        }
+                        return null;
+                    }
+                    try {
+                        return method.invoke(conn, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * 空闲维护：没有借出的连接且空闲超过 shrinkAfter 时收缩，超过 hibernateAfter 时休眠
+     * @return 本次是否进入休眠
+     */
+    public synchronized boolean maintain(long now, long shrinkAfter, long hibernateAfter) {
+        if (pool == null || leased > 0) return false;
+        long idle = now - lastUsed;
+        if (hibernateAfter > 0 && idle >= hibernateAfter) {
+            pool.close();
+            pool = null;
+            state = State.HIBERNATED;
+            return true;
+        }
+        if (shrinkAfter > 0 && idle >= shrinkAfter && state == State.ACTIVE) {
+            pool.getHikariConfigMXBean().setMinimumIdle(0);
+            state = State.SHRUNK;
+        }
+        return false;
+    }
+
+    /**
+     * 关闭空闲的物理连接（用于全局连接数超限时），有借出的连接时不处理。
+     * 先收缩（最小空闲数降为 0），否则 Hikari 的维护任务会立即补回被关闭的连接
+     */
+    public synchronized void evictIdle() {
+        if (pool == null || leased > 0 || pool.getHikariPoolMXBean() == null) return;
+        if (state == State.ACTIVE) {
+            pool.getHikariConfigMXBean().setMinimumIdle(0);
+            state = State.SHRUNK;
+        }
+        pool.getHikariPoolMXBean().softEvictConnections();
+    }
+
+    /**
+     * 当前的物理连接数，休眠时为 0
+     */
+    public synchronized int getPhysicalConnections() {
+        HikariPoolMXBean mx = pool == null ? null : pool.getHikariPoolMXBean();
+        return mx == null ? 0 : mx.getTotalConnections();
+    }
+
+    public synchronized long getLastUsed() { return lastUsed; }
+
+    public synchronized State getState() { return state; }
+
+    public int getLaneSize(WorkloadClass workload) {
+        Lane lane = lanes.get(workload);
+        return lane == null ? 0 : lane.size;
+    }
+
+    public synchronized Map<String, Object> toStatus() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        Map<String, Object> classes = new LinkedHashMap<>();
+        for (Map.Entry<WorkloadClass, Lane> e : lanes.entrySet()) {
+            classes.put(e.getKey().key(), e.getValue().toStatus());
+        }
+        m.put("state", state);
+        m.put("maximumPoolSize", config.getMaximumPoolSize());
+        m.put("leased", leased);
+        m.put("lastUsed", lastUsed);
+        m.put("inflations", inflations);
+        HikariPoolMXBean mx = pool == null ? null : pool.getHikariPoolMXBean();
+        m.put("activeConnections", mx == null ? 0 : mx.getActiveConnections());
+        m.put("idleConnections", mx == null ? 0 : mx.getIdleConnections());
+        m.put("classes", classes);
+        return m;
+    }
+
+    /**
+     * 停止借出新连接；已借出的连接继续可用，全部归还后关闭连接池。用于替换或移除连接时不中断进行中的请求
+     */
+    public synchronized void retire() {
+        state = State.CLOSED;
+        retiring = true;
+        if (leased == 0) closePool();
+    }
+
+    @Override
+    public synchronized void close() {
+        state = State.CLOSED;
+        closePool();
+    }
+
+    private void closePool() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package com.example.dmdb.service;
+
+import com.example.dmdb.config.DynamicContext;
+import com.example.dmdb.config.WorkloadClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * SQL 控制台会话管理
+ * 手动提交模式下，每个连接 (Conn-Id) 可以有多个控制台会话（例如多个编辑器标签页），按会话ID区分，未指定时使用 default 会话。
+ * 每个会话独占一个长连接和一个单线程执行队列，同一会话的语句依次执行，不同会话互不阻塞。
+ * 记录最后使用时间，空闲超时后回收；有未提交事务的会话按 dirty-policy 回滚或只告警；仍在使用的会话定期校验并保活，失效时丢弃
+ */
+@Component
+public class ConsoleSessionManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ConsoleSessionManager.class);
+
+    public static final String DEFAULT_SESSION = "default";
+
+    private static final Pattern SESSION_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private static final AtomicInteger THREAD_SEQ = new AtomicInteger();
+
+    public enum DirtyPolicy { ROLLBACK, ALERT }
+
+    /**
+     * 在会话的执行队列中运行的操作，session 为 null 表示连接不存在
+     */
+    @FunctionalInterface
+    public interface SessionTask<T> {
+        T run(ConsoleSession session) throws SQLException;
+    }
+
+    // 连接ID + 会话ID -> 会话
+    private final Map<String, ConsoleSession> sessions = new ConcurrentHashMap<>();
+
+    // 按连接ID加锁创建会话，取连接时的等待只影响同一连接
+    private final Map<String, Object> openLocks = new ConcurrentHashMap<>();
+
+    // 已通过总数检查、正在建立连接的会话数，由 sessions 锁保护
+    private int opening;
+
+    @Autowired
+    private ConnectionManager connectionManager;
+
+    @Autowired
+    private StatementRegistry statementRegistry;
+
+    // 控制台会话空闲超时（毫秒），超时后关闭专用连接
+    @Value("${dmdb.console.idle-ttl:1800000}")
+    private long idleTtl;
+
+    // 空闲超时的会话有未提交事务时的处理：rollback 回滚后关闭，alert 只记录告警并保留会话
+    @Value("${dmdb.console.dirty-policy:rollback}")
+    private String dirtyPolicy;
+
+    // alert 策略下未提交事务会话的最长保留时间（毫秒），超过后仍然回滚关闭，0 表示不限制
+    @Value("${dmdb.console.dirty-max-idle:14400000}")
+    private long dirtyMaxIdle;
+
+    // 空闲超过该时间（毫秒）的会话在定时任务和下次使用前校验连接，0 表示不校验
+    @Value("${dmdb.console.keepalive-interval:120000}")
+    private long keepaliveInterval;
+
+    // 连接校验超时（秒）
+    @Value("${dmdb.console.validation-timeout:5}")
+    private int validationTimeout;
+
+    // 全部连接的控制台会话总数上限
+    @Value("${dmdb.console.max-sessions:200}")
+    private int maxSessions;
+
+    // 每个连接允许的控制台会话数，每个会话占用连接池 console 配额中的一个连接
+    @Value("${dmdb.console.max-per-conn:4}")
+    private int maxPerConn;
+
+    // 每个会话排队等待执行的语句数上限
+    @Value("${dmdb.console.queue-per-session:10}")
+    private int queuePerSession;
+
+    /**
+     * 规范化会话ID，为空时返回 default
+     * @throws IllegalArgumentException 会话ID格式不合法
+     */
+    public static String sessionId(String sessionId) {
+        if (sessionId == null || sessionId.trim().isEmpty()) return DEFAULT_SESSION;
+        String id = sessionId.trim();
+        if (!SESSION_ID.matcher(id).matches()) throw new IllegalArgumentException("会话ID不合法: " + sessionId);
+        return id;
+    }
+
+    private static String key(String connId, String sessionId) {
+        return connId + "#" + sessionId;
+    }
+
+    /**
+     * 在会话的执行队列中运行 task 并等待结果，会话不存在时新建。
+     * 空闲较久的会话在执行前校验连接：已失效且没有未提交事务时换用新连接重试一次，有未提交事务时抛出异常提示事务丢失
+     */
+    public <T> T execute(String connId, String sessionId, SessionTask<T> task) throws SQLException {
+        if (connId == null) return task.run(null);
+        for (int attempt = 0; ; attempt++) {
+            long now = System.currentTimeMillis();
+            ConsoleSession session = sessions.get(key(connId, sessionId));
+            boolean validate = false;
+            if (session != null) {
+                long idleSince = session.begin();
+                if (idleSince < 0) {
+                    session = null;
+                } else {
+                    validate = keepaliveInterval > 0 && now - Math.max(idleSince, session.lastValidated) >= keepaliveInterval;
+                }
+            }
+            if (session == null) session = open(connId, sessionId);
+            if (session == null) return task.run(null);
+
+            try {
+                return submit(session, validate, task);
+            } catch (StaleSessionException e) {
+                boolean dirty = session.dirty;
+                discard(session, "invalid");
+                if (dirty || attempt > 0) throw new SQLException("控制台连接已失效，未提交的事务已丢失，请重新执行");
+            }
+        }
+    }
+
+    private <T> T submit(ConsoleSession session, boolean validate, SessionTask<T> task) throws SQLException {
+        Future<T> future;
+        try {
+            future = session.executor.submit(DynamicContext.wrap(session.connId, () -> {
+                try {
+                    if (validate && !session.validate(validationTimeout)) throw new StaleSessionException();
+                    return task.run(session);
+                } finally {
+                    session.release();
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            session.release();
+            if (session.isClosed()) throw new SQLException("控制台会话 [" + session.sessionId + "] 已关闭");
+            throw new SQLException("控制台会话 [" + session.sessionId + "] 排队的语句过多，请等待当前语句执行完成");
+        }
+        try {
+            return future.get();
+        } catch (CancellationException e) {
+            // 排队期间会话被关闭
+            session.release();
+            throw new SQLException("控制台会话 [" + session.sessionId + "] 已关闭");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("等待控制台语句执行时被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) throw (SQLException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new SQLException(cause.getMessage(), cause);
+        }
+    }
+
+    private ConsoleSession open(String connId, String sessionId) throws SQLException {
+        synchronized (openLocks.computeIfAbsent(connId, k -> new Object())) {
+            ConsoleSession session = sessions.get(key(connId, sessionId));
+            if (session != null && session.begin() >= 0) return session;
+
+            if (countByConn(connId) >= maxPerConn) {
+                throw new SQLException("当前连接的控制台会话数已达上限 (" + maxPerConn + ")，请先关闭不再使用的会话");
+            }
+            DataSource source = connectionManager.lookup(connId);
+            if (!(source instanceof ConnectionPoolGroup)) return null;
+            reserve();
+            try {
+                Connection conn = ((ConnectionPoolGroup) source).getConnection(WorkloadClass.CONSOLE);
+                session = new ConsoleSession(connId, sessionId, conn, source, queuePerSession);
+                session.begin();
+                sessions.put(key(connId, sessionId), session);
+                return session;
+            } finally {
+                synchronized (sessions) {
+                    opening--;
+                }
+            }
+        }
+    }
+
+    // 占用一个会话名额，总数已满时先回收最久未使用的空闲会话
+    private void reserve() throws SQLException {
+        synchronized (sessions) {
+            if (sessions.size() + opening >= maxSessions && !evictOldestClean()) {
+                throw new SQLException("控制台会话数已达上限 (" + maxSessions + ")，请稍后重试");
+            }
+            opening++;
+        }
+    }
+
+    private int countByConn(String connId) {
+        int count = 0;
+        for (ConsoleSession s : sessions.values()) {
+            if (s.connId.equals(connId)) count++;
+        }
+        return count;
+    }
+
+    // 会话数达到上限时回收最久未使用、没有未提交事务的会话
+    private boolean evictOldestClean() {
+        ConsoleSession oldest = sessions.values().stream()
+                .filter(s -> !s.isDirty() && s.inUse.get() == 0)
+                .min(Comparator.comparingLong(ConsoleSession::getLastUsed))
+                .orElse(null);
+        if (oldest == null) return false;
+        synchronized (oldest) {
+            if (oldest.inUse.get() > 0) return false;
+            discard(oldest, "capacity");
+        }
+        return true;
+    }
+
+    public boolean exists(String connId, String sessionId) {
+        return connId != null && sessions.containsKey(key(connId, sessionId));
+    }
+
+    public boolean isDirty(String connId, String sessionId) {
+        ConsoleSession session = connId == null ? null : sessions.get(key(connId, sessionId));
+        return session != null && session.isDirty();
+    }
+
+    /**
+     * 关闭指定会话，有未提交事务时先回滚
+     * @return 会话是否存在
+     */
+    public boolean close(String connId, String sessionId) {
+        ConsoleSession session = connId == null ? null : sessions.get(key(connId, sessionId));
+        if (session == null) return false;
+        discard(session, "closed");
+        return true;
+    }
+
+    /**
+     * 关闭连接的全部控制台会话
+     */
+    public void close(String connId) {
+        if (connId == null) return;
+        for (ConsoleSession session : new ArrayList<>(sessions.values())) {
+            if (session.connId.equals(connId)) discard(session, "closed");
+        }
+        openLocks.remove(connId);
+    }
+
+    /**
+     * 会话列表：当前连接的会话显示完整 ID，其余连接只显示 ID 前缀，避免泄露他人的 Conn-Id
+     */
+    public List<Map<String, Object>> list(String connId) {
+        long now = System.currentTimeMillis();
+        List<ConsoleSession> all = new ArrayList<>(sessions.values());
+        all.sort(Comparator.comparingLong(ConsoleSession::getCreatedAt));
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (ConsoleSession s : all) {
+            boolean mine = s.connId.equals(connId);
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("connId", mine ? s.connId : mask(s.connId));
+            m.put("sessionId", mine ? s.sessionId : null);
+            m.put("mine", mine);
+            m.put("createdAt", s.createdAt);
+            m.put("ageMs", now - s.createdAt);
+            m.put("idleMs", now - s.lastUsed);
+            m.put("inUse", s.inUse.get() > 0);
+            m.put("queued", s.executor.getQueue().size());
+            m.put("dirty", s.dirty);
+            m.put("dirtySince", s.dirtySince);
+            m.put("alerted", s.alerted);
+            m.put("lastValidated", s.lastValidated);
+            list.add(m);
+        }
+        return list;
+    }
+
+    private static String mask(String id) {
+        return id.length() <= 8 ? "****" : id.substring(0, 8) + "****";
+    }
+
+    /**
+     * 定时维护：回收所属数据源已移除或被替换的会话；空闲超时的会话按策略处理；其余空闲较久的会话校验保活
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void maintain() {
+        long now = System.currentTimeMillis();
+        DirtyPolicy policy = policy();
+        for (ConsoleSession session : new ArrayList<>(sessions.values())) {
+            // 持有会话锁期间 begin() 等待，避免刚被取出的会话在使用中被回收
+            synchronized (session) {
+                if (session.inUse.get() > 0 || session.closed) continue;
+                String reason = evictReason(session, now, policy);
+                if (reason != null) discard(session, reason);
+            }
+        }
+    }
+
+    // 应回收的原因，保留时返回 null
+    private String evictReason(ConsoleSession session, long now, DirtyPolicy policy) {
+        if (connectionManager.lookup(session.connId) != session.source) return "disconnected";
+        long idle = now - session.lastUsed;
+        if (idleTtl > 0 && idle >= idleTtl) {
+            if (!session.dirty || policy == DirtyPolicy.ROLLBACK || (dirtyMaxIdle > 0 && idle >= dirtyMaxIdle)) {
+                return "idle";
+            }
+            if (!session.alerted) {
+                session.alerted = true;
+                log.warn("Console session {}#{} has uncommitted changes and has been idle for {} s",
+                        mask(session.connId), session.sessionId, idle / 1000);
+            }
+        }
+        boolean stale = keepaliveInterval > 0 && now - Math.max(session.lastUsed, session.lastValidated) >= keepaliveInterval;
+        if (stale && !session.validate(validationTimeout)) return "invalid";
+        return null;
+    }
+
+    private DirtyPolicy policy() {
+        return "alert".equalsIgnoreCase(dirtyPolicy) ? DirtyPolicy.ALERT : DirtyPolicy.ROLLBACK;
+    }
+
+    // 从登记表移除并关闭：取消排队的语句、中止执行中的语句，执行线程退出后再回滚并关闭连接
+    private void discard(ConsoleSession session, String reason) {
+        if (!sessions.remove(key(session.connId, session.sessionId), session)) return;
+        if (session.dirty) {
+            log.warn("Console session {}#{} rolled back on {} (dirty for {} s)", mask(session.connId), session.sessionId,
+                    reason, (System.currentTimeMillis() - session.dirtySince) / 1000);
+        } else {
+            log.info("Console session {}#{} closed ({})", mask(session.connId), session.sessionId, reason);
+        }
+        StatementRegistry.Running running = session.running;
+        session.close();
+        if (running != null) statementRegistry.cancel(running.getRequestId(), session.connId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ConsoleSession session : new ArrayList<>(sessions.values())) {
+            discard(session, "shutdown");
+        }
+    }
+
+    // 执行前校验发现连接已失效
+    private static final class StaleSessionException extends SQLException {
+        StaleSessionException() {
+            super("控制台连接已失效");
+        }
+    }
+
+    /**
+     * 单个控制台会话：专用连接、单线程执行队列与事务状态。连接只在执行队列的线程中使用
+     */
+    public static class ConsoleSession {
+        private final String connId;
+        private final String sessionId;
+        private final Connection conn;
+        // 创建会话时的数据源，连接被替换或移除后据此回收
+        private final DataSource source;
+        private final ThreadPoolExecutor executor;
+        private final long createdAt = System.currentTimeMillis();
+        private final AtomicInteger inUse = new AtomicInteger();
+        private volatile long lastUsed = createdAt;
+        private volatile long lastValidated = createdAt;
+        private volatile boolean dirty;
+        private volatile long dirtySince;
+        private volatile boolean alerted;
+        // 执行线程中正在执行的语句，关闭会话时据此取消
+        private volatile StatementRegistry.Running running;
+        // 由会话锁保护，关闭后不能再取出
+        private boolean closed;
+
+        ConsoleSession(String connId, String sessionId, Connection conn, DataSource source, int queueSize) {
+            this.connId = connId;
+            this.sessionId = sessionId;
+            this.conn = conn;
+            this.source = source;
+            this.executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, queueSize)),
+                    r -> {
+                        Thread t = new Thread(r, "console-session-" + THREAD_SEQ.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    }) {
+                // 执行中的语句结束、执行线程退出后才关闭连接，保证连接不会同时被两个线程使用
+                @Override
+                protected void terminated() {
+                    closeConnection();
+                }
+            };
+            this.executor.allowCoreThreadTimeOut(true);
+        }
+
+        public String getConnId() { return connId; }
+        public String getSessionId() { return sessionId; }
+        public Connection getConnection() { return conn; }
+        public long getCreatedAt() { return createdAt; }
+        public long getLastUsed() { return lastUsed; }
+        public boolean isDirty() { return dirty; }
+
+        /**
+         * 登记执行线程中正在执行的语句，执行结束后传入 null
+         */
+        public void setRunning(StatementRegistry.Running running) {
+            this.running = running;
+        }
+
+        public void setDirty(boolean dirty) {
+            if (dirty && !this.dirty) dirtySince = System.currentTimeMillis();
+            this.dirty = dirty;
+            if (!dirty) alerted = false;
+        }
+
+        /**
+         * 标记为使用中
+         * @return 此前的最后使用时间，会话已关闭时返回 -1
+         */
+        synchronized long begin() {
+            if (closed) return -1;
+            long previous = lastUsed;
+            inUse.incrementAndGet();
+            lastUsed = System.currentTimeMillis();
+            return previous;
+        }
+
+        void release() {
+            lastUsed = System.currentTimeMillis();
+            inUse.decrementAndGet();
+        }
+
+        synchronized boolean validate(int timeoutSeconds) {
+            try {
+                boolean valid = conn.isValid(timeoutSeconds);
+                if (valid) lastValidated = System.currentTimeMillis();
+                return valid;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        synchronized boolean isClosed() {
+            return closed;
+        }
+
+        synchronized void close() {
+            if (closed) return;
+            closed = true;
+            List<Runnable> queued = new ArrayList<>();
+            executor.getQueue().drainTo(queued);
+            for (Runnable task : queued) {
+                if (task instanceof Future) ((Future<?>) task).cancel(false);
+            }
+            executor.shutdown();
+        }
+
+        private void closeConnection() {
+            try {
+                if (!conn.isClosed()) {
+                    if (dirty && !conn.getAutoCommit()) conn.rollback();
+                    conn.close();
+                }
+            } catch (SQLException e) {
+                log.warn("Close console session failed: {}", e.getMessage());
+                try {
+                    conn.close();
+                } catch (SQLException ignored) {}
+            }
+        }
+    }
+}
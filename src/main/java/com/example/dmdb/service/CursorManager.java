@@ -0,0 +1,187 @@
+package com.example.dmdb.service;
+
+import com.example.dmdb.config.WorkloadClass;
+import com.example.dmdb.sql.RowDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 服务端游标会话管理
+ * 每个游标独占一个物理连接并保持 Statement/ResultSet 打开，翻页时只继续抓取，不再重复执行 SQL；
+ * 游标连接取自 CURSOR 配额，不占用交互查询的连接
+ */
+@Component
+public class CursorManager {
+
+    private static final Logger log = LoggerFactory.getLogger(CursorManager.class);
+
+    private final Map<String, Cursor> cursors = new ConcurrentHashMap<>();
+
+    @Autowired
+    private ConnectionManager connectionManager;
+
+    // 游标空闲超时时间（毫秒）
+    @Value("${dmdb.cursor.idle-ttl:300000}")
+    private long idleTtl;
+
+    // 每个连接 (Conn-Id) 允许同时打开的游标数，每个游标占用一个 CURSOR 配额的连接，实际上限不超过该配额
+    @Value("${dmdb.cursor.max-per-conn:3}")
+    private int maxPerConn;
+
+    /**
+     * 检查该连接是否还能再打开游标（需在执行 SQL 之前调用，避免白白执行）
+     */
+    public boolean canOpen(String connId) {
+        return countByConn(connId) < limit(connId);
+    }
+
+    /**
+     * 登记已执行成功的游标，超出上限时返回 null，由调用方负责释放资源
+     */
+    public synchronized Cursor register(String connId, Connection conn, Statement stmt, ResultSet rs) throws SQLException {
+        if (countByConn(connId) >= limit(connId)) return null;
+        Cursor cursor = new Cursor(UUID.randomUUID().toString(), connId, conn, stmt, rs);
+        cursors.put(cursor.getId(), cursor);
+        return cursor;
+    }
+
+    /**
+     * 获取游标，同时校验所属连接，防止跨连接访问
+     */
+    public Cursor get(String cursorId, String connId) {
+        if (cursorId == null) return null;
+        Cursor cursor = cursors.get(cursorId);
+        if (cursor == null || !cursor.getConnId().equals(connId)) return null;
+        return cursor;
+    }
+
+    public boolean close(String cursorId, String connId) {
+        Cursor cursor = get(cursorId, connId);
+        if (cursor == null) return false;
+        cursors.remove(cursorId);
+        cursor.close();
+        return true;
+    }
+
+    public void closeAll(String connId) {
+        for (Cursor cursor : new ArrayList<>(cursors.values())) {
+            if (cursor.getConnId().equals(connId)) {
+                cursors.remove(cursor.getId());
+                cursor.close();
+            }
+        }
+    }
+
+    // 游标数超过 CURSOR 配额时，多出的游标只会在取连接时等待超时
+    private int limit(String connId) {
+        int lane = connectionManager.getLaneSize(connId, WorkloadClass.CURSOR);
+        return lane > 0 ? Math.min(maxPerConn, lane) : maxPerConn;
+    }
+
+    private int countByConn(String connId) {
+        int count = 0;
+        for (Cursor cursor : cursors.values()) {
+            if (cursor.getConnId().equals(connId)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * 定时回收空闲超时或所属数据源已移除的游标
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void evictIdle() {
+        long now = System.currentTimeMillis();
+        for (Cursor cursor : new ArrayList<>(cursors.values())) {
+            boolean expired = now - cursor.getLastAccess() > idleTtl;
+            if (expired || !connectionManager.hasDataSource(cursor.getConnId())) {
+                cursors.remove(cursor.getId());
+                cursor.close();
+                log.info("Cursor {} evicted (expired={})", cursor.getId(), expired);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Cursor cursor : cursors.values()) {
+            cursor.close();
+        }
+        cursors.clear();
+    }
+
+    /**
+     * 单个游标：持有连接、语句和结果集，读取时需在游标对象上加锁
+     */
+    public static class Cursor {
+        private final String id;
+        private final String connId;
+        private final Connection conn;
+        private final Statement stmt;
+        private final ResultSet rs;
+        private final ResultSetMetaData metaData;
+        private final RowDecoder decoder;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile long lastAccess = createdAt;
+        private long fetchedRows;
+        private boolean exhausted;
+
+        Cursor(String id, String connId, Connection conn, Statement stmt, ResultSet rs) throws SQLException {
+            this.id = id;
+            this.connId = connId;
+            this.conn = conn;
+            this.stmt = stmt;
+            this.rs = rs;
+            this.metaData = rs.getMetaData();
+            this.decoder = RowDecoder.of(metaData);
+        }
+
+        public String getId() { return id; }
+        public String getConnId() { return connId; }
+        public ResultSet getResultSet() { return rs; }
+        public ResultSetMetaData getMetaData() { return metaData; }
+        public RowDecoder getDecoder() { return decoder; }
+        public long getCreatedAt() { return createdAt; }
+        public long getLastAccess() { return lastAccess; }
+        public long getFetchedRows() { return fetchedRows; }
+        public boolean isExhausted() { return exhausted; }
+
+        public void touch() { lastAccess = System.currentTimeMillis(); }
+        public void addFetched(int rows) { fetchedRows += rows; }
+        public void markExhausted() { exhausted = true; }
+
+        public List<String> getColumnLabels() {
+            return decoder.getLabels();
+        }
+
+        synchronized void close() {
+            try {
+                if (!rs.isClosed()) rs.close();
+            } catch (SQLException ignored) {}
+            try {
+                if (!stmt.isClosed()) stmt.close();
+            } catch (SQLException ignored) {}
+            try {
+                if (!conn.isClosed()) conn.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
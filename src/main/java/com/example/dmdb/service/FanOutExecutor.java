@@ -0,0 +1,179 @@
+package com.example.dmdb.service;
+
+import com.example.dmdb.config.DynamicContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个请求内相互独立查询的并行执行
+ * 任务在有界线程池中执行并继承当前线程的 Conn-Id，每个任务各自从路由数据源取连接；
+ * 线程池排满时在调用线程直接执行，退化为串行而不是报错。
+ * 任务中执行的语句（经 {@link com.example.dmdb.config.StatementDeadlineInterceptor}）按剩余时间设置查询超时，
+ * 截止时取消任务会同时取消数据库端正在执行的语句
+ */
+@Component
+public class FanOutExecutor {
+
+    // 并行查询的线程数
+    @Value("${dmdb.fan-out.threads:8}")
+    private int threads;
+
+    // 单个请求等待全部并行查询的最长时间（毫秒）
+    @Value("${dmdb.fan-out.timeout:30000}")
+    private long timeout;
+
+    private static final ThreadLocal<Task<?>> CURRENT = new ThreadLocal<>();
+
+    private ThreadPoolExecutor executor;
+
+    /**
+     * 提交任务，截止时间为从现在起 dmdb.fan-out.timeout
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        return submit(task, deadline());
+    }
+
+    /**
+     * 提交任务，任务中的语句在 deadline 前必须结束
+     */
+    public <T> Future<T> submit(Callable<T> task, long deadline) {
+        Task<T> wrapped = new Task<>(DynamicContext.wrap(DynamicContext.getKey(), task), deadline);
+        try {
+            executor().execute(wrapped);
+        } catch (RejectedExecutionException e) {
+            Task<T> inline = new Task<>(task, deadline);
+            inline.run();
+            return inline;
+        }
+        return wrapped;
+    }
+
+    /**
+     * 当前线程在并行任务中时，为语句设置剩余时间对应的查询超时，并登记以便截止时取消
+     */
+    public static void bind(Statement stmt) throws SQLException {
+        Task<?> task = CURRENT.get();
+        if (task == null) return;
+        long remaining = task.deadline - System.currentTimeMillis();
+        if (remaining <= 0) throw new SQLException("查询超时");
+        int seconds = (int) Math.max(1, (remaining + 999) / 1000);
+        if (stmt.getQueryTimeout() == 0 || stmt.getQueryTimeout() > seconds) stmt.setQueryTimeout(seconds);
+        task.statements.add(stmt);
+        // 登记前任务可能已被取消
+        if (task.isCancelled()) task.cancelStatements();
+    }
+
+    /**
+     * 在当前线程执行任务，任务中的语句同样按 deadline 设置查询超时
+     */
+    public static <T> T call(Callable<T> task, long deadline) {
+        Task<T> inline = new Task<>(task, deadline);
+        inline.run();
+        return await(inline, deadline);
+    }
+
+    /**
+     * 本次请求的截止时间
+     */
+    public long deadline() {
+        return System.currentTimeMillis() + timeout;
+    }
+
+    /**
+     * 在截止时间前取结果，超时抛出 IllegalStateException 并取消任务，任务异常原样抛出
+     */
+    public static <T> T await(Future<T> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            throw new IllegalStateException("查询超时");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("查询被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * 并行任务：取消时同时取消其中已执行的语句
+     */
+    private static final class Task<T> extends FutureTask<T> {
+        private final long deadline;
+        private final Queue<Statement> statements = new ConcurrentLinkedQueue<>();
+
+        Task(Callable<T> callable, long deadline) {
+            super(callable);
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            CURRENT.set(this);
+            try {
+                super.run();
+            } finally {
+                CURRENT.remove();
+                statements.clear();
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) cancelStatements();
+            return cancelled;
+        }
+
+        void cancelStatements() {
+            for (Statement stmt : statements) {
+                try {
+                    stmt.cancel();
+                } catch (SQLException ignored) {
+                    // 语句已结束或已关闭
+                }
+            }
+        }
+    }
+
+    private synchronized ThreadPoolExecutor executor() {
+        if (executor == null) {
+            AtomicInteger seq = new AtomicInteger();
+            executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(threads * 8),
+                    r -> {
+                        Thread t = new Thread(r, "fan-out-" + seq.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null) executor.shutdownNow();
+    }
+}
@@ -0,0 +1,332 @@
+package com.example.dmdb.service;
+
+import com.example.dmdb.config.DynamicContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PreDestroy;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 后台导入任务管理
+ * 上传文件先落盘到临时文件，再由后台线程流式读取执行，进度（已读字节、已执行语句、错误）可轮询查询
+ */
+@Component
+public class ImportTaskManager {
+
+    private static final Logger log = LoggerFactory.getLogger(ImportTaskManager.class);
+
+    /**
+     * 导入过程：从 in 流式读取并执行，通过 task 汇报进度
+     */
+    public interface ImportWork {
+        void run(ImportTask task, InputStream in) throws Exception;
+    }
+
+    private final Map<String, ImportTask> tasks = new LinkedHashMap<>();
+
+    private ThreadPoolExecutor executor;
+
+    @Autowired
+    private StatementRegistry statementRegistry;
+
+    // 同时执行的导入任务数
+    @Value("${dmdb.import.threads:2}")
+    private int threads;
+
+    // 排队等待的导入任务数上限
+    @Value("${dmdb.import.queue:10}")
+    private int queue;
+
+    // 每个任务保留的错误明细条数
+    @Value("${dmdb.import.max-errors:100}")
+    private int maxErrors;
+
+    // 已结束任务状态的保留时间（毫秒）
+    @Value("${dmdb.import.result-ttl:1800000}")
+    private long resultTtl;
+
+    /**
+     * 提交导入任务，队列已满时返回 null
+     */
+    public ImportTask submit(String connId, String type, MultipartFile file, ImportWork work) throws IOException {
+        Path temp = Files.createTempFile("dmdb-import-", ".tmp");
+        try {
+            file.transferTo(temp.toFile());
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+
+        ImportTask task = new ImportTask(UUID.randomUUID().toString(), connId, type, file.getOriginalFilename(), Files.size(temp));
+        synchronized (tasks) {
+            tasks.put(task.id, task);
+        }
+        try {
+            executor().execute(() -> run(task, temp, work));
+        } catch (RejectedExecutionException e) {
+            synchronized (tasks) {
+                tasks.remove(task.id);
+            }
+            Files.deleteIfExists(temp);
+            return null;
+        }
+        return task;
+    }
+
+    private void run(ImportTask task, Path temp, ImportWork work) {
+        try {
+            if (task.cancelled) {
+                task.status = QueryJobManager.Status.CANCELLED;
+                return;
+            }
+            task.status = QueryJobManager.Status.RUNNING;
+            task.startedAt = System.currentTimeMillis();
+            DynamicContext.setKey(task.connId);
+            try (InputStream in = new CountingInputStream(Files.newInputStream(temp), task)) {
+                work.run(task, in);
+            }
+            if (task.cancelled) {
+                task.status = QueryJobManager.Status.CANCELLED;
+            } else if (task.status == QueryJobManager.Status.RUNNING) {
+                task.status = QueryJobManager.Status.SUCCESS;
+            }
+        } catch (Exception e) {
+            log.error("Import task {} failed", task.id, e);
+            task.status = task.cancelled ? QueryJobManager.Status.CANCELLED : QueryJobManager.Status.FAILED;
+            if (task.msg == null) task.msg = e.getMessage();
+        } finally {
+            DynamicContext.clear();
+            task.finishedAt = System.currentTimeMillis();
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException e) {
+                log.warn("Delete temp file {} failed: {}", temp, e.getMessage());
+            }
+        }
+    }
+
+    public ImportTask get(String taskId, String connId) {
+        if (taskId == null) return null;
+        ImportTask task;
+        synchronized (tasks) {
+            task = tasks.get(taskId);
+        }
+        if (task == null || !task.connId.equals(connId)) return null;
+        return task;
+    }
+
+    /**
+     * 取消任务：标记后由导入线程在批次之间退出，同时取消正在执行的语句
+     */
+    public boolean cancel(String taskId, String connId) {
+        ImportTask task = get(taskId, connId);
+        if (task == null || task.isFinished()) return false;
+        task.cancelled = true;
+        statementRegistry.cancel(task.id, connId);
+        return true;
+    }
+
+    public List<Map<String, Object>> list(String connId) {
+        List<ImportTask> snapshot;
+        synchronized (tasks) {
+            snapshot = new ArrayList<>(tasks.values());
+        }
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (ImportTask task : snapshot) {
+            if (task.connId.equals(connId)) list.add(task.toStatus());
+        }
+        return list;
+    }
+
+    private synchronized ThreadPoolExecutor executor() {
+        if (executor == null) {
+            AtomicInteger seq = new AtomicInteger();
+            executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queue),
+                    r -> {
+                        Thread t = new Thread(r, "import-task-" + seq.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void cleanup() {
+        long now = System.currentTimeMillis();
+        synchronized (tasks) {
+            tasks.values().removeIf(task -> {
+                if (!task.isFinished() || now - task.finishedAt <= resultTtl) return false;
+                task.deleteErrorFile();
+                return true;
+            });
+        }
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null) executor.shutdownNow();
+        synchronized (tasks) {
+            tasks.values().forEach(ImportTask::deleteErrorFile);
+        }
+    }
+
+    public class ImportTask {
+        private final String id;
+        private final String connId;
+        private final String type;
+        private final String fileName;
+        private final long totalBytes;
+        private final long submittedAt = System.currentTimeMillis();
+        private volatile long startedAt;
+        private volatile long finishedAt;
+        private volatile QueryJobManager.Status status = QueryJobManager.Status.QUEUED;
+        private volatile boolean cancelled;
+        private volatile String msg;
+        // 已读字节只由导入线程写入，其余计数可能由多个写入线程并发累加
+        private volatile long bytesRead;
+        private volatile long statements;
+        private volatile long failed;
+        private volatile long affectedRows;
+        private final List<Map<String, Object>> errors = new ArrayList<>();
+        // 被拒绝数据行的完整记录（CSV 导入），任务过期时删除
+        private volatile Path errorFile;
+
+        ImportTask(String id, String connId, String type, String fileName, long totalBytes) {
+            this.id = id;
+            this.connId = connId;
+            this.type = type;
+            this.fileName = fileName;
+            this.totalBytes = totalBytes;
+        }
+
+        public String getId() { return id; }
+        public String getConnId() { return connId; }
+        public boolean isCancelled() { return cancelled; }
+
+        public boolean isFinished() {
+            return status != QueryJobManager.Status.QUEUED && status != QueryJobManager.Status.RUNNING;
+        }
+
+        public synchronized void addStatements(long count, long rows) {
+            statements += count;
+            affectedRows += rows;
+        }
+
+        /**
+         * 记录一条失败，index 为语句（或数据行）在文件中的序号
+         */
+        public void addError(long index, String sql, String error) {
+            synchronized (errors) {
+                failed++;
+                if (errors.size() >= maxErrors) return;
+                Map<String, Object> e = new HashMap<>();
+                e.put("index", index);
+                e.put("sql", sql != null && sql.length() > 200 ? sql.substring(0, 200) + "..." : sql);
+                e.put("msg", error);
+                errors.add(e);
+            }
+        }
+
+        public long getFailed() { return failed; }
+
+        public Path getErrorFile() { return errorFile; }
+
+        public void setErrorFile(Path errorFile) { this.errorFile = errorFile; }
+
+        void deleteErrorFile() {
+            Path file = errorFile;
+            if (file == null) return;
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Delete error file {} failed: {}", file, e.getMessage());
+            }
+        }
+
+        /**
+         * 以失败结束任务（已提交的部分不回滚）
+         */
+        public void fail(String msg) {
+            this.msg = msg;
+            this.status = QueryJobManager.Status.FAILED;
+        }
+
+        public Map<String, Object> toStatus() {
+            Map<String, Object> m = new HashMap<>();
+            m.put("taskId", id);
+            m.put("type", type);
+            m.put("fileName", fileName);
+            m.put("status", status);
+            m.put("msg", msg);
+            m.put("totalBytes", totalBytes);
+            m.put("bytesRead", bytesRead);
+            m.put("percent", totalBytes > 0 ? Math.min(100, bytesRead * 100 / totalBytes) : 100);
+            m.put("statements", statements);
+            m.put("failed", failed);
+            m.put("affectedRows", affectedRows);
+            m.put("hasErrorFile", errorFile != null);
+            synchronized (errors) {
+                m.put("errors", new ArrayList<>(errors));
+            }
+            m.put("submittedAt", submittedAt);
+            long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+            m.put("elapsed", startedAt > 0 ? end - startedAt : 0);
+            return m;
+        }
+    }
+
+    // 统计已读取字节数，用于进度展示
+    private static class CountingInputStream extends FilterInputStream {
+        private final ImportTask task;
+
+        CountingInputStream(InputStream in, ImportTask task) {
+            super(in);
+            this.task = task;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) task.bytesRead++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) task.bytesRead += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            task.bytesRead += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.dmdb.service;
+
+import com.example.dmdb.config.DynamicContext;
+import com.example.dmdb.config.WorkloadClass;
+import com.example.dmdb.mapper.MetadataMapper;
+import com.example.dmdb.sql.RowDecoder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Clob;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 元数据缓存
+ * 按连接 (Conn-Id) 分区缓存数据浏览/保存/删除热路径上的字典查询（列、主键、外键、子表、视图、视图 DDL），
+ * 每个分区按 LRU 限制条目数，条目超过 TTL 后重新加载；通过本系统执行 DDL 时整个分区失效。
+ * 返回的集合为共享对象，调用方只读不写
+ */
+@Component
+public class MetadataCache {
+
+    private static final Object NULL = new Object();
+
+    @Autowired
+    private MetadataMapper metadataMapper;
+
+    @Autowired
+    private ConnectionManager connectionManager;
+
+    // 缓存条目有效期（毫秒）
+    @Value("${dmdb.metadata-cache.ttl:300000}")
+    private long ttl;
+
+    // 每个连接缓存的条目数上限
+    @Value("${dmdb.metadata-cache.max-entries:500}")
+    private int maxEntries;
+
+    private final Map<String, Region> regions = new ConcurrentHashMap<>();
+
+    private final Map<String, LongAdder[]> kindStats = new ConcurrentHashMap<>();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * 表的列定义，按原名查不到时再按大写查询
+     */
+    public List<Map<String, Object>> getColumns(String schema, String tableName) {
+        return get("columns", schema + "." + tableName, () -> {
+            List<Map<String, Object>> columns = metadataMapper.getColumns(schema, tableName);
+            if ((columns == null || columns.isEmpty()) && tableName != null) {
+                columns = metadataMapper.getColumns(schema, tableName.toUpperCase());
+            }
+            return columns;
+        });
+    }
+
+    public String getPkColumn(String schema, String tableName) {
+        return get("pk", schema + "." + tableName, () -> metadataMapper.getPkColumn(schema, tableName));
+    }
+
+    /**
+     * 主键列（按约束中的顺序），无主键时为空列表
+     */
+    public List<String> getPkColumns(String schema, String tableName) {
+        return get("pkcols", schema + "." + tableName, () -> {
+            List<String> columns = metadataMapper.getPkColumns(schema, tableName);
+            return columns == null ? Collections.<String>emptyList() : Collections.unmodifiableList(columns);
+        });
+    }
+
+    /**
+     * 引用该表的子表及外键列
+     */
+    public List<Map<String, String>> getChildTables(String schema, String tableName) {
+        return get("children", schema + "." + tableName, () -> metadataMapper.getAllChildTables(schema, tableName));
+    }
+
+    public List<Map<String, Object>> getForeignKeys(String schema, String tableName) {
+        return get("fks", schema + "." + tableName, () -> metadataMapper.getForeignKeys(schema, tableName));
+    }
+
+    /**
+     * 模式下的视图名集合，用于判断对象是否为视图
+     */
+    public Set<String> getViewNames(String schema) {
+        return get("views", schema, () -> {
+            Set<String> names = new HashSet<>();
+            List<Map<String, Object>> views = metadataMapper.getViews(schema);
+            if (views != null) {
+                for (Map<String, Object> v : views) {
+                    Object name = v.get("VIEW_NAME");
+                    if (name != null) names.add(name.toString());
+                }
+            }
+            return Collections.unmodifiableSet(names);
+        });
+    }
+
+    /**
+     * 对象 DDL，CLOB 在加载时转为字符串
+     */
+    public String getDDL(String schema, String name, String type) {
+        return get("ddl", schema + "." + name + "." + type, () -> {
+            Object ddl = metadataMapper.getDDL(schema, name, type);
+            if (ddl instanceof Clob) return RowDecoder.clobToString((Clob) ddl);
+            return ddl == null ? null : ddl.toString();
+        });
+    }
+
+    /**
+     * 当前连接执行 DDL 后调用，清空该连接的全部缓存
+     */
+    public void invalidate() {
+        invalidate(DynamicContext.getKey());
+    }
+
+    public void invalidate(String connId) {
+        if (connId == null) return;
+        if (regions.remove(connId) != null) invalidations.increment();
+    }
+
+    public Map<String, Object> stats() {
+        long hits = 0;
+        long misses = 0;
+        Map<String, Object> kinds = new HashMap<>();
+        for (Map.Entry<String, LongAdder[]> e : kindStats.entrySet()) {
+            long h = e.getValue()[0].sum();
+            long m = e.getValue()[1].sum();
+            hits += h;
+            misses += m;
+            Map<String, Object> k = new HashMap<>();
+            k.put("hits", h);
+            k.put("misses", m);
+            k.put("hitRate", h + m == 0 ? 0 : (double) h / (h + m));
+            kinds.put(e.getKey(), k);
+        }
+        int entries = 0;
+        for (Region region : regions.values()) {
+            entries += region.size();
+        }
+        Map<String, Object> res = new HashMap<>();
+        res.put("hits", hits);
+        res.put("misses", misses);
+        res.put("hitRate", hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+        res.put("evictions", evictions.sum());
+        res.put("invalidations", invalidations.sum());
+        res.put("entries", entries);
+        res.put("connections", regions.size());
+        res.put("ttl", ttl);
+        res.put("maxEntries", maxEntries);
+        res.put("kinds", kinds);
+        return res;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(String kind, String key, Supplier<T> loader) {
+        LongAdder[] counters = kindStats.computeIfAbsent(kind, k -> new LongAdder[]{new LongAdder(), new LongAdder()});
+        String connId = DynamicContext.getKey();
+        if (connId == null) {
+            counters[1].increment();
+            return load(loader);
+        }
+
+        String fullKey = kind + ":" + key;
+        Region region = regions.computeIfAbsent(connId, k -> new Region());
+        Object cached = region.lookup(fullKey, System.currentTimeMillis() - ttl);
+        if (cached != null) {
+            counters[0].increment();
+            return cached == NULL ? null : (T) cached;
+        }
+
+        // 在锁外加载，并发的重复加载可以接受
+        counters[1].increment();
+        T value = load(loader);
+        region.store(fullKey, value == null ? NULL : value);
+        return value;
+    }
+
+    // 缓存未命中时的元数据查询使用 METADATA 配额，不占用交互查询的连接
+    private static <T> T load(Supplier<T> loader) {
+        WorkloadClass previous = DynamicContext.getWorkload();
+        DynamicContext.setWorkload(WorkloadClass.METADATA);
+        try {
+            return loader.get();
+        } finally {
+            DynamicContext.setWorkload(previous);
+        }
+    }
+
+    /**
+     * 定时清理过期条目以及已断开连接的分区
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void sweep() {
+        long expireBefore = System.currentTimeMillis() - ttl;
+        for (Map.Entry<String, Region> e : regions.entrySet()) {
+            if (!connectionManager.hasDataSource(e.getKey())) {
+                regions.remove(e.getKey());
+            } else {
+                e.getValue().removeExpired(expireBefore);
+            }
+        }
+    }
+
+    private static class Entry {
+        final Object value;
+        final long loadedAt = System.currentTimeMillis();
+
+        Entry(Object value) {
+            this.value = value;
+        }
+    }
+
+    // 单个连接的缓存分区：访问顺序 LinkedHashMap 实现 LRU
+    private class Region {
+        private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        synchronized Object lookup(String key, long expireBefore) {
+            Entry e = entries.get(key);
+            if (e == null) return null;
+            if (e.loadedAt < expireBefore) {
+                entries.remove(key);
+                return null;
+            }
+            return e.value;
+        }
+
+        synchronized void store(String key, Object value) {
+            entries.put(key, new Entry(value));
+        }
+
+        synchronized void removeExpired(long expireBefore) {
+            entries.values().removeIf(e -> e.loadedAt < expireBefore);
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
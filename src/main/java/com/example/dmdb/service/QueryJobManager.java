@@ -0,0 +1,314 @@
+package com.example.dmdb.service;
+
+import com.example.dmdb.common.Result;
+import com.example.dmdb.config.DynamicContext;
+import com.example.dmdb.config.WorkloadClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * 异步查询任务管理
+ * 提交后立即返回任务ID，SQL 在每个连接 (Conn-Id) 独立的有界线程池中执行，
+ * 结果保存在有容量上限的结果区中，供前端轮询状态并在完成后取回
+ */
+@Component
+public class QueryJobManager {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryJobManager.class);
+
+    public enum Status { QUEUED, RUNNING, SUCCESS, FAILED, CANCELLED }
+
+    // 按提交顺序保存的任务，结束的任务超出容量时从最早的开始淘汰
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+
+    private final Map<String, ThreadPoolExecutor> executors = new ConcurrentHashMap<>();
+
+    @Autowired
+    private StatementRegistry statementRegistry;
+
+    @Autowired
+    private ConnectionManager connectionManager;
+
+    // 每个连接同时执行的任务数
+    @Value("${dmdb.job.threads-per-conn:2}")
+    private int threadsPerConn;
+
+    // 每个连接排队等待的任务数上限
+    @Value("${dmdb.job.queue-per-conn:20}")
+    private int queuePerConn;
+
+    // 保留的已结束任务数上限
+    @Value("${dmdb.job.max-completed:50}")
+    private int maxCompleted;
+
+    // 已结束任务结果的保留时间（毫秒）
+    @Value("${dmdb.job.result-ttl:1800000}")
+    private long resultTtl;
+
+    /**
+     * 提交任务，task 在工作线程中执行，线程上下文已设置为 connId，连接取自 BULK 配额
+     * task 的参数为任务本身：执行语句时应以任务ID作为 requestId 登记，并在登记后及语句之间检查 isCancelRequested
+     */
+    public Job submit(String connId, String type, String sql, Function<Job, Result<Object>> task) {
+        Job job = new Job(UUID.randomUUID().toString(), connId, type, sql);
+        Callable<Result<Object>> wrapped = DynamicContext.wrap(connId, () -> {
+            DynamicContext.setWorkload(WorkloadClass.BULK);
+            return task.apply(job);
+        });
+        synchronized (jobs) {
+            jobs.put(job.id, job);
+        }
+        try {
+            job.future = executorFor(connId).submit(() -> run(job, wrapped));
+        } catch (RejectedExecutionException e) {
+            synchronized (jobs) {
+                jobs.remove(job.id);
+            }
+            return null;
+        }
+        return job;
+    }
+
+    private void run(Job job, Callable<Result<Object>> task) {
+        // 与 cancel 竞争：只有仍在排队的任务才能开始执行
+        if (!job.status.compareAndSet(Status.QUEUED, Status.RUNNING)) return;
+        job.startedAt = System.currentTimeMillis();
+        Status end = Status.FAILED;
+        try {
+            Result<Object> result = task.call();
+            job.result = result;
+            if (result.getCode() == StatementRegistry.CODE_CANCELLED) {
+                end = Status.CANCELLED;
+            } else if (result.getCode() == 200) {
+                end = Status.SUCCESS;
+            } else if (job.cancelRequested) {
+                // 取消时语句可能以普通错误结束
+                end = Status.CANCELLED;
+            }
+        } catch (Exception e) {
+            log.error("Query job {} failed", job.id, e);
+            job.result = Result.error("任务执行异常: " + e.getMessage());
+        } finally {
+            // 先写结束时间再改状态，清理任务看到已结束时结束时间一定有效
+            job.finishedAt = System.currentTimeMillis();
+            job.status.set(end);
+            evictCompleted();
+        }
+    }
+
+    public Job get(String jobId, String connId) {
+        if (jobId == null) return null;
+        Job job;
+        synchronized (jobs) {
+            job = jobs.get(jobId);
+        }
+        if (job == null || !job.connId.equals(connId)) return null;
+        return job;
+    }
+
+    /**
+     * 取消任务：排队中直接取消，执行中则取消正在执行的语句
+     */
+    public boolean cancel(String jobId, String connId) {
+        Job job = get(jobId, connId);
+        if (job == null) return false;
+        if (job.cancelQueued(null)) {
+            if (job.future != null) job.future.cancel(false);
+            return true;
+        }
+        if (job.status.get() == Status.RUNNING) {
+            // 先置标记：语句尚未登记（如正在等待连接）时由任务自行检查，已登记的语句直接取消
+            job.cancelRequested = true;
+            statementRegistry.cancel(job.id, connId);
+            return true;
+        }
+        return false;
+    }
+
+    public boolean remove(String jobId, String connId) {
+        Job job = get(jobId, connId);
+        if (job == null) return false;
+        cancel(jobId, connId);
+        synchronized (jobs) {
+            jobs.remove(jobId);
+        }
+        return true;
+    }
+
+    public List<Map<String, Object>> list(String connId) {
+        List<Job> snapshot;
+        synchronized (jobs) {
+            snapshot = new ArrayList<>(jobs.values());
+        }
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (Job job : snapshot) {
+            if (job.connId.equals(connId)) list.add(job.toStatus());
+        }
+        return list;
+    }
+
+    private ThreadPoolExecutor executorFor(String connId) {
+        return executors.computeIfAbsent(connId, k -> {
+            AtomicInteger seq = new AtomicInteger();
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(threadsPerConn, threadsPerConn, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queuePerConn),
+                    r -> {
+                        Thread t = new Thread(r, "query-job-" + seq.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        });
+    }
+
+    /**
+     * 已结束任务超出容量时淘汰最早结束的结果
+     */
+    private void evictCompleted() {
+        synchronized (jobs) {
+            int finished = 0;
+            for (Job job : jobs.values()) {
+                if (job.isFinished()) finished++;
+            }
+            Iterator<Job> it = jobs.values().iterator();
+            while (finished > maxCompleted && it.hasNext()) {
+                if (it.next().isFinished()) {
+                    it.remove();
+                    finished--;
+                }
+            }
+        }
+    }
+
+    /**
+     * 定时清理过期结果，以及已断开连接的线程池
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void cleanup() {
+        long now = System.currentTimeMillis();
+        synchronized (jobs) {
+            jobs.values().removeIf(job -> job.isFinished() && job.finishedAt > 0 && now - job.finishedAt > resultTtl);
+        }
+        for (Map.Entry<String, ThreadPoolExecutor> entry : executors.entrySet()) {
+            if (!connectionManager.hasDataSource(entry.getKey()) && entry.getValue().getActiveCount() == 0) {
+                executors.remove(entry.getKey());
+                entry.getValue().shutdownNow();
+                cancelQueued(entry.getKey());
+            }
+        }
+    }
+
+    // 线程池已关闭，仍在排队的任务不会再执行，标记为已取消以便按结果保留时间淘汰
+    private void cancelQueued(String connId) {
+        List<Job> snapshot;
+        synchronized (jobs) {
+            snapshot = new ArrayList<>(jobs.values());
+        }
+        for (Job job : snapshot) {
+            if (job.connId.equals(connId)) job.cancelQueued(Result.error("连接已断开，任务未执行"));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ThreadPoolExecutor executor : executors.values()) {
+            executor.shutdownNow();
+        }
+    }
+
+    public class Job {
+        private final String id;
+        private final String connId;
+        private final String type;
+        private final String sql;
+        private final long submittedAt = System.currentTimeMillis();
+        private volatile long startedAt;
+        private volatile long finishedAt;
+        private final AtomicReference<Status> status = new AtomicReference<>(Status.QUEUED);
+        private volatile Result<Object> result;
+        private volatile boolean cancelRequested;
+        private Future<?> future;
+
+        Job(String id, String connId, String type, String sql) {
+            this.id = id;
+            this.connId = connId;
+            this.type = type;
+            this.sql = sql;
+        }
+
+        public String getId() { return id; }
+        public Status getStatus() { return status.get(); }
+        public Result<Object> getResult() { return result; }
+        public boolean isCancelRequested() { return cancelRequested; }
+
+        public boolean isFinished() {
+            Status s = status.get();
+            return s != Status.QUEUED && s != Status.RUNNING;
+        }
+
+        // 排队中的任务改为已取消，已开始执行时返回 false
+        boolean cancelQueued(Result<Object> reason) {
+            if (!status.compareAndSet(Status.QUEUED, Status.CANCELLED)) return false;
+            result = reason;
+            finishedAt = System.currentTimeMillis();
+            return true;
+        }
+
+        public Map<String, Object> toStatus() {
+            Map<String, Object> m = new HashMap<>();
+            m.put("jobId", id);
+            m.put("type", type);
+            m.put("sql", sql);
+            Status status = this.status.get();
+            m.put("status", status);
+            m.put("submittedAt", submittedAt);
+            long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+            m.put("elapsed", startedAt > 0 ? end - startedAt : 0);
+            m.put("fetchedRows", status == Status.RUNNING ? statementRegistry.fetchedRows(id) : fetchedRowsOf(result));
+            return m;
+        }
+    }
+
+    // 已结束任务的行数取自结果本身
+    private static long fetchedRowsOf(Result<Object> result) {
+        if (result == null) return 0;
+        Object data = result.getData();
+        if (data instanceof List) return ((List<?>) data).size();
+        if (!(data instanceof Map)) return 0;
+        Map<?, ?> map = (Map<?, ?>) data;
+        if (map.get("rows") instanceof List) return ((List<?>) map.get("rows")).size();
+        // 脚本任务：累加每条查询语句的行数
+        long total = 0;
+        if (map.get("results") instanceof List) {
+            for (Object item : (List<?>) map.get("results")) {
+                Object rows = item instanceof Map ? ((Map<?, ?>) item).get("rows") : null;
+                if (rows instanceof Number) total += ((Number) rows).longValue();
+            }
+        }
+        return total;
+    }
+}
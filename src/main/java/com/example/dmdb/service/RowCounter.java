@@ -0,0 +1,181 @@
+package com.example.dmdb.service;
+
+import com.example.dmdb.config.DynamicContext;
+import com.example.dmdb.config.WorkloadClass;
+import com.example.dmdb.mapper.MetadataMapper;
+import com.example.dmdb.mapper.TableDataMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 表行数统计
+ * exact：每次 COUNT(1)；
+ * estimated：读取 ALL_TABLES.NUM_ROWS 统计信息（未收集统计信息或对象为视图时退回精确统计）；
+ * auto：有未过期的精确值时直接返回，否则先返回统计信息估算值，同时在后台计算精确值并按表缓存；
+ * 后台统计取 BULK 配额的连接并受 dmdb.count.timeout 限制，不占用交互查询的连接。
+ * 结果 {total, totalExact, countMode[, lastAnalyzed]}
+ */
+@Component
+public class RowCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(RowCounter.class);
+
+    public static final String EXACT = "exact";
+    public static final String ESTIMATED = "estimated";
+    public static final String AUTO = "auto";
+
+    @Autowired
+    private TableDataMapper tableDataMapper;
+
+    @Autowired
+    private MetadataMapper metadataMapper;
+
+    @Autowired
+    private ConnectionManager connectionManager;
+
+    // 默认统计方式，可被请求参数 countMode 覆盖
+    @Value("${dmdb.count.mode:exact}")
+    private String defaultMode;
+
+    // auto 模式下精确行数的缓存时间（毫秒）
+    @Value("${dmdb.count.ttl:60000}")
+    private long ttl;
+
+    // 后台精确统计的线程数
+    @Value("${dmdb.count.threads:2}")
+    private int threads;
+
+    // 后台精确统计的超时时间（毫秒）
+    @Value("${dmdb.count.timeout:60000}")
+    private long countTimeout;
+
+    private final Map<String, Long[]> exactCounts = new ConcurrentHashMap<>();
+    // 正在后台统计的表，避免重复提交
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    private ThreadPoolExecutor executor;
+
+    public Map<String, Object> count(String schema, String tableName, String mode) {
+        mode = normalize(mode);
+        Map<String, Object> res = new HashMap<>();
+        res.put("countMode", mode);
+        if (EXACT.equals(mode)) {
+            return exact(res, schema, tableName);
+        }
+
+        String connId = DynamicContext.getKey();
+        String key = connId + "|" + schema + "." + tableName;
+        if (AUTO.equals(mode)) {
+            Long[] cached = exactCounts.get(key);
+            if (cached != null && System.currentTimeMillis() - cached[1] <= ttl) {
+                res.put("total", cached[0]);
+                res.put("totalExact", true);
+                return res;
+            }
+        }
+
+        Map<String, Object> stats = metadataMapper.getTableStats(schema, tableName);
+        Object numRows = stats == null ? null : stats.get("NUM_ROWS");
+        if (!(numRows instanceof Number)) {
+            Map<String, Object> exact = exact(res, schema, tableName);
+            if (AUTO.equals(mode)) exactCounts.put(key, new Long[]{(Long) exact.get("total"), System.currentTimeMillis()});
+            return exact;
+        }
+        res.put("total", ((Number) numRows).longValue());
+        res.put("totalExact", false);
+        res.put("lastAnalyzed", stats.get("LAST_ANALYZED"));
+        if (AUTO.equals(mode) && connId != null) {
+            refreshInBackground(connId, key, schema, tableName);
+        }
+        return res;
+    }
+
+    /**
+     * 表数据被修改后丢弃缓存的精确行数
+     */
+    public void invalidate(String schema, String tableName) {
+        exactCounts.remove(DynamicContext.getKey() + "|" + schema + "." + tableName);
+    }
+
+    public String normalize(String mode) {
+        if (mode == null || mode.isEmpty()) mode = defaultMode;
+        mode = mode.toLowerCase();
+        return ESTIMATED.equals(mode) || AUTO.equals(mode) ? mode : EXACT;
+    }
+
+    private Map<String, Object> exact(Map<String, Object> res, String schema, String tableName) {
+        res.put("total", tableDataMapper.countData(schema, tableName));
+        res.put("totalExact", true);
+        return res;
+    }
+
+    private void refreshInBackground(String connId, String key, String schema, String tableName) {
+        if (!pending.add(key)) return;
+        // 在请求线程中包装上下文，全表扫描取 BULK 配额的连接
+        Callable<Long> task = DynamicContext.wrap(connId, () -> {
+            DynamicContext.setWorkload(WorkloadClass.BULK);
+            return FanOutExecutor.call(() -> tableDataMapper.countData(schema, tableName), System.currentTimeMillis() + countTimeout);
+        });
+        try {
+            executor().execute(() -> {
+                try {
+                    long total = task.call();
+                    exactCounts.put(key, new Long[]{total, System.currentTimeMillis()});
+                } catch (Exception e) {
+                    log.warn("Background count failed for {}.{}: {}", schema, tableName, e.getMessage());
+                } finally {
+                    pending.remove(key);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 后台统计已排满，本次只返回估算值
+            pending.remove(key);
+        }
+    }
+
+    private synchronized ThreadPoolExecutor executor() {
+        if (executor == null) {
+            AtomicInteger seq = new AtomicInteger();
+            executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(100),
+                    r -> {
+                        Thread t = new Thread(r, "row-count-" + seq.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    /**
+     * 清理过期的精确行数以及已断开连接的缓存
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void sweep() {
+        long now = System.currentTimeMillis();
+        exactCounts.entrySet().removeIf(e -> now - e.getValue()[1] > ttl
+                || !connectionManager.hasDataSource(e.getKey().substring(0, e.getKey().indexOf('|'))));
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (executor != null) executor.shutdownNow();
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.dmdb.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 正在执行的语句登记表
+ * 每次执行按请求ID登记 Statement，支持通过 Statement.cancel() 中止，并统一处理查询超时
+ */
+@Component
+public class StatementRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(StatementRegistry.class);
+
+    // 语句被用户取消
+    public static final int CODE_CANCELLED = 499;
+    // 语句执行超时
+    public static final int CODE_TIMEOUT = 408;
+
+    private static final String SUB_SEPARATOR = "#";
+
+    private final Map<String, Running> running = new ConcurrentHashMap<>();
+
+    // 默认查询超时（秒），0 表示不限制；单次请求可通过 timeout 参数覆盖
+    @Value("${dmdb.sql.query-timeout:0}")
+    private int defaultTimeout;
+
+    /**
+     * 登记语句并设置超时。requestId 为空时自动生成；同ID已在执行时拒绝登记
+     */
+    public Running register(String requestId, String connId, Statement stmt, Integer timeout) throws SQLException {
+        int seconds = timeout != null ? timeout : defaultTimeout;
+        if (seconds > 0) stmt.setQueryTimeout(seconds);
+
+        String id = (requestId == null || requestId.isEmpty()) ? UUID.randomUUID().toString() : requestId;
+        Running r = new Running(id, connId, stmt, seconds);
+        if (running.putIfAbsent(id, r) != null) {
+            throw new SQLException("请求ID [" + id + "] 正在执行中");
+        }
+        return r;
+    }
+
+    /**
+     * 查询执行中语句已读取的行数（用于异步任务进度）
+     */
+    public long fetchedRows(String requestId) {
+        Running r = requestId == null ? null : running.get(requestId);
+        return r == null ? 0 : r.getFetchedRows();
+    }
+
+    public void unregister(Running r) {
+        if (r != null) running.remove(r.getRequestId(), r);
+    }
+
+    /**
+     * 取消指定请求的语句，只允许取消当前连接下的语句
+     * 同时取消以 requestId# 开头登记的子语句（一个任务在多个连接上并行执行时按此登记）
+     */
+    public boolean cancel(String requestId, String connId) {
+        if (requestId == null) return false;
+        boolean found = cancel(running.get(requestId), connId);
+        String prefix = requestId + SUB_SEPARATOR;
+        for (Running r : running.values()) {
+            if (r.getRequestId().startsWith(prefix)) found |= cancel(r, connId);
+        }
+        return found;
+    }
+
+    /**
+     * 子语句的请求ID，如并行导入中每个写入线程的语句
+     */
+    public static String subId(String requestId, int seq) {
+        return requestId + SUB_SEPARATOR + seq;
+    }
+
+    private boolean cancel(Running r, String connId) {
+        if (r == null || !r.getConnId().equals(connId)) return false;
+        r.cancelledAt = System.currentTimeMillis();
+        r.cancelled = true;
+        try {
+            r.stmt.cancel();
+        } catch (SQLException e) {
+            log.warn("Cancel statement {} failed: {}", r.getRequestId(), e.getMessage());
+        }
+        return true;
+    }
+
+    /**
+     * 列出当前连接下正在执行的语句
+     */
+    public List<Map<String, Object>> list(String connId) {
+        List<Map<String, Object>> list = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Running r : running.values()) {
+            if (!r.getConnId().equals(connId)) continue;
+            Map<String, Object> item = new HashMap<>();
+            item.put("requestId", r.getRequestId());
+            item.put("elapsed", now - r.getStartTs());
+            item.put("timeout", r.getTimeout());
+            item.put("cancelled", r.isCancelled());
+            item.put("fetchedRows", r.getFetchedRows());
+            list.add(item);
+        }
+        return list;
+    }
+
+    /**
+     * 判断异常是否由取消或超时引起，是则返回对应状态码，否则返回 0
+     * 只有取消发生在当前语句开始之后才视为被取消，更早的取消由调用方在语句之间检查
+     */
+    public int interruptCode(Running r, SQLException e) {
+        if (r == null) return 0;
+        if (r.isCancelled() && r.cancelledAt >= r.getStartTs()) return CODE_CANCELLED;
+        if (e instanceof SQLTimeoutException) return CODE_TIMEOUT;
+        // 部分驱动超时抛出普通 SQLException，按已耗时判断
+        if (r.getTimeout() > 0 && System.currentTimeMillis() - r.getStartTs() >= r.getTimeout() * 1000L) {
+            return CODE_TIMEOUT;
+        }
+        return 0;
+    }
+
+    public static class Running {
+        private final String requestId;
+        private final String connId;
+        private final Statement stmt;
+        private final int timeout;
+        private volatile long startTs = System.currentTimeMillis();
+        private volatile boolean cancelled;
+        private volatile long cancelledAt;
+        // 只由执行线程写入
+        private volatile long fetchedRows;
+
+        Running(String requestId, String connId, Statement stmt, int timeout) {
+            this.requestId = requestId;
+            this.connId = connId;
+            this.stmt = stmt;
+            this.timeout = timeout;
+        }
+
+        public String getRequestId() { return requestId; }
+        public String getConnId() { return connId; }
+        public int getTimeout() { return timeout; }
+        public long getStartTs() { return startTs; }
+        public boolean isCancelled() { return cancelled; }
+        public long getFetchedRows() { return fetchedRows; }
+        public void addFetchedRows(int rows) { fetchedRows += rows; }
+
+        // 脚本模式下每条语句开始时重置计时，超时与取消判断按单条语句计算
+        public void restart() { startTs = System.currentTimeMillis(); }
+    }
+}
@@ -4,16 +4,22 @@ import com.example.dmdb.common.Result;
 import com.example.dmdb.mapper.MetadataMapper;
 import com.example.dmdb.mapper.SqlMapper;
 import com.example.dmdb.mapper.TableDataMapper;
+import com.example.dmdb.service.MetadataCache;
+import com.example.dmdb.sql.FilterSpec;
+import com.example.dmdb.sql.RowDecoder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.math.BigDecimal;
 import java.sql.Clob;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 public abstract class AbstractDbService {
@@ -30,8 +36,15 @@ public abstract class AbstractDbService {
     @Autowired
     protected SqlMapper sqlMapper;
 
+    @Autowired
+    protected MetadataCache metadataCache;
+
     private static final Pattern SAFE_IDENTIFIER = Pattern.compile("^[a-zA-Z0-9_$#\\u4e00-\\u9fa5\\.\\s]+$");
     private static final Pattern SIMPLE_UPPER_IDENTIFIER = Pattern.compile("^[A-Z0-9_$]+$");
+    private static final Pattern ROWID_PATTERN = Pattern.compile("^[a-zA-Z0-9+/=]+$");
+
+    // 冲突分析时 IN 列表的最大长度
+    protected static final int IN_LIST_CHUNK = 500;
 
     // ================== 通用辅助方法 ==================
 
@@ -75,30 +88,51 @@ public abstract class AbstractDbService {
     protected String clobToString(Object obj) {
         if (obj == null) return null;
         if (obj instanceof String) return (String) obj;
-        if (obj instanceof Clob) {
-            try {
-                Clob clob = (Clob) obj;
-                long len = clob.length();
-                if (len == 0) return "";
-                return clob.getSubString(1, (int) len);
-            } catch (SQLException e) {
-                e.printStackTrace();
-                return "";
-            }
-        }
+        if (obj instanceof Clob) return RowDecoder.clobToString((Clob) obj);
         return obj.toString();
     }
 
     protected List<Map<String, Object>> processResultList(List<Map<String, Object>> list) {
         if (list == null) return new ArrayList<>();
-        for (Map<String, Object> row : list) {
-            for (Map.Entry<String, Object> entry : row.entrySet()) {
-                Object val = entry.getValue();
-                if (val instanceof Clob) entry.setValue(clobToString(val));
-                if (val instanceof java.sql.RowId) entry.setValue(val.toString());
+        return RowDecoder.convertRows(list, RowDecoder.LobMode.TEXT, null);
+    }
+
+    /**
+     * 表数据转为列式结构 {"columns": [...], "rows": [[...]]}，列名只输出一次
+     * 列取自表的列定义（DB_INTERNAL_ID 在前），值为 NULL 的列不会因 MyBatis 结果中缺少该键而丢失
+     */
+    protected Map<String, Object> toColumnar(List<Map<String, Object>> list, String schema, String tableName) {
+        return toColumnar(list, metadataCache.getColumns(schema, tableName));
+    }
+
+    protected Map<String, Object> toColumnar(List<Map<String, Object>> list, List<Map<String, Object>> columnDefs) {
+        List<String> names = new ArrayList<>();
+        names.add("DB_INTERNAL_ID");
+        if (columnDefs != null) {
+            for (Map<String, Object> col : columnDefs) {
+                Object name = col.get("COLUMN_NAME");
+                if (name != null) names.add(name.toString());
             }
         }
-        return list;
+        return RowDecoder.toColumnar(list, names);
+    }
+
+    // 以表的列定义作为字段白名单并提供类型
+    protected FilterSpec buildFilter(String schema, String tableName, List<Map<String, Object>> conditions, String logic, List<Map<String, Object>> orderBy) {
+        Map<String, String> columnTypes = new LinkedHashMap<>();
+        List<Map<String, Object>> columns = metadataCache.getColumns(schema, tableName);
+        if (columns != null) {
+            for (Map<String, Object> col : columns) {
+                Object type = col.get("DATA_TYPE");
+                columnTypes.put((String) col.get("COLUMN_NAME"), type == null ? null : type.toString());
+            }
+        }
+        return FilterSpec.of(conditions, logic, orderBy, columnTypes);
+    }
+
+    protected boolean isValidRowId(String rowId) {
+        if (rowId == null || rowId.isEmpty()) return false;
+        return ROWID_PATTERN.matcher(rowId).matches();
     }
 
     protected boolean isPk(Object val) {
@@ -109,22 +143,13 @@ public abstract class AbstractDbService {
 
     protected boolean isViewObject(String schema, String name) {
         try {
-            // 使用 MetadataMapper
-            List<Map<String, Object>> views = metadataMapper.getViews(schema);
-            if (views == null) return false;
-            for (Map<String, Object> v : views) {
-                Object vName = v.get("VIEW_NAME");
-                if (vName != null && name.equals(vName.toString())) return true;
-            }
-            return false;
+            return metadataCache.getViewNames(schema).contains(name);
         } catch (Exception e) { return false; }
     }
 
     protected boolean analyzeViewComplexity(String schema, String viewName) {
         try {
-            // 使用 MetadataMapper
-            Object ddlObj = metadataMapper.getDDL(schema, viewName, "VIEW");
-            String ddl = clobToString(ddlObj);
+            String ddl = metadataCache.getDDL(schema, viewName, "VIEW");
             if (ddl == null || ddl.trim().isEmpty()) return false;
 
             String sql = ddl.toUpperCase();
@@ -165,8 +190,8 @@ public abstract class AbstractDbService {
         try {
             // A. 删除/修改主键冲突：检查子表引用
             if (pkValue != null) {
-                // 使用 MetadataMapper 获取子表关系
-                List<Map<String, String>> childTables = metadataMapper.getAllChildTables(schema, tableName);
+                // 获取子表关系（元数据缓存）
+                List<Map<String, String>> childTables = metadataCache.getChildTables(schema, tableName);
 
                 if (childTables != null) {
                     for (Map<String, String> child : childTables) {
@@ -189,8 +214,8 @@ public abstract class AbstractDbService {
 
             // B. 插入/更新外键冲突：检查父表是否存在
             if (conflicts.isEmpty() && rowData != null) {
-                // 使用 MetadataMapper 获取外键定义
-                List<Map<String, Object>> fks = processResultList(metadataMapper.getForeignKeys(schema, tableName));
+                // 获取外键定义（元数据缓存）
+                List<Map<String, Object>> fks = metadataCache.getForeignKeys(schema, tableName);
 
                 if (fks != null) {
                     for (Map<String, Object> fk : fks) {
@@ -230,4 +255,154 @@ public abstract class AbstractDbService {
 
         return Result.error("完整性约束校验失败: " + msg);
     }
-}
\ No newline at end of file
+
+    /**
+     * 批量操作失败后的冲突分析（集合方式）
+     * 1. 一次 ROWID IN 查询取回所有行的原主键值；
+     * 2. 每个子表关系一条 GROUP BY 计数查询，统计引用这些主键值的记录数；
+     * 3. checkParents 时每个外键一条查询，找出父表中不存在的外键值（已存在子表引用冲突的行不再检查）。
+     * IN 列表按 {@link #IN_LIST_CHUNK} 分段，查询次数只与关系数和行数/分段大小有关。
+     * 返回聚合后的冲突列表 [{TABLE_NAME, COLUMN_NAME, CNT, MY_VAL_LIST}]，无冲突时返回空列表
+     */
+    protected List<Map<String, Object>> analyzeBatchConflicts(String schema, String tableName, List<Map<String, Object>> rows, boolean checkParents) {
+        List<Map<String, Object>> conflicts = new ArrayList<>();
+        if (rows == null || rows.isEmpty()) return conflicts;
+        Set<String> conflictingKeys = new HashSet<>();
+        List<Object> pkValues = new ArrayList<>();
+
+        try {
+            String pkCol = metadataCache.getPkColumn(schema, tableName);
+            if (pkCol != null) {
+                pkValues = resolvePkValues(schema, tableName, pkCol, rows);
+            }
+
+            // A. 子表引用
+            List<Map<String, String>> childTables = metadataCache.getChildTables(schema, tableName);
+            if (!pkValues.isEmpty() && childTables != null) {
+                List<Object> distinct = distinctValues(pkValues);
+                for (Map<String, String> child : childTables) {
+                    String cTable = child.get("TABLE_NAME");
+                    String cCol = child.get("COLUMN_NAME");
+                    int total = 0;
+                    List<Object> valList = new ArrayList<>();
+                    for (Map<String, Object> r : countGrouped(schema, cTable, cCol, distinct)) {
+                        int cnt = ((Number) r.get("CNT")).intValue();
+                        if (cnt <= 0) continue;
+                        total += cnt;
+                        valList.add(r.get("REF_VAL"));
+                        conflictingKeys.add(valueKey(r.get("REF_VAL")));
+                    }
+                    if (total > 0) {
+                        Map<String, Object> c = new HashMap<>();
+                        c.put("TABLE_NAME", cTable);
+                        c.put("COLUMN_NAME", cCol);
+                        c.put("CNT", total);
+                        c.put("MY_VAL_LIST", valList);
+                        conflicts.add(c);
+                    }
+                }
+            }
+
+            // B. 外键父表缺失
+            if (checkParents) {
+                List<Map<String, Object>> fks = metadataCache.getForeignKeys(schema, tableName);
+                if (fks != null) {
+                    for (Map<String, Object> fk : fks) {
+                        String myCol = (String) fk.get("COLUMN_NAME");
+                        String pTable = (String) fk.get("R_TABLE_NAME");
+                        String pCol = (String) fk.get("R_COLUMN_NAME");
+                        if (myCol == null) continue;
+
+                        List<Object> values = new ArrayList<>();
+                        for (int i = 0; i < rows.size(); i++) {
+                            Map<String, Object> row = rows.get(i);
+                            if (row == null || !row.containsKey(myCol)) continue;
+                            Object pk = i < pkValues.size() ? pkValues.get(i) : null;
+                            if (pk != null && conflictingKeys.contains(valueKey(pk))) continue;
+                            Object val = row.get(myCol);
+                            if (val != null && !val.toString().isEmpty()) values.add(val);
+                        }
+                        if (values.isEmpty()) continue;
+
+                        List<Object> distinct = distinctValues(values);
+                        Set<String> existing = new HashSet<>();
+                        for (Map<String, Object> r : countGrouped(schema, pTable, pCol, distinct)) {
+                            existing.add(valueKey(r.get("REF_VAL")));
+                        }
+                        List<Object> missing = new ArrayList<>();
+                        for (Object val : distinct) {
+                            if (!existing.contains(valueKey(val))) missing.add(val);
+                        }
+                        if (!missing.isEmpty()) {
+                            Map<String, Object> c = new HashMap<>();
+                            c.put("TABLE_NAME", pTable);
+                            c.put("COLUMN_NAME", pCol);
+                            c.put("CNT", "MISSING");
+                            c.put("MY_VAL_LIST", missing);
+                            conflicts.add(c);
+                        }
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            log.error("Batch conflict analysis failed", ex);
+        }
+        return conflicts;
+    }
+
+    /**
+     * 与 rows 一一对应的主键值：带 DB_INTERNAL_ID 的行按 ROWID 分段批量查询原值，其余取行数据中的主键列
+     */
+    private List<Object> resolvePkValues(String schema, String tableName, String pkCol, List<Map<String, Object>> rows) {
+        List<String> rowIds = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            Object id = row == null ? null : row.get("DB_INTERNAL_ID");
+            if (id != null && isValidRowId(id.toString())) rowIds.add(id.toString());
+        }
+        Map<String, Object> byRowId = new HashMap<>();
+        for (int i = 0; i < rowIds.size(); i += IN_LIST_CHUNK) {
+            List<String> chunk = rowIds.subList(i, Math.min(i + IN_LIST_CHUNK, rowIds.size()));
+            for (Map<String, Object> r : tableDataMapper.getPkValuesByRowIds(schema, tableName, pkCol, chunk)) {
+                byRowId.put(String.valueOf(r.get("DB_INTERNAL_ID")), r.get("PK_VAL"));
+            }
+        }
+        List<Object> values = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            Object val = null;
+            if (row != null) {
+                Object id = row.get("DB_INTERNAL_ID");
+                val = id != null ? byRowId.get(id.toString()) : row.get(pkCol);
+            }
+            values.add(val);
+        }
+        return values;
+    }
+
+    private List<Map<String, Object>> countGrouped(String schema, String tableName, String column, List<Object> values) {
+        List<Map<String, Object>> res = new ArrayList<>();
+        for (int i = 0; i < values.size(); i += IN_LIST_CHUNK) {
+            res.addAll(tableDataMapper.countReferenceGrouped(schema, tableName, column, values.subList(i, Math.min(i + IN_LIST_CHUNK, values.size()))));
+        }
+        return res;
+    }
+
+    private static List<Object> distinctValues(List<Object> values) {
+        Map<String, Object> distinct = new LinkedHashMap<>();
+        for (Object v : values) {
+            if (v != null) distinct.putIfAbsent(valueKey(v), v);
+        }
+        return new ArrayList<>(distinct.values());
+    }
+
+    // 数据库返回的数值类型与前端传入的字符串统一比较
+    private static String valueKey(Object val) {
+        if (val instanceof Number) {
+            try {
+                return new BigDecimal(val.toString()).stripTrailingZeros().toPlainString();
+            } catch (NumberFormatException e) {
+                return val.toString();
+            }
+        }
+        return String.valueOf(val);
+    }
+}
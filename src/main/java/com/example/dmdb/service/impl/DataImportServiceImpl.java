@@ -0,0 +1,477 @@
+package com.example.dmdb.service.impl;
+
+import com.example.dmdb.common.Result;
+import com.example.dmdb.config.DynamicContext;
+import com.example.dmdb.config.WorkloadClass;
+import com.example.dmdb.service.ConnectionManager;
+import com.example.dmdb.service.ImportTaskManager;
+import com.example.dmdb.service.RowCounter;
+import com.example.dmdb.service.StatementRegistry;
+import com.example.dmdb.service.base.AbstractDbService;
+import com.example.dmdb.sql.CsvReader;
+import com.example.dmdb.sql.CsvTableMapping;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * CSV 数据导入
+ * 上传文件由 ImportTaskManager 落盘后在后台执行：导入线程流式解析 CSV 并按表头映射、转换类型，
+ * 按 batchSize 行打包交给多个写入线程；每个写入线程各自从 Conn-Id 的连接池取连接，以 PreparedStatement 批量插入并逐批提交。
+ * 批次失败时回滚并逐行重放，被拒绝的行连同行号与原因写入错误文件，可在任务结束后下载。进度通过 /execute/import/{id} 查询
+ */
+@Service
+public class DataImportServiceImpl extends AbstractDbService {
+
+    private static final int MAX_BATCH = 5000;
+    // 写入线程收到该批次后退出
+    private static final Chunk END = new Chunk(0);
+
+    @Autowired
+    private ImportTaskManager importTaskManager;
+
+    @Autowired
+    private RowCounter rowCounter;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ConnectionManager connectionManager;
+
+    @Autowired
+    private StatementRegistry statementRegistry;
+
+    // 单个导入任务默认的写入线程数
+    @Value("${dmdb.import.csv.writers:4}")
+    private int defaultWriters;
+
+    // 所有导入任务共用的写入线程上限（每个写入线程占用一个数据库连接）
+    @Value("${dmdb.import.csv.max-writers:8}")
+    private int maxWriters;
+
+    private ThreadPoolExecutor writerPool;
+
+    /**
+     * 提交 CSV 导入任务
+     * @param mapping 可选的 JSON {表头: 列名}，映射为空串的表头被忽略
+     */
+    public Result<Object> importCsv(String schema, String tableName, MultipartFile file, String charset, String delimiter,
+                                    String mapping, int batchSize, int writers, boolean continueOnError) {
+        String connId = DynamicContext.getKey();
+        if (connId == null) return Result.error("未获取到连接ID (Conn-Id)");
+        if (file == null || file.isEmpty()) return Result.error("上传文件为空");
+        validateIdentifiers(schema, tableName);
+
+        Charset cs;
+        try {
+            cs = Charset.forName(charset);
+        } catch (Exception e) {
+            return Result.error("不支持的字符集: " + charset);
+        }
+        char delim;
+        if (delimiter == null || delimiter.isEmpty()) {
+            delim = ',';
+        } else if ("\\t".equals(delimiter) || "tab".equalsIgnoreCase(delimiter)) {
+            delim = '\t';
+        } else if (delimiter.length() == 1 && delimiter.charAt(0) != '"') {
+            delim = delimiter.charAt(0);
+        } else {
+            return Result.error("不支持的分隔符: " + delimiter);
+        }
+        Map<String, String> columnMapping = null;
+        if (mapping != null && !mapping.trim().isEmpty()) {
+            try {
+                columnMapping = objectMapper.readValue(mapping, new TypeReference<LinkedHashMap<String, String>>() {});
+            } catch (IOException e) {
+                return Result.error("列映射格式错误: " + e.getMessage());
+            }
+        }
+
+        Map<String, String> columnTypes = new LinkedHashMap<>();
+        List<Map<String, Object>> columns = metadataCache.getColumns(schema, tableName);
+        if (columns != null) {
+            for (Map<String, Object> col : columns) {
+                Object type = col.get("DATA_TYPE");
+                columnTypes.put((String) col.get("COLUMN_NAME"), type == null ? null : type.toString());
+            }
+        }
+        if (columnTypes.isEmpty()) return Result.error("表不存在或没有可导入的列: " + schema + "." + tableName);
+
+        // 写入连接取自 BULK 配额，并行数不超过该配额
+        int parallel = Math.min(writers > 0 ? writers : defaultWriters, maxWriters);
+        parallel = Math.min(parallel, connectionManager.getLaneSize(connId, WorkloadClass.BULK));
+        CsvImport job = new CsvImport(schema, tableName, cs, delim, columnTypes, columnMapping,
+                Math.max(1, Math.min(batchSize, MAX_BATCH)), Math.max(1, parallel), continueOnError);
+        try {
+            ImportTaskManager.ImportTask task = importTaskManager.submit(connId, "CSV", file, job::run);
+            if (task == null) return Result.error("导入任务队列已满，请稍后再试");
+            return Result.success(task.toStatus());
+        } catch (IOException e) {
+            return Result.error("保存上传文件失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 已结束任务的错误文件，任务不存在、未结束或没有被拒绝的行时返回 null
+     */
+    public Path getErrorFile(String taskId) {
+        ImportTaskManager.ImportTask task = importTaskManager.get(taskId, DynamicContext.getKey());
+        if (task == null || !task.isFinished()) return null;
+        Path file = task.getErrorFile();
+        return file != null && Files.exists(file) ? file : null;
+    }
+
+    private synchronized ThreadPoolExecutor writerPool() {
+        if (writerPool == null) {
+            AtomicInteger seq = new AtomicInteger();
+            writerPool = new ThreadPoolExecutor(maxWriters, maxWriters, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(maxWriters * 2),
+                    r -> {
+                        Thread t = new Thread(r, "csv-writer-" + seq.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            writerPool.allowCoreThreadTimeOut(true);
+        }
+        return writerPool;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (writerPool != null) writerPool.shutdownNow();
+    }
+
+    // 一批待写入的数据行，保留原始记录用于错误文件
+    private static final class Chunk {
+        final long[] lines;
+        final List<List<String>> records;
+        final List<Object[]> values;
+
+        Chunk(int capacity) {
+            lines = new long[capacity];
+            records = new ArrayList<>(capacity);
+            values = new ArrayList<>(capacity);
+        }
+
+        void add(long line, List<String> record, Object[] row) {
+            lines[values.size()] = line;
+            records.add(record);
+            values.add(row);
+        }
+
+        int size() { return values.size(); }
+    }
+
+    /**
+     * 单个导入任务的执行过程
+     */
+    private final class CsvImport {
+        private final String schema;
+        private final String tableName;
+        private final Charset charset;
+        private final char delimiter;
+        private final Map<String, String> columnTypes;
+        private final Map<String, String> mapping;
+        private final int batchSize;
+        private final int writers;
+        private final boolean continueOnError;
+
+        private final AtomicBoolean stop = new AtomicBoolean();
+        private final AtomicInteger writerSeq = new AtomicInteger();
+        private ImportTaskManager.ImportTask task;
+        private CsvTableMapping tableMapping;
+        private List<String> header;
+        private Writer errorWriter;
+
+        CsvImport(String schema, String tableName, Charset charset, char delimiter, Map<String, String> columnTypes,
+                  Map<String, String> mapping, int batchSize, int writers, boolean continueOnError) {
+            this.schema = schema;
+            this.tableName = tableName;
+            this.charset = charset;
+            this.delimiter = delimiter;
+            this.columnTypes = columnTypes;
+            this.mapping = mapping;
+            this.batchSize = batchSize;
+            this.writers = writers;
+            this.continueOnError = continueOnError;
+        }
+
+        void run(ImportTaskManager.ImportTask task, InputStream in) throws Exception {
+            this.task = task;
+            try (CsvReader csv = new CsvReader(new InputStreamReader(in, charset), delimiter)) {
+                header = csv.next();
+                if (header == null) {
+                    task.fail("文件为空");
+                    return;
+                }
+                try {
+                    tableMapping = CsvTableMapping.of(schema, tableName, header, columnTypes, mapping);
+                } catch (IllegalArgumentException e) {
+                    task.fail(e.getMessage());
+                    return;
+                }
+                if (!tableMapping.getIgnoredHeaders().isEmpty()) {
+                    log.info("CSV import {} ignores columns {}", task.getId(), tableMapping.getIgnoredHeaders());
+                }
+                load(csv);
+            } finally {
+                closeErrorWriter();
+                rowCounter.invalidate(schema, tableName);
+            }
+        }
+
+        private void load(CsvReader csv) throws Exception {
+            BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(writers * 2);
+            List<Future<?>> started = new ArrayList<>();
+            AtomicInteger alive = new AtomicInteger();
+            for (int i = 0; i < writers; i++) {
+                alive.incrementAndGet();
+                try {
+                    started.add(writerPool().submit(() -> drain(queue, alive)));
+                } catch (RejectedExecutionException e) {
+                    // 写入线程已被其他任务占满，按已启动的线程数执行
+                    alive.decrementAndGet();
+                    break;
+                }
+            }
+            // 一个写入线程都没有启动时，由导入线程自己写入
+            ChunkWriter inline = started.isEmpty() ? new ChunkWriter() : null;
+
+            try {
+                Chunk chunk = new Chunk(batchSize);
+                List<String> record;
+                while (!stop.get() && !task.isCancelled()) {
+                    try {
+                        record = csv.next();
+                    } catch (IllegalArgumentException e) {
+                        task.fail(e.getMessage());
+                        stop.set(true);
+                        break;
+                    }
+                    if (record == null) break;
+                    long line = csv.getRecordLine();
+                    Object[] values;
+                    try {
+                        values = tableMapping.toValues(record);
+                    } catch (IllegalArgumentException e) {
+                        reject(line, record, e.getMessage());
+                        continue;
+                    }
+                    chunk.add(line, record, values);
+                    if (chunk.size() >= batchSize) {
+                        if (!dispatch(chunk, queue, alive, inline)) break;
+                        chunk = new Chunk(batchSize);
+                    }
+                }
+                if (chunk.size() > 0 && !stop.get() && !task.isCancelled()) dispatch(chunk, queue, alive, inline);
+            } finally {
+                for (int i = 0; i < started.size(); i++) {
+                    if (!offer(END, queue, alive)) break;
+                }
+                for (Future<?> f : started) {
+                    f.get();
+                }
+                if (inline != null) inline.close();
+            }
+        }
+
+        private boolean dispatch(Chunk chunk, BlockingQueue<Chunk> queue, AtomicInteger alive, ChunkWriter inline)
+                throws SQLException, InterruptedException {
+            if (inline != null) {
+                inline.write(chunk);
+                return !stop.get();
+            }
+            return offer(chunk, queue, alive);
+        }
+
+        // 队列满时等待，期间检查任务是否已停止以及写入线程是否全部退出
+        private boolean offer(Chunk chunk, BlockingQueue<Chunk> queue, AtomicInteger alive) throws InterruptedException {
+            while (!queue.offer(chunk, 500, TimeUnit.MILLISECONDS)) {
+                if (alive.get() == 0) return false;
+                if (chunk != END && (stop.get() || task.isCancelled())) return false;
+            }
+            return true;
+        }
+
+        private void drain(BlockingQueue<Chunk> queue, AtomicInteger alive) {
+            ChunkWriter writer = null;
+            try {
+                try {
+                    writer = new ChunkWriter();
+                } catch (SQLTransientConnectionException e) {
+                    // BULK 配额被其他任务占用：还有其他写入线程时只是少一个并行写入
+                    if (alive.get() > 1) {
+                        log.info("CSV import {} runs with fewer writers: {}", task.getId(), e.getMessage());
+                        return;
+                    }
+                    throw e;
+                }
+                while (true) {
+                    Chunk chunk = queue.take();
+                    if (chunk == END) break;
+                    // 停止后继续取走剩余批次，避免导入线程阻塞
+                    if (stop.get() || task.isCancelled()) continue;
+                    writer.write(chunk);
+                }
+            } catch (Exception e) {
+                log.error("CSV import {} writer failed", task.getId(), e);
+                if (stop.compareAndSet(false, true)) task.fail("写入失败: " + e.getMessage());
+            } finally {
+                alive.decrementAndGet();
+                if (writer != null) writer.close();
+            }
+        }
+
+        private synchronized void reject(long line, List<String> record, String msg) {
+            task.addError(line, CsvReader.format(record, delimiter), msg);
+            try {
+                if (errorWriter == null) {
+                    Path file = Files.createTempFile("dmdb-import-errors-", ".csv");
+                    task.setErrorFile(file);
+                    errorWriter = new BufferedWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+                    errorWriter.write('\uFEFF');
+                    List<String> head = new ArrayList<>(Arrays.asList("LINE", "ERROR"));
+                    head.addAll(header);
+                    errorWriter.write(CsvReader.format(head, delimiter));
+                    errorWriter.write("\r\n");
+                }
+                List<String> row = new ArrayList<>(Arrays.asList(String.valueOf(line), msg));
+                row.addAll(record);
+                errorWriter.write(CsvReader.format(row, delimiter));
+                errorWriter.write("\r\n");
+            } catch (IOException e) {
+                log.warn("Write error file for import {} failed: {}", task.getId(), e.getMessage());
+            }
+            if (!continueOnError && stop.compareAndSet(false, true)) {
+                task.fail("第 " + line + " 行导入失败: " + msg);
+            }
+        }
+
+        private synchronized void closeErrorWriter() {
+            if (errorWriter == null) return;
+            try {
+                errorWriter.close();
+            } catch (IOException e) {
+                log.warn("Close error file for import {} failed: {}", task.getId(), e.getMessage());
+            }
+        }
+
+        /**
+         * 写入线程持有的连接与预编译语句，每批提交一次
+         * 语句以任务ID的子ID登记，取消任务时中止正在执行的批量插入
+         */
+        private final class ChunkWriter {
+            private final Connection conn;
+            private final PreparedStatement ps;
+            private final StatementRegistry.Running running;
+
+            ChunkWriter() throws SQLException {
+                conn = ConnectionManager.getNewConnection(task.getConnId(), WorkloadClass.BULK);
+                if (conn == null) throw new SQLException("无法获取数据库连接");
+                PreparedStatement prepared = null;
+                try {
+                    conn.setAutoCommit(false);
+                    prepared = conn.prepareStatement(tableMapping.getInsertSql());
+                    running = statementRegistry.register(
+                            StatementRegistry.subId(task.getId(), writerSeq.incrementAndGet()), task.getConnId(), prepared, null);
+                } catch (SQLException e) {
+                    if (prepared != null) prepared.close();
+                    conn.close();
+                    throw e;
+                }
+                ps = prepared;
+            }
+
+            void write(Chunk chunk) throws SQLException {
+                try {
+                    for (Object[] row : chunk.values) {
+                        bind(row);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    conn.commit();
+                    task.addStatements(chunk.size(), chunk.size());
+                } catch (SQLException e) {
+                    ps.clearBatch();
+                    conn.rollback();
+                    if (task.isCancelled()) return;
+                    replay(chunk);
+                }
+            }
+
+            // 逐行重放失败的批次，定位被拒绝的行
+            private void replay(Chunk chunk) throws SQLException {
+                long inserted = 0;
+                for (int i = 0; i < chunk.size() && !stop.get(); i++) {
+                    try {
+                        bind(chunk.values.get(i));
+                        ps.executeUpdate();
+                        inserted++;
+                    } catch (SQLException e) {
+                        reject(chunk.lines[i], chunk.records.get(i), e.getMessage());
+                    }
+                }
+                if (stop.get()) {
+                    conn.rollback();
+                    return;
+                }
+                conn.commit();
+                task.addStatements(inserted, inserted);
+            }
+
+            private void bind(Object[] row) throws SQLException {
+                for (int i = 0; i < row.length; i++) {
+                    if (row[i] == null) {
+                        ps.setNull(i + 1, Types.OTHER);
+                    } else {
+                        ps.setObject(i + 1, row[i]);
+                    }
+                }
+            }
+
+            void close() {
+                statementRegistry.unregister(running);
+                try {
+                    ps.close();
+                    if (!conn.getAutoCommit()) conn.rollback();
+                    conn.close();
+                } catch (SQLException e) {
+                    log.warn("Close import connection failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.dmdb.service.impl;
+
+import com.example.dmdb.config.WorkloadClass;
+import com.example.dmdb.mapper.TableDataMapper;
+import com.example.dmdb.service.ConnectionManager;
+import com.example.dmdb.service.StatementRegistry;
+import com.example.dmdb.service.base.AbstractDbService;
+import com.example.dmdb.sql.FilterSpec;
+import com.example.dmdb.sql.ResultSetExporter;
+import com.example.dmdb.sql.SqlScriptReader;
+import com.example.dmdb.sql.SqlStatement;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 数据导出
+ * 表（可带与 filterData 相同的过滤条件）或任意 SELECT 的结果，以只进游标逐批抓取并直接写入响应流，
+ * 支持 CSV / JSON Lines / INSERT 脚本，可选 gzip 压缩。导出不受控制台 5000 行的限制
+ */
+@Service
+public class ExportServiceImpl extends AbstractDbService {
+
+    private static final String EXPORT_STATEMENT = TableDataMapper.class.getName() + ".exportByConditions";
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+
+    @Autowired
+    private StatementRegistry statementRegistry;
+
+    // 导出时的 JDBC 抓取大小（行）
+    @Value("${dmdb.export.fetch-size:2000}")
+    private int fetchSize;
+
+    /**
+     * 导出计划：参数校验与 SQL 生成在请求线程中完成（需要当前 Conn-Id 读取列定义），写出在异步线程中进行
+     */
+    public static final class ExportPlan {
+        private final String sql;
+        private final MappedStatement statement;
+        private final Object parameter;
+        private final BoundSql boundSql;
+        private final ResultSetExporter.Format format;
+        private final String insertTarget;
+        private final String fileName;
+        private final boolean gzip;
+
+        ExportPlan(String sql, MappedStatement statement, Object parameter, BoundSql boundSql,
+                   ResultSetExporter.Format format, String insertTarget, String baseName, boolean gzip) {
+            this.sql = sql;
+            this.statement = statement;
+            this.parameter = parameter;
+            this.boundSql = boundSql;
+            this.format = format;
+            this.insertTarget = insertTarget;
+            this.fileName = baseName + "." + format.getExtension() + (gzip ? ".gz" : "");
+            this.gzip = gzip;
+        }
+
+        public String getFileName() { return fileName; }
+
+        public String getContentType() {
+            return gzip ? "application/gzip" : format.getContentType() + ";charset=UTF-8";
+        }
+    }
+
+    /**
+     * 表导出计划，conditions/logic/orderBy 与 filterData 一致
+     * @throws IllegalArgumentException 格式或过滤条件不合法
+     */
+    public ExportPlan planTable(String schema, String tableName, List<Map<String, Object>> conditions, String logic,
+                                List<Map<String, Object>> orderBy, String format, boolean gzip) {
+        validateIdentifiers(schema, tableName);
+        ResultSetExporter.Format fmt = ResultSetExporter.Format.of(format);
+        FilterSpec filter = buildFilter(schema, tableName, conditions, logic, orderBy);
+        Map<String, Object> param = new HashMap<>();
+        param.put("schema", schema);
+        param.put("tableName", tableName);
+        param.put("filter", filter);
+        MappedStatement ms = sqlSessionFactory.getConfiguration().getMappedStatement(EXPORT_STATEMENT);
+        BoundSql boundSql = ms.getBoundSql(param);
+        String target = "\"" + schema + "\".\"" + tableName + "\"";
+        return new ExportPlan(boundSql.getSql(), ms, param, boundSql, fmt, target, tableName, gzip);
+    }
+
+    /**
+     * 查询导出计划，只允许单条查询语句；targetTable 为 INSERT 脚本的目标表，缺省为 QUERY_RESULT
+     * @throws IllegalArgumentException 格式不合法或不是查询语句
+     */
+    public ExportPlan planQuery(String sql, String targetTable, String format, boolean gzip) {
+        ResultSetExporter.Format fmt = ResultSetExporter.Format.of(format);
+        SqlStatement parsed = SqlScriptReader.parse(sql);
+        if (parsed == null) throw new IllegalArgumentException("SQL不能为空");
+        if (!parsed.isQuery()) throw new IllegalArgumentException("只能导出查询语句");
+
+        String target = "QUERY_RESULT";
+        if (targetTable != null && !targetTable.trim().isEmpty()) {
+            StringBuilder sb = new StringBuilder();
+            for (String part : targetTable.trim().split("\\.")) {
+                validateIdentifiers(part);
+                if (sb.length() > 0) sb.append('.');
+                sb.append(quote(part.trim()));
+            }
+            target = sb.toString();
+        }
+        String baseName = "query_" + new SimpleDateFormat("yyyyMMddHHmmss").format(new Date());
+        return new ExportPlan(parsed.getSql(), null, null, null, fmt, target, baseName, gzip);
+    }
+
+    /**
+     * 执行导出并写入 out。写出途中失败时抛出 IOException，由容器中断响应，避免客户端把不完整的文件当作成功
+     */
+    public void export(String connId, ExportPlan plan, String requestId, Integer timeout, OutputStream out) throws IOException {
+        Connection conn = null;
+        PreparedStatement stmt = null;
+        ResultSet rs = null;
+        StatementRegistry.Running running = null;
+        long startTs = System.currentTimeMillis();
+        try {
+            conn = ConnectionManager.getNewConnection(connId, WorkloadClass.BULK);
+            if (conn == null) throw new IOException("无法获取数据库连接");
+            if (!conn.getAutoCommit()) conn.setAutoCommit(true);
+
+            stmt = conn.prepareStatement(plan.sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(fetchSize);
+            if (plan.statement != null) {
+                new DefaultParameterHandler(plan.statement, plan.parameter, plan.boundSql).setParameters(stmt);
+            }
+            running = statementRegistry.register(requestId, connId, stmt, timeout);
+            rs = stmt.executeQuery();
+
+            OutputStream target = plan.gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            long rows = new ResultSetExporter(plan.format, plan.insertTarget).export(rs, target);
+            if (target instanceof GZIPOutputStream) ((GZIPOutputStream) target).finish();
+            out.flush();
+            log.info("Exported {} rows to {} in {} ms", rows, plan.fileName, System.currentTimeMillis() - startTs);
+        } catch (SQLException e) {
+            int code = statementRegistry.interruptCode(running, e);
+            String msg = code == StatementRegistry.CODE_CANCELLED ? "导出已取消"
+                    : code == StatementRegistry.CODE_TIMEOUT ? "导出超时，已中止" : "导出失败: " + e.getMessage();
+            log.warn("Export {} aborted: {}", plan.fileName, msg);
+            throw new IOException(msg, e);
+        } finally {
+            statementRegistry.unregister(running);
+            try {
+                if (rs != null) rs.close();
+                if (stmt != null) stmt.close();
+                if (conn != null && !conn.isClosed()) conn.close();
+            } catch (SQLException e) {
+                log.warn("Close export resources failed: {}", e.getMessage());
+            }
+        }
+    }
+}
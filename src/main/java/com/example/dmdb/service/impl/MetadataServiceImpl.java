@@ -1,7 +1,10 @@
 package com.example.dmdb.service.impl;
 
 import com.example.dmdb.common.Result;
+import com.example.dmdb.config.DynamicContext;
+import com.example.dmdb.service.CatalogTracker;
 import com.example.dmdb.service.base.AbstractDbService;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -10,6 +13,9 @@ import java.util.stream.Collectors;
 @Service
 public class MetadataServiceImpl extends AbstractDbService {
 
+    @Autowired
+    private CatalogTracker catalogTracker;
+
     public Result<List<String>> getSchemas() {
         return Result.success(metadataMapper.getAllSchemas());
     }
@@ -151,4 +157,25 @@ public class MetadataServiceImpl extends AbstractDbService {
         res.put("edges", edges);
         return res;
     }
-}
\ No newline at end of file
+
+    public Result<Map<String, Object>> getCacheStats() {
+        return Result.success(metadataCache.stats());
+    }
+
+    public Result<Object> clearCache() {
+        metadataCache.invalidate();
+        return Result.success("缓存已清空");
+    }
+
+    /**
+     * 模式目录增量同步：since 为上次返回的 token，为空时返回全量
+     */
+    public Result<Map<String, Object>> getCatalog(String schema, String since) {
+        validateIdentifiers(schema);
+        try {
+            return Result.success(catalogTracker.sync(DynamicContext.getKey(), schema, since));
+        } catch (Exception e) {
+            return Result.error("获取对象目录失败: " + e.getMessage());
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.example.dmdb.service.impl;
 import com.example.dmdb.common.Result;
 import com.example.dmdb.mapper.ProcedureMapper;
 import com.example.dmdb.mapper.SqlMapper;
+import com.example.dmdb.service.MetadataCache;
 import com.example.dmdb.service.ProcedureService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -21,6 +22,9 @@ public class ProcedureServiceImpl implements ProcedureService {
     @Autowired
     private SqlMapper sqlMapper;
 
+    @Autowired
+    private MetadataCache metadataCache;
+
     @Override
     public Result<Object> list(String schema) {
         return Result.success(procedureMapper.listProcedures(schema));
@@ -47,6 +51,7 @@ public class ProcedureServiceImpl implements ProcedureService {
         // 创建或替换存储过程实际上就是执行 SQL
         try {
             sqlMapper.executeSql(sql);
+            metadataCache.invalidate();
             return Result.success("编译成功");
         } catch (Exception e) {
             return Result.error(500, "编译失败: " + e.getCause().getMessage());
@@ -58,6 +63,7 @@ public class ProcedureServiceImpl implements ProcedureService {
         try {
             String sql = String.format("DROP %s \"%s\".\"%s\"", type, schema, name);
             sqlMapper.executeSql(sql);
+            metadataCache.invalidate();
             return Result.success("删除成功");
         } catch (Exception e) {
             return Result.error(500, e.getMessage());
@@ -40,6 +40,7 @@ public class RoleServiceImpl extends AbstractDbService {
         validateIdentifiers(roleName);
         try {
             sqlMapper.executeSql("CREATE ROLE \"" + roleName + "\"");
+            metadataCache.invalidate();
             return Result.success("创建成功");
         } catch (Exception e) {
             return Result.error("创建失败: " + e.getMessage());
@@ -52,6 +53,7 @@ public class RoleServiceImpl extends AbstractDbService {
         if (count > 0) return Result.error("删除失败：关联了" + count + "个用户");
         try {
             sqlMapper.executeSql("DROP ROLE \"" + roleName + "\"");
+            metadataCache.invalidate();
             return Result.success("删除成功");
         } catch (Exception e) {
             return Result.error("删除失败: " + e.getMessage());
@@ -90,6 +92,7 @@ public class RoleServiceImpl extends AbstractDbService {
                 try { sqlMapper.executeSql(sql); } catch (Exception e) { errorMsgs.add("授予角色[" + targetRole + "]失败: " + e.getMessage()); }
             }
         }
+        invalidateVisibleObjects();
         if (!errorMsgs.isEmpty()) return Result.error("部分角色授权失败:\n" + String.join("\n", errorMsgs));
         return Result.success("更新成功");
     }
@@ -120,6 +123,7 @@ public class RoleServiceImpl extends AbstractDbService {
                 }
             }
         }
+        invalidateVisibleObjects();
         if (!errorMsgs.isEmpty()) return Result.error("部分权限更新失败:\n" + String.join("\n", errorMsgs));
         return Result.success("更新成功");
     }
@@ -139,7 +143,13 @@ public class RoleServiceImpl extends AbstractDbService {
             if ("REVOKE".equals(action)) { executeSqlQuietly(revokeSql); }
             else if ("GRANT".equals(action)) { executeSqlQuietly(revokeSql); String grantSql = String.format("GRANT %s ON %s.%s TO %s", priv, qSchema, qTable, qRole); if (grantOption) grantSql += " WITH GRANT OPTION"; try { sqlMapper.executeSql(grantSql); } catch (Exception e) { errorMsgs.add("对象权限[" + priv + "]更新失败: " + e.getMessage()); } }
         }
+        invalidateVisibleObjects();
         if (!errorMsgs.isEmpty()) return Result.error("部分对象权限更新失败:\n" + String.join("\n", errorMsgs));
         return Result.success("更新成功");
     }
+
+    // 授权变化会影响 ALL_* 字典视图中可见的对象
+    private void invalidateVisibleObjects() {
+        metadataCache.invalidate();
+    }
 }
\ No newline at end of file
@@ -2,20 +2,35 @@ package com.example.dmdb.service.impl;
 
 import com.example.dmdb.common.Result;
 import com.example.dmdb.config.DynamicContext;
+import com.example.dmdb.config.WorkloadClass;
 import com.example.dmdb.mapper.MetadataMapper;
 import com.example.dmdb.mapper.SqlMapper;
 import com.example.dmdb.service.ConnectionManager;
+import com.example.dmdb.service.ConsoleSessionManager;
+import com.example.dmdb.service.CursorManager;
+import com.example.dmdb.service.ImportTaskManager;
+import com.example.dmdb.service.QueryJobManager;
+import com.example.dmdb.service.StatementRegistry;
 import com.example.dmdb.service.base.AbstractDbService;
+import com.example.dmdb.sql.BatchExecutor;
+import com.example.dmdb.sql.RowDecoder;
+import com.example.dmdb.sql.SqlScriptReader;
+import com.example.dmdb.sql.SqlStatement;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
 
-import java.io.ByteArrayOutputStream;
-import java.io.InputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.nio.charset.Charset;
 import java.sql.*;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -27,36 +42,117 @@ public class SqlServiceImpl extends AbstractDbService {
     @Autowired
     private MetadataMapper metadataMapper;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CursorManager cursorManager;
+
+    @Autowired
+    private ConsoleSessionManager consoleSessionManager;
+
+    @Autowired
+    private StatementRegistry statementRegistry;
+
+    @Autowired
+    private QueryJobManager queryJobManager;
+
+    @Autowired
+    private ImportTaskManager importTaskManager;
+
     // 单次查询最大返回行数限制（安全底线），防止 OOM
     private static final int MAX_RESULT_ROWS = 5000;
 
+    // 流式查询的 JDBC 抓取大小与刷新间隔（行）
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final int STREAM_FLUSH_ROWS = 200;
+
+    // 批量执行默认每块语句数
+    private static final int DEFAULT_BATCH_CHUNK = 1000;
+
+    // 脚本导入单个批次的语句数上限
+    private static final int MAX_IMPORT_BATCH = 5000;
+
+    /**
+     * 控制台执行选项
+     * manualCommit：在 sessionId 指定的控制台会话中手动提交执行（sessionId 为空时使用 default 会话）；
+     * columnar：查询结果以列式结构返回；requestId：执行期间按此登记，可通过 cancel 接口中止；
+     * timeout：单条语句超时（秒），为空时使用默认配置；
+     * cancelSignal：调用方的取消标记（如异步任务），语句登记后及脚本每条语句执行前检查
+     */
+    public static final class ExecOptions {
+        private boolean manualCommit;
+        private boolean columnar;
+        private String requestId;
+        private Integer timeout;
+        private String sessionId;
+        private BooleanSupplier cancelSignal;
+
+        public ExecOptions manualCommit(boolean manualCommit) { this.manualCommit = manualCommit; return this; }
+        public ExecOptions columnar(boolean columnar) { this.columnar = columnar; return this; }
+        public ExecOptions requestId(String requestId) { this.requestId = requestId; return this; }
+        public ExecOptions timeout(Integer timeout) { this.timeout = timeout; return this; }
+        public ExecOptions sessionId(String sessionId) { this.sessionId = sessionId; return this; }
+        public ExecOptions cancelSignal(BooleanSupplier cancelSignal) { this.cancelSignal = cancelSignal; return this; }
+
+        boolean isCancelled() {
+            return cancelSignal != null && cancelSignal.getAsBoolean();
+        }
+    }
+
     /**
      * 执行 SQL
      * 支持分页的关键点：自动去除 SQL 末尾的分号，允许外层嵌套分页语句
      */
     public Result<Object> executeSql(String sql, boolean manualCommit) {
+        return executeSql(sql, new ExecOptions().manualCommit(manualCommit));
+    }
+
+    /**
+     * 按执行选项执行 SQL，手动提交模式下在选项指定的控制台会话中执行，同一会话的语句依次执行
+     */
+    public Result<Object> executeSql(String sql, ExecOptions options) {
         if (sql == null || sql.trim().isEmpty()) return Result.error("SQL不能为空");
 
         // 1. 清理 SQL：去除注释
-        String cleanSql = removeComments(sql).trim();
-
         // 2. 【关键】去除末尾分号，防止前端包装分页子查询时报错 (e.g. SELECT * FROM (SELECT * FROM T;) LIMIT 10)
-        if (cleanSql.endsWith(";")) {
-            cleanSql = cleanSql.substring(0, cleanSql.length() - 1).trim();
+        SqlStatement parsed = SqlScriptReader.parse(sql);
+        if (parsed == null) return Result.error("SQL不能为空");
+
+        if (!options.manualCommit) return runSql(parsed, null, options);
+        String connId = DynamicContext.getKey();
+        if (connId == null) return Result.error("未获取到连接ID (Conn-Id)");
+        try {
+            return consoleSessionManager.execute(connId, ConsoleSessionManager.sessionId(options.sessionId),
+                    session -> session == null ? Result.error("连接已断开，请重新连接")
+                            : runSql(parsed, session, options));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (SQLException e) {
+            return Result.error("SQL执行异常: " + e.getMessage());
         }
+    }
 
+    /**
+     * 执行单条语句；session 不为空时为手动提交模式，在控制台会话的执行线程中调用
+     */
+    private Result<Object> runSql(SqlStatement parsed, ConsoleSessionManager.ConsoleSession session, ExecOptions options) {
+        boolean columnar = options.columnar;
+        String cleanSql = parsed.getSql();
         String upperSql = cleanSql.toUpperCase();
+        boolean manualCommit = session != null;
 
         Connection conn = null;
         Statement stmt = null;
         ResultSet rs = null;
+        StatementRegistry.Running running = null;
 
         try {
             String connId = DynamicContext.getKey();
             if (connId == null) return Result.error("未获取到连接ID (Conn-Id)");
 
             if (manualCommit) {
-                conn = ConnectionManager.getConsoleConnection(connId);
+                conn = session.getConnection();
                 if (conn == null || conn.isClosed()) {
                     return Result.error("连接已断开，请重新连接");
                 }
@@ -77,15 +173,15 @@ public class SqlServiceImpl extends AbstractDbService {
                 // 处理事务控制命令，这里需要用原始 SQL 判断或者去分号后的判断均可
                 if ("COMMIT".equals(upperSql) || "COMMIT".equals(cleanSql.toUpperCase())) {
                     conn.commit();
-                    ConnectionManager.setDirty(connId, false);
+                    session.setDirty(false);
                     return buildDmlResult("事务已提交", 0, false);
                 }
                 if ("ROLLBACK".equals(upperSql) || "ROLLBACK".equals(cleanSql.toUpperCase())) {
-                    if (!ConnectionManager.isDirty(connId)) {
+                    if (!session.isDirty()) {
                         return buildDmlResult("当前没有需要回滚的事务", 0, false);
                     }
                     conn.rollback();
-                    ConnectionManager.setDirty(connId, false);
+                    session.setDirty(false);
                     return buildDmlResult("事务已回滚", 0, false);
                 }
             }
@@ -94,12 +190,20 @@ public class SqlServiceImpl extends AbstractDbService {
             // 设置 JDBC 层面的最大行数限制
             // 注意：如果是前端发来的分页 SQL (LIMIT x OFFSET y)，只要 x <= 5000，这个限制就不会影响分页结果
             stmt.setMaxRows(MAX_RESULT_ROWS);
+            running = statementRegistry.register(options.requestId, connId, stmt, options.timeout);
+            if (manualCommit) session.setRunning(running);
+            // 登记之前收到的取消找不到语句，登记后再检查一次
+            if (options.isCancelled()) return cancelledResult();
 
             boolean hasResultSet = stmt.execute(cleanSql);
+            if (parsed.isSchemaChange()) metadataCache.invalidate(connId);
 
             if (hasResultSet) {
                 rs = stmt.getResultSet();
-                List<Map<String, Object>> resultList = processResultSet(rs);
+                if (columnar) {
+                    return Result.success(processResultSetColumnar(rs, running));
+                }
+                List<Map<String, Object>> resultList = processResultSet(rs, running);
                 return Result.success(resultList);
             } else {
                 int affectedRows = stmt.getUpdateCount();
@@ -107,15 +211,19 @@ public class SqlServiceImpl extends AbstractDbService {
                 boolean isDirty = false;
 
                 if (manualCommit) {
-                    ConnectionManager.setDirty(connId, true);
+                    session.setDirty(true);
                     isDirty = true;
                 }
                 return buildDmlResult(msgPrefix, affectedRows, isDirty);
             }
 
         } catch (SQLException e) {
+            int code = statementRegistry.interruptCode(running, e);
+            if (code != 0) return Result.error(code, interruptMessage(code));
             return Result.error("SQL执行异常: " + e.getMessage());
         } finally {
+            if (manualCommit) session.setRunning(null);
+            statementRegistry.unregister(running);
             try {
                 if (rs != null) rs.close();
                 if (stmt != null) stmt.close();
@@ -133,9 +241,8 @@ public class SqlServiceImpl extends AbstractDbService {
      * 1. 限制返回行数
      * 2. 识别 LOB 数据并生成引用或预览
      */
-    private List<Map<String, Object>> processResultSet(ResultSet rs) throws SQLException {
-        ResultSetMetaData md = rs.getMetaData();
-        int columns = md.getColumnCount();
+    private List<Map<String, Object>> processResultSet(ResultSet rs, StatementRegistry.Running running) throws SQLException {
+        RowDecoder decoder = RowDecoder.of(rs.getMetaData());
         List<Map<String, Object>> list = new ArrayList<>();
 
         while (rs.next()) {
@@ -143,105 +250,341 @@ public class SqlServiceImpl extends AbstractDbService {
             if (list.size() >= MAX_RESULT_ROWS) {
                 break;
             }
+            list.add(decoder.readRow(rs));
+            if (running != null) running.addFetchedRows(1);
+        }
+        return list;
+    }
 
-            Map<String, Object> row = new LinkedHashMap<>(columns);
-            for (int i = 1; i <= columns; ++i) {
-                row.put(md.getColumnLabel(i), rs.getObject(i));
+    /**
+     * 处理 ResultSet 为列式结构：列名只输出一次，每行为值数组，不构造中间 Map
+     * 返回 {"columns": [...], "rows": [[...], ...]}
+     */
+    private Map<String, Object> processResultSetColumnar(ResultSet rs, StatementRegistry.Running running) throws SQLException {
+        RowDecoder decoder = RowDecoder.of(rs.getMetaData());
+        List<Object[]> rows = new ArrayList<>();
+        while (rs.next()) {
+            if (rows.size() >= MAX_RESULT_ROWS) {
+                break;
             }
+            rows.add(decoder.readValues(rs));
+            if (running != null) running.addFetchedRows(1);
+        }
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("columns", decoder.getLabels());
+        res.put("rows", rows);
+        return res;
+    }
 
-            // 1. 寻找 ROWID
-            String rowId = null;
-            for (String key : row.keySet()) {
-                if ("ROWID".equalsIgnoreCase(key) || "DB_INTERNAL_ID".equalsIgnoreCase(key)) {
-                    Object idVal = row.get(key);
-                    if (idVal != null) rowId = idVal.toString();
-                    break;
-                }
+    /**
+     * 流式执行 SQL：边读取 ResultSet 边写出 NDJSON，单次查询的内存占用与结果集大小无关
+     * 帧格式（每行一个 JSON）：
+     * header  -> {"type":"header","columns":[{"name":..,"type":..}]}
+     * row     -> {"type":"row","data":[...]}
+     * trailer -> {"type":"trailer","rows":n,"duration":ms}
+     * 出错时以 {"type":"error","msg":..} 结束
+     * 注意：该方法在异步线程中执行，connId 需由调用方在请求线程中提前获取
+     */
+    public void streamSql(String connId, String sql, int maxRows, String requestId, Integer timeout, OutputStream out) throws IOException {
+        JsonGenerator gen = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        gen.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        gen.setRootValueSeparator(null);
+
+        if (sql == null || sql.trim().isEmpty()) {
+            writeErrorFrame(gen, "SQL不能为空");
+            return;
+        }
+        if (connId == null) {
+            writeErrorFrame(gen, "未获取到连接ID (Conn-Id)");
+            return;
+        }
+
+        SqlStatement parsed = SqlScriptReader.parse(sql);
+        if (parsed == null) {
+            writeErrorFrame(gen, "SQL不能为空");
+            return;
+        }
+        String cleanSql = parsed.getSql();
+
+        long startTs = System.currentTimeMillis();
+        Connection conn = null;
+        Statement stmt = null;
+        ResultSet rs = null;
+        StatementRegistry.Running running = null;
+        try {
+            // 在异步线程中执行，不带负载类别上下文；流式下载可能持续很久，显式取自 BULK 配额
+            conn = ConnectionManager.getNewConnection(connId, WorkloadClass.BULK);
+            if (conn == null) {
+                writeErrorFrame(gen, "无法获取数据库连接");
+                return;
+            }
+            if (!conn.getAutoCommit()) conn.setAutoCommit(true);
+
+            stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(STREAM_FETCH_SIZE);
+            if (maxRows > 0) stmt.setMaxRows(maxRows);
+            running = statementRegistry.register(requestId, connId, stmt, timeout);
+
+            if (!stmt.execute(cleanSql)) {
+                if (parsed.isSchemaChange()) metadataCache.invalidate(connId);
+                gen.writeStartObject();
+                gen.writeStringField("type", "trailer");
+                gen.writeNumberField("affectedRows", stmt.getUpdateCount());
+                gen.writeNumberField("duration", System.currentTimeMillis() - startTs);
+                gen.writeEndObject();
+                endFrame(gen);
+                return;
             }
 
-            // 2. 处理 LOB
+            rs = stmt.getResultSet();
+            ResultSetMetaData md = rs.getMetaData();
+            int columns = md.getColumnCount();
+            RowDecoder decoder = RowDecoder.of(md);
+
+            gen.writeStartObject();
+            gen.writeStringField("type", "header");
+            gen.writeArrayFieldStart("columns");
             for (int i = 1; i <= columns; ++i) {
-                String label = md.getColumnLabel(i);
-                Object val = row.get(label);
+                gen.writeStartObject();
+                gen.writeStringField("name", md.getColumnLabel(i));
+                gen.writeStringField("type", md.getColumnTypeName(i));
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            gen.writeEndObject();
+            endFrame(gen);
+
+            long rows = 0;
+            while (rs.next()) {
+                Object[] values = decoder.readValues(rs);
+                gen.writeStartObject();
+                gen.writeStringField("type", "row");
+                gen.writeArrayFieldStart("data");
+                for (Object val : values) {
+                    gen.writeObject(val);
+                }
+                gen.writeEndArray();
+                gen.writeEndObject();
+                gen.writeRaw('\n');
+                // 首行立即刷出，之后按批次刷出，兼顾首行延迟与吞吐
+                if (++rows == 1 || rows % STREAM_FLUSH_ROWS == 0) gen.flush();
+            }
 
-                if (val == null) continue;
+            gen.writeStartObject();
+            gen.writeStringField("type", "trailer");
+            gen.writeNumberField("rows", rows);
+            gen.writeNumberField("duration", System.currentTimeMillis() - startTs);
+            gen.writeEndObject();
+            endFrame(gen);
+        } catch (SQLException e) {
+            int code = statementRegistry.interruptCode(running, e);
+            writeErrorFrame(gen, code != 0 ? interruptMessage(code) : "SQL执行异常: " + e.getMessage());
+        } finally {
+            statementRegistry.unregister(running);
+            try {
+                if (rs != null) rs.close();
+                if (stmt != null) stmt.close();
+                if (conn != null && !conn.isClosed()) conn.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
 
-                if (val instanceof Blob || val instanceof Clob || val instanceof byte[] || val instanceof InputStream
-                        || val.getClass().getName().startsWith("dm.jdbc")) {
+    private void endFrame(JsonGenerator gen) throws IOException {
+        gen.writeRaw('\n');
+        gen.flush();
+    }
 
-                    try {
-                        String schema = md.getSchemaName(i);
-                        String table = md.getTableName(i);
+    private void writeErrorFrame(JsonGenerator gen, String msg) throws IOException {
+        gen.writeStartObject();
+        gen.writeStringField("type", "error");
+        gen.writeStringField("msg", msg);
+        gen.writeEndObject();
+        endFrame(gen);
+    }
 
-                        // 策略 A: 有 ROWID -> 生成操作句柄
-                        if (rowId != null && table != null && !table.isEmpty()) {
-                            if (schema == null || schema.isEmpty()) schema = "SYSDBA";
-                            String type = val instanceof Clob ? "TEXT" : "BINARY";
-                            String refStr = String.format("[LOB_REF:schema=%s,table=%s,col=%s,rowId=%s,type=%s]",
-                                    schema, table, md.getColumnName(i), rowId, type);
-                            row.put(label, refStr);
-                        }
-                        // 策略 B: 无 ROWID -> 生成预览或提示
-                        else {
-                            row.put(label, convertLobToPreview(val));
-                        }
-                    } catch (Exception e) {
-                        row.put(label, "[LOB Read Error]");
-                    }
-                }
+    /**
+     * 以游标会话方式执行查询：首批数据随结果返回，后续通过 cursorId 继续抓取
+     * 游标独占一个短连接（自动提交），直到读完、显式关闭或空闲超时
+     */
+    public Result<Object> openCursor(String sql, int fetchRows, String requestId, Integer timeout) {
+        if (sql == null || sql.trim().isEmpty()) return Result.error("SQL不能为空");
+
+        String connId = DynamicContext.getKey();
+        if (connId == null) return Result.error("未获取到连接ID (Conn-Id)");
+        if (!cursorManager.canOpen(connId)) return Result.error("当前连接打开的游标过多，请先关闭不再使用的结果集");
+
+        SqlStatement parsed = SqlScriptReader.parse(sql);
+        if (parsed == null) return Result.error("SQL不能为空");
+        String cleanSql = parsed.getSql();
+
+        Connection conn = null;
+        Statement stmt = null;
+        ResultSet rs = null;
+        StatementRegistry.Running running = null;
+        try {
+            conn = ConnectionManager.getNewConnection(connId, WorkloadClass.CURSOR);
+            if (conn == null) return Result.error("无法获取数据库连接");
+            if (!conn.getAutoCommit()) conn.setAutoCommit(true);
+
+            stmt = conn.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(Math.min(Math.max(fetchRows, 1), MAX_RESULT_ROWS));
+            running = statementRegistry.register(requestId, connId, stmt, timeout);
+
+            boolean hasResultSet = stmt.execute(cleanSql);
+            // 执行阶段结束即注销，游标后续抓取不受取消接口管理，通过关闭游标释放
+            statementRegistry.unregister(running);
+            if (!hasResultSet) {
+                return buildDmlResult("执行成功", stmt.getUpdateCount(), false);
+            }
+            rs = stmt.getResultSet();
+
+            CursorManager.Cursor cursor = cursorManager.register(connId, conn, stmt, rs);
+            if (cursor == null) return Result.error("当前连接打开的游标过多，请先关闭不再使用的结果集");
+            // 所有权已转交给游标，finally 中不再关闭
+            conn = null;
+            stmt = null;
+            rs = null;
+
+            Map<String, Object> res = fetchBlock(cursor, fetchRows);
+            res.put("columns", cursor.getColumnLabels());
+            return Result.success(res);
+        } catch (SQLException e) {
+            int code = statementRegistry.interruptCode(running, e);
+            if (code != 0) return Result.error(code, interruptMessage(code));
+            return Result.error("SQL执行异常: " + e.getMessage());
+        } finally {
+            statementRegistry.unregister(running);
+            try {
+                if (rs != null) rs.close();
+                if (stmt != null) stmt.close();
+                if (conn != null && !conn.isClosed()) conn.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
             }
-            list.add(row);
         }
-        return list;
     }
 
-    private String convertLobToPreview(Object val) {
+    /**
+     * 从游标继续抓取下一批数据
+     */
+    public Result<Object> fetchCursor(String cursorId, int rows) {
+        String connId = DynamicContext.getKey();
+        CursorManager.Cursor cursor = cursorManager.get(cursorId, connId);
+        if (cursor == null) return Result.error(404, "游标不存在或已过期");
         try {
-            InputStream is = null;
-            if (val instanceof Blob) {
-                is = ((Blob) val).getBinaryStream();
-            } else if (val instanceof Clob) {
-                Reader reader = ((Clob) val).getCharacterStream();
-                char[] buf = new char[2048];
-                int len = reader.read(buf);
-                if (len > 0) return new String(buf, 0, len) + (len == 2048 ? "..." : "");
-                return "";
-            } else if (val instanceof byte[]) {
-                byte[] bytes = (byte[]) val;
-                if (bytes.length > 20 * 1024) {
-                    return "[LOB_TIP:type=BINARY,msg=数据过大,hint=请在SQL中添加 ROWID 列以支持预览和下载]";
-                }
-                return "[LOB_B64:data=" + Base64.getEncoder().encodeToString(bytes) + "]";
-            } else if (val instanceof InputStream) {
-                is = (InputStream) val;
-            }
+            return Result.success(fetchBlock(cursor, rows));
+        } catch (SQLException e) {
+            cursorManager.close(cursorId, connId);
+            return Result.error("读取游标失败: " + e.getMessage());
+        }
+    }
 
-            if (is != null) {
-                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-                int nRead;
-                byte[] data = new byte[1024];
-                int totalRead = 0;
-                while ((nRead = is.read(data, 0, data.length)) != -1 && totalRead < 20 * 1024) {
-                    buffer.write(data, 0, nRead);
-                    totalRead += nRead;
-                }
-                buffer.flush();
+    public Result<Object> closeCursor(String cursorId) {
+        if (!cursorManager.close(cursorId, DynamicContext.getKey())) {
+            return Result.error(404, "游标不存在或已过期");
+        }
+        return Result.success("游标已关闭");
+    }
 
-                if (totalRead >= 20 * 1024) {
-                    return "[LOB_TIP:type=BINARY,msg=数据过大,hint=请在SQL中添加 ROWID 列以支持预览和下载]";
+    /**
+     * 抓取一批数据，读完后自动关闭游标释放连接
+     */
+    private Map<String, Object> fetchBlock(CursorManager.Cursor cursor, int rows) throws SQLException {
+        int limit = Math.min(Math.max(rows, 1), MAX_RESULT_ROWS);
+        List<Map<String, Object>> list = new ArrayList<>(Math.min(limit, 1000));
+        boolean hasMore;
+        synchronized (cursor) {
+            cursor.touch();
+            ResultSet rs = cursor.getResultSet();
+            RowDecoder decoder = cursor.getDecoder();
+            while (list.size() < limit && !cursor.isExhausted()) {
+                if (rs.next()) {
+                    list.add(decoder.readRow(rs));
+                } else {
+                    cursor.markExhausted();
                 }
-                return "[LOB_B64:data=" + Base64.getEncoder().encodeToString(buffer.toByteArray()) + "]";
             }
-        } catch (Exception e) {
-            return "[LOB Error]";
+            cursor.addFetched(list.size());
+            hasMore = !cursor.isExhausted();
+        }
+        if (!hasMore) {
+            cursorManager.close(cursor.getId(), cursor.getConnId());
         }
-        // 处理达梦内部对象，防止序列化报错
-        return "[DM Object: " + val.getClass().getSimpleName() + "]";
+
+        Map<String, Object> res = new HashMap<>();
+        res.put("cursorId", hasMore ? cursor.getId() : null);
+        res.put("data", list);
+        res.put("hasMore", hasMore);
+        res.put("fetched", cursor.getFetchedRows());
+        return res;
     }
 
     public Result<Boolean> getTransactionStatus() {
+        return getTransactionStatus(null);
+    }
+
+    /**
+     * 指定控制台会话是否有未提交的事务，sessionId 为空时为 default 会话
+     */
+    public Result<Boolean> getTransactionStatus(String sessionId) {
+        try {
+            return Result.success(consoleSessionManager.isDirty(DynamicContext.getKey(), ConsoleSessionManager.sessionId(sessionId)));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        }
+    }
+
+    /**
+     * 提交或回滚指定控制台会话的事务，在该会话的执行队列中排队执行
+     */
+    public Result<Object> endTransaction(String sessionId, boolean commit) {
         String connId = DynamicContext.getKey();
-        return Result.success(ConnectionManager.isDirty(connId));
+        if (connId == null) return Result.error("未获取到连接ID (Conn-Id)");
+        String sid;
+        try {
+            sid = ConsoleSessionManager.sessionId(sessionId);
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        }
+        if (!consoleSessionManager.exists(connId, sid)) {
+            return buildDmlResult(commit ? "当前没有需要提交的事务" : "当前没有需要回滚的事务", 0, false);
+        }
+        return executeSql(commit ? "COMMIT" : "ROLLBACK", new ExecOptions().manualCommit(true).sessionId(sid));
+    }
+
+    /**
+     * 控制台会话列表（年龄、空闲时长、是否有未提交事务）
+     */
+    public Result<Object> listConsoleSessions() {
+        return Result.success(consoleSessionManager.list(DynamicContext.getKey()));
+    }
+
+    /**
+     * 为新的编辑器标签页分配控制台会话ID，会话在首次执行时创建
+     */
+    public Result<Object> newConsoleSession() {
+        return Result.success(UUID.randomUUID().toString());
+    }
+
+    /**
+     * 关闭当前连接的控制台会话，未提交的事务会被回滚；sessionId 为空时为 default 会话，为 * 时关闭全部会话
+     */
+    public Result<Object> closeConsoleSession(String sessionId) {
+        String connId = DynamicContext.getKey();
+        if ("*".equals(sessionId)) {
+            consoleSessionManager.close(connId);
+            return Result.success("控制台会话已全部关闭");
+        }
+        try {
+            if (!consoleSessionManager.close(connId, ConsoleSessionManager.sessionId(sessionId))) {
+                return Result.error(404, "控制台会话不存在");
+            }
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        }
+        return Result.success("控制台会话已关闭");
     }
 
     private Result<Object> buildDmlResult(String msg, int rows, boolean isDirty) {
@@ -252,40 +595,268 @@ public class SqlServiceImpl extends AbstractDbService {
         return Result.success(res);
     }
 
-    public Result<Object> executeBatchSql(List<String> sqlList) {
-        Connection conn = null;
-        Statement stmt = null;
+    private Result<Object> cancelledResult() {
+        return Result.error(StatementRegistry.CODE_CANCELLED, interruptMessage(StatementRegistry.CODE_CANCELLED));
+    }
+
+    private String interruptMessage(int code) {
+        return code == StatementRegistry.CODE_CANCELLED ? "执行已取消" : "执行超时，已中止";
+    }
+
+    /**
+     * 取消正在执行的语句（仅限当前连接下的请求）
+     */
+    public Result<Object> cancelExecution(String requestId) {
+        if (!statementRegistry.cancel(requestId, DynamicContext.getKey())) {
+            return Result.error(404, "未找到正在执行的请求");
+        }
+        return Result.success("已发送取消请求");
+    }
+
+    public Result<Object> listRunning() {
+        return Result.success(statementRegistry.list(DynamicContext.getKey()));
+    }
+
+    /**
+     * 提交异步查询任务，立即返回任务ID；任务以自动提交模式执行
+     * script 或 sqls 不为空时按脚本执行，否则执行单条 sql
+     */
+    public Result<Object> submitJob(String sql, List<String> sqls, String script, boolean columnar, Integer timeout) {
+        String connId = DynamicContext.getKey();
+        if (connId == null) return Result.error("未获取到连接ID (Conn-Id)");
+        List<SqlStatement> statements = null;
+        if (script != null && !script.trim().isEmpty()) {
+            statements = SqlScriptReader.split(script);
+        } else if (sqls != null && !sqls.isEmpty()) {
+            statements = toStatements(sqls);
+        } else if (sql == null || sql.trim().isEmpty()) {
+            return Result.error("SQL不能为空");
+        }
+
+        List<SqlStatement> scriptStatements = statements;
+        QueryJobManager.Job job = queryJobManager.submit(connId, statements != null ? "SCRIPT" : "SQL",
+                statements != null ? statements.stream().map(SqlStatement::getSql).collect(Collectors.joining(";\n")) : sql,
+                runningJob -> {
+                    ExecOptions options = new ExecOptions().columnar(columnar).requestId(runningJob.getId()).timeout(timeout)
+                            .cancelSignal(runningJob::isCancelRequested);
+                    return scriptStatements != null ? executeStatements(scriptStatements, options) : executeSql(sql, options);
+                });
+        if (job == null) return Result.error("当前连接的任务队列已满，请稍后再试");
+
+        Map<String, Object> res = new HashMap<>();
+        res.put("jobId", job.getId());
+        res.put("status", job.getStatus());
+        return Result.success(res);
+    }
+
+    public Result<Object> getJobStatus(String jobId) {
+        QueryJobManager.Job job = queryJobManager.get(jobId, DynamicContext.getKey());
+        if (job == null) return Result.error(404, "任务不存在或已过期");
+        return Result.success(job.toStatus());
+    }
+
+    /**
+     * 取回任务结果：任务结束后返回与同步执行相同的结果结构
+     */
+    public Result<Object> getJobResult(String jobId) {
+        QueryJobManager.Job job = queryJobManager.get(jobId, DynamicContext.getKey());
+        if (job == null) return Result.error(404, "任务不存在或已过期");
+        if (!job.isFinished()) return Result.error(202, "任务尚未完成");
+        if (job.getResult() == null) return Result.error(StatementRegistry.CODE_CANCELLED, "任务已取消");
+        return job.getResult();
+    }
+
+    public Result<Object> cancelJob(String jobId) {
+        if (!queryJobManager.remove(jobId, DynamicContext.getKey())) {
+            return Result.error(404, "任务不存在或已过期");
+        }
+        return Result.success("任务已取消");
+    }
+
+    public Result<Object> listJobs() {
+        return Result.success(queryJobManager.list(DynamicContext.getKey()));
+    }
+
+    /**
+     * 导入并执行 .sql 脚本文件（后台任务）
+     * 边读取边切分边执行，内存中最多保留一个批次；连续的 INSERT 合并为 JDBC 批处理，每批提交一次
+     * continueOnError 为 false 时遇到第一条失败语句即停止，之前已提交的部分保留
+     */
+    public Result<Object> importScript(MultipartFile file, String charset, int batchSize, boolean continueOnError) {
+        String connId = DynamicContext.getKey();
+        if (connId == null) return Result.error("未获取到连接ID (Conn-Id)");
+        if (file == null || file.isEmpty()) return Result.error("上传文件为空");
+
+        Charset cs;
         try {
-            String connId = DynamicContext.getKey();
-            conn = ConnectionManager.getNewConnection(connId);
-            if (conn == null) return Result.error("连接失败");
+            cs = Charset.forName(charset);
+        } catch (Exception e) {
+            return Result.error("不支持的字符集: " + charset);
+        }
+        int size = Math.max(1, Math.min(batchSize, MAX_IMPORT_BATCH));
 
-            conn.setAutoCommit(false);
+        try {
+            ImportTaskManager.ImportTask task = importTaskManager.submit(connId, "SQL", file,
+                    (t, in) -> runScriptImport(t, new InputStreamReader(in, cs), size, continueOnError));
+            if (task == null) return Result.error("导入任务队列已满，请稍后再试");
+            return Result.success(task.toStatus());
+        } catch (IOException e) {
+            return Result.error("保存上传文件失败: " + e.getMessage());
+        }
+    }
 
-            stmt = conn.createStatement();
-            int totalRows = 0;
-            for (String sql : sqlList) {
-                if (sql != null && !sql.trim().isEmpty()) {
-                    stmt.addBatch(sql);
+    private void runScriptImport(ImportTaskManager.ImportTask task, Reader reader, int batchSize, boolean continueOnError)
+            throws SQLException, IOException {
+        Connection conn = ConnectionManager.getNewConnection(task.getConnId(), WorkloadClass.BULK);
+        if (conn == null) {
+            task.fail("无法获取数据库连接");
+            return;
+        }
+        StatementRegistry.Running running = null;
+        try (SqlScriptReader script = new SqlScriptReader(reader);
+             Statement stmt = conn.createStatement()) {
+            conn.setAutoCommit(false);
+            running = statementRegistry.register(task.getId(), task.getConnId(), stmt, null);
+
+            List<SqlStatement> batch = new ArrayList<>(batchSize);
+            SqlStatement statement;
+            while (!task.isCancelled() && (statement = script.next()) != null) {
+                if (isBatchableInsert(statement)) {
+                    batch.add(statement);
+                    if (batch.size() >= batchSize && !flushImportBatch(task, conn, stmt, batch, continueOnError)) return;
+                    continue;
                 }
+                if (!flushImportBatch(task, conn, stmt, batch, continueOnError)) return;
+                if (!executeImportStatement(task, conn, stmt, statement, continueOnError)) return;
             }
-            int[] results = stmt.executeBatch();
-            conn.commit();
+            if (!task.isCancelled()) flushImportBatch(task, conn, stmt, batch, continueOnError);
+        } finally {
+            statementRegistry.unregister(running);
+            try {
+                if (!conn.getAutoCommit()) conn.rollback();
+                conn.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private boolean isBatchableInsert(SqlStatement statement) {
+        return statement.getKind() == SqlStatement.Kind.DML && !statement.isBlock()
+                && statement.getSql().regionMatches(true, 0, "INSERT", 0, 6);
+    }
 
-            for (int r : results) {
-                if (r >= 0) totalRows += r;
+    /**
+     * 执行并提交一批 INSERT；批次失败时回滚该批并逐条重放，以定位失败语句
+     * 返回 false 表示应停止导入
+     */
+    private boolean flushImportBatch(ImportTaskManager.ImportTask task, Connection conn, Statement stmt,
+                                     List<SqlStatement> batch, boolean continueOnError) throws SQLException {
+        if (batch.isEmpty()) return true;
+        try {
+            for (SqlStatement s : batch) {
+                stmt.addBatch(s.getSql());
+            }
+            int[] counts = stmt.executeBatch();
+            conn.commit();
+            long rows = 0;
+            for (int c : counts) {
+                if (c > 0) rows += c;
+            }
+            task.addStatements(batch.size(), rows);
+            return true;
+        } catch (SQLException e) {
+            stmt.clearBatch();
+            conn.rollback();
+            if (task.isCancelled()) return false;
+            for (SqlStatement s : batch) {
+                if (!executeImportStatement(task, conn, stmt, s, continueOnError)) return false;
             }
-            return Result.success("批量执行成功，累计影响行数: " + totalRows);
+            return true;
+        } finally {
+            batch.clear();
+        }
+    }
 
+    private boolean executeImportStatement(ImportTaskManager.ImportTask task, Connection conn, Statement stmt,
+                                           SqlStatement statement, boolean continueOnError) throws SQLException {
+        try {
+            long rows = 0;
+            if (stmt.execute(statement.getSql())) {
+                stmt.getResultSet().close();
+            } else {
+                rows = Math.max(0, stmt.getUpdateCount());
+            }
+            conn.commit();
+            if (statement.isSchemaChange()) metadataCache.invalidate(task.getConnId());
+            task.addStatements(1, rows);
+            return true;
         } catch (SQLException e) {
-            try {
-                if (conn != null) conn.rollback();
-            } catch (SQLException ex) {
+            conn.rollback();
+            if (task.isCancelled()) return false;
+            task.addError(statement.getIndex(), statement.getSql(), e.getMessage());
+            if (!continueOnError) {
+                task.fail("第 " + statement.getIndex() + " 条语句执行失败: " + e.getMessage());
+                return false;
+            }
+            return true;
+        }
+    }
+
+    public Result<Object> getImportStatus(String taskId) {
+        ImportTaskManager.ImportTask task = importTaskManager.get(taskId, DynamicContext.getKey());
+        if (task == null) return Result.error(404, "导入任务不存在或已过期");
+        return Result.success(task.toStatus());
+    }
+
+    public Result<Object> cancelImport(String taskId) {
+        if (!importTaskManager.cancel(taskId, DynamicContext.getKey())) {
+            return Result.error(404, "导入任务不存在或已结束");
+        }
+        return Result.success("已请求取消导入");
+    }
+
+    public Result<Object> listImports() {
+        return Result.success(importTaskManager.list(DynamicContext.getKey()));
+    }
+
+    public Result<Object> executeBatchSql(List<String> sqlList) {
+        return executeBatchSql(sqlList, DEFAULT_BATCH_CHUNK, 0, false);
+    }
+
+    /**
+     * 分块批量执行：chunkSize 为每块语句数，commitInterval 为提交间隔（0 表示全部成功后统一提交），
+     * continueOnError 为 true 时跳过失败语句继续执行。结果中包含每块的执行情况及失败语句的输入序号
+     */
+    public Result<Object> executeBatchSql(List<String> sqlList, int chunkSize, int commitInterval, boolean continueOnError) {
+        if (sqlList == null || sqlList.isEmpty()) return Result.error("SQL列表不能为空");
+        Connection conn = null;
+        try {
+            String connId = DynamicContext.getKey();
+            conn = ConnectionManager.getNewConnection(connId, WorkloadClass.BULK);
+            if (conn == null) return Result.error("连接失败");
+
+            BatchExecutor executor = new BatchExecutor(conn, chunkSize, commitInterval, continueOnError);
+            Map<String, Object> summary = executor.execute(sqlList);
+            if (executor.isSchemaChanged()) metadataCache.invalidate(connId);
+
+            Result<Object> result = new Result<>();
+            result.setData(summary);
+            if (executor.isStopped()) {
+                Map<String, Object> error = executor.getFirstError();
+                result.setCode(500);
+                result.setMsg("批量执行失败: 第 " + error.get("index") + " 条语句 " + error.get("msg"));
+            } else {
+                result.setCode(200);
+                String failedMsg = executor.getFailedCount() > 0 ? "，失败 " + executor.getFailedCount() + " 条" : "";
+                result.setMsg("批量执行成功，累计影响行数: " + executor.getAffectedRows() + failedMsg);
             }
+            return result;
+
+        } catch (SQLException e) {
             return Result.error("批量执行失败: " + e.getMessage());
         } finally {
             try {
-                if (stmt != null) stmt.close();
                 if (conn != null) conn.close();
             } catch (SQLException e) {
                 e.printStackTrace();
@@ -297,22 +868,75 @@ public class SqlServiceImpl extends AbstractDbService {
      * 执行脚本 (多条 SQL)
      */
     public Result<Object> executeScript(List<String> sqlList, boolean manualCommit) {
+        return executeScript(sqlList, new ExecOptions().manualCommit(manualCommit));
+    }
+
+    /**
+     * 按执行选项执行脚本，整个脚本共用一个 requestId；被取消或超时后停止执行剩余语句
+     * timeout 对脚本中的每条语句分别生效
+     */
+    public Result<Object> executeScript(List<String> sqlList, ExecOptions options) {
         if (sqlList == null || sqlList.isEmpty()) return Result.error("SQL列表不能为空");
+        return executeStatements(toStatements(sqlList), options);
+    }
+
+    /**
+     * 执行整段脚本文本，由服务端切分语句（支持 PL/SQL 块和 / 结束符），前端无需自行拆分
+     */
+    public Result<Object> executeScriptText(String script, ExecOptions options) {
+        if (script == null || script.trim().isEmpty()) return Result.error("SQL脚本不能为空");
+        List<SqlStatement> statements = SqlScriptReader.split(script);
+        if (statements.isEmpty()) return Result.error("SQL脚本不能为空");
+        return executeStatements(statements, options);
+    }
+
+    // 前端已拆分的语句逐条清理，序号保持与原列表一致
+    private List<SqlStatement> toStatements(List<String> sqlList) {
+        List<SqlStatement> statements = new ArrayList<>();
+        for (int i = 0; i < sqlList.size(); i++) {
+            SqlStatement parsed = SqlScriptReader.parse(sqlList.get(i));
+            if (parsed == null) continue;
+            statements.add(new SqlStatement(i + 1, parsed.getSql(), parsed.getKind(), parsed.isBlock()));
+        }
+        return statements;
+    }
+
+    private Result<Object> executeStatements(List<SqlStatement> statements, ExecOptions options) {
+        if (!options.manualCommit) return runStatements(statements, null, options);
+        String connId = DynamicContext.getKey();
+        if (connId == null) return Result.error("未获取到连接ID");
+        try {
+            return consoleSessionManager.execute(connId, ConsoleSessionManager.sessionId(options.sessionId),
+                    session -> session == null ? Result.error("连接已断开")
+                            : runStatements(statements, session, options));
+        } catch (IllegalArgumentException e) {
+            return Result.error(400, e.getMessage());
+        } catch (SQLException e) {
+            return Result.error("脚本执行异常: " + e.getMessage());
+        }
+    }
 
+    // session 不为空时为手动提交模式，在控制台会话的执行线程中调用
+    private Result<Object> runStatements(List<SqlStatement> statements, ConsoleSessionManager.ConsoleSession session,
+                                         ExecOptions options) {
+        boolean columnar = options.columnar;
+        boolean manualCommit = session != null;
         String connId = DynamicContext.getKey();
         if (connId == null) return Result.error("未获取到连接ID");
 
         Connection conn = null;
         Statement stmt = null;
+        StatementRegistry.Running running = null;
         List<Map<String, Object>> executionResults = new ArrayList<>();
         boolean dirtyFlag = false;
+        int interruptCode = 0;
 
         try {
             if (manualCommit) {
-                conn = ConnectionManager.getConsoleConnection(connId);
+                conn = session.getConnection();
                 if (conn == null || conn.isClosed()) return Result.error("连接已断开");
                 if (conn.getAutoCommit()) conn.setAutoCommit(false);
-                dirtyFlag = ConnectionManager.isDirty(connId);
+                dirtyFlag = session.isDirty();
             } else {
                 conn = ConnectionManager.getNewConnection(connId);
                 if (conn == null) return Result.error("无法获取连接");
@@ -321,39 +945,53 @@ public class SqlServiceImpl extends AbstractDbService {
 
             stmt = conn.createStatement();
             stmt.setMaxRows(MAX_RESULT_ROWS);
-
-            for (int i = 0; i < sqlList.size(); i++) {
-                String sql = sqlList.get(i);
-                if (sql == null || sql.trim().isEmpty()) continue;
-
-                String cleanSql = removeComments(sql).trim();
-                // 【核心修改】去除脚本中每条语句的分号，并将 cleanSql 返回给前端
-                if (cleanSql.endsWith(";")) {
-                    cleanSql = cleanSql.substring(0, cleanSql.length() - 1).trim();
+            running = statementRegistry.register(options.requestId, connId, stmt, options.timeout);
+            if (manualCommit) session.setRunning(running);
+
+            for (SqlStatement statement : statements) {
+                running.restart();
+                // 语句之间（或登记之前）收到的取消不会中止任何语句，在这里停止执行剩余语句
+                if (running.isCancelled() || options.isCancelled()) {
+                    interruptCode = StatementRegistry.CODE_CANCELLED;
+                    break;
                 }
+                // 【核心修改】去除脚本中每条语句的分号，并将 cleanSql 返回给前端
+                String cleanSql = statement.getSql();
 
                 Map<String, Object> resultItem = new HashMap<>();
-                resultItem.put("index", i + 1);
+                resultItem.put("index", statement.getIndex());
                 // 返回清理后的 SQL，方便前端做分页包装
                 resultItem.put("sql", cleanSql);
+                resultItem.put("kind", statement.getKind());
                 long startTs = System.currentTimeMillis();
 
                 try {
                     boolean hasResultSet = stmt.execute(cleanSql);
+                    if (statement.isSchemaChange()) metadataCache.invalidate(connId);
                     long duration = System.currentTimeMillis() - startTs;
                     resultItem.put("duration", duration);
                     resultItem.put("success", true);
 
                     if (hasResultSet) {
                         ResultSet rs = stmt.getResultSet();
-                        List<Map<String, Object>> dataList = processResultSet(rs);
+                        Object data;
+                        int rowCount;
+                        if (columnar) {
+                            Map<String, Object> table = processResultSetColumnar(rs, running);
+                            rowCount = ((List<?>) table.get("rows")).size();
+                            data = table;
+                        } else {
+                            List<Map<String, Object>> dataList = processResultSet(rs, running);
+                            rowCount = dataList.size();
+                            data = dataList;
+                        }
                         rs.close();
 
                         resultItem.put("type", "QUERY");
-                        resultItem.put("data", dataList);
-                        resultItem.put("rows", dataList.size());
+                        resultItem.put("data", data);
+                        resultItem.put("rows", rowCount);
 
-                        String truncMsg = dataList.size() >= MAX_RESULT_ROWS ? " (显示前" + MAX_RESULT_ROWS + "行)" : "";
+                        String truncMsg = rowCount >= MAX_RESULT_ROWS ? " (显示前" + MAX_RESULT_ROWS + "行)" : "";
                         resultItem.put("msg", "查询成功" + truncMsg);
                     } else {
                         int rows = stmt.getUpdateCount();
@@ -368,21 +1006,33 @@ public class SqlServiceImpl extends AbstractDbService {
                     resultItem.put("duration", duration);
                     resultItem.put("success", false);
                     resultItem.put("type", "ERROR");
-                    resultItem.put("msg", e.getMessage());
+                    interruptCode = statementRegistry.interruptCode(running, e);
+                    resultItem.put("msg", interruptCode != 0 ? interruptMessage(interruptCode) : e.getMessage());
                 }
                 executionResults.add(resultItem);
+                // 被取消或超时：不再执行剩余语句
+                if (interruptCode != 0) break;
             }
 
-            if (manualCommit) ConnectionManager.setDirty(connId, dirtyFlag);
+            if (manualCommit) session.setDirty(dirtyFlag);
 
             Map<String, Object> res = new HashMap<>();
             res.put("results", executionResults);
             if (manualCommit) res.put("dirty", dirtyFlag);
+            if (interruptCode != 0) {
+                Result<Object> r = new Result<>();
+                r.setCode(interruptCode);
+                r.setMsg(interruptMessage(interruptCode));
+                r.setData(res);
+                return r;
+            }
             return Result.success(res);
 
         } catch (SQLException e) {
             return Result.error("脚本执行异常: " + e.getMessage());
         } finally {
+            if (manualCommit) session.setRunning(null);
+            statementRegistry.unregister(running);
             try {
                 if (stmt != null) stmt.close();
                 if (!manualCommit && conn != null && !conn.isClosed()) conn.close();
@@ -457,42 +1107,12 @@ public class SqlServiceImpl extends AbstractDbService {
         return Result.success(res);
     }
 
-    private String removeComments(String sql) {
-        if (sql == null) return "";
-        String pattern = "/\\*.*?\\*/|--.*?(\n|$)";
-        Pattern r = Pattern.compile(pattern, Pattern.DOTALL);
-        Matcher m = r.matcher(sql);
-        return m.replaceAll("\n").trim();
-    }
-
     /**
      * 【修复】权限问题：保持 protected 以覆盖父类方法
      * 同时也作为一个兼容性方法，供非 SQL 执行流程（如 ER 图）调用
      */
     @Override
     protected List<Map<String, Object>> processResultList(List<Map<String, Object>> list) {
-        if (list == null || list.isEmpty()) return list;
-
-        for (Map<String, Object> row : list) {
-            for (Map.Entry<String, Object> entry : row.entrySet()) {
-                Object val = entry.getValue();
-                if (val == null) continue;
-
-                if (val instanceof Clob) {
-                    entry.setValue("[CLOB 数据]");
-                } else if (val instanceof Blob) {
-                    entry.setValue("[BLOB 数据]");
-                } else if (val instanceof byte[]) {
-                    entry.setValue("[BINARY 数据]");
-                } else if (val instanceof InputStream) {
-                    entry.setValue("[InputStream 数据]");
-                }
-                // 防止达梦驱动的其他内部对象导致序列化失败
-                else if (val.getClass().getName().startsWith("dm.jdbc")) {
-                    entry.setValue("[DM Object: " + val.getClass().getSimpleName() + "]");
-                }
-            }
-        }
-        return list;
+        return RowDecoder.convertRows(list, RowDecoder.LobMode.MASK, null);
     }
 }
\ No newline at end of file
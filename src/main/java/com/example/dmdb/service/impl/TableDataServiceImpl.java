@@ -2,19 +2,28 @@ package com.example.dmdb.service.impl;
 
 import com.example.dmdb.common.Result;
 import com.example.dmdb.config.DynamicContext;
-import com.example.dmdb.mapper.MetadataMapper;
+import com.example.dmdb.config.WorkloadClass;
 import com.example.dmdb.mapper.TableDataMapper;
 import com.example.dmdb.service.ConnectionManager;
+import com.example.dmdb.service.FanOutExecutor;
+import com.example.dmdb.service.RowCounter;
 import com.example.dmdb.service.base.AbstractDbService;
+import com.example.dmdb.sql.FilterSpec;
+import com.example.dmdb.sql.RowDecoder;
+import com.example.dmdb.sql.SeekToken;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.interceptor.TransactionAspectSupport;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletResponse;
+import javax.sql.DataSource;
 import java.io.BufferedInputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -24,6 +33,7 @@ import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.Future;
 
 @Service
 public class TableDataServiceImpl extends AbstractDbService {
@@ -34,17 +44,111 @@ public class TableDataServiceImpl extends AbstractDbService {
     private TableDataMapper tableDataMapper;
 
     @Autowired
-    private MetadataMapper metadataMapper;
+    private DataSource dataSource;
+
+    @Autowired
+    private RowCounter rowCounter;
+
+    @Autowired
+    private FanOutExecutor fanOut;
+
+    // 表格批量保存时每次 executeBatch 的行数
+    @Value("${dmdb.grid.batch-size:500}")
+    private int gridBatchSize;
+
+    // 批量删除时每条 DELETE 的 ROWID 个数
+    @Value("${dmdb.grid.delete-chunk:1000}")
+    private int deleteChunkSize;
 
     public Result<Map<String, Object>> getData(String schema, String tableName, int page, int size) {
+        return getData(schema, tableName, page, size, false);
+    }
+
+    public Result<Map<String, Object>> getData(String schema, String tableName, int page, int size, boolean columnar) {
+        return getData(schema, tableName, page, size, columnar, null);
+    }
+
+    /**
+     * countMode 为 exact/estimated/auto，为空时取 dmdb.count.mode；返回的 totalExact 表示总数是否为精确值。
+     * 总数、当前页、列定义（用于 LOB 处理）和视图判断互不依赖，并行执行，整体受 dmdb.fan-out.timeout 限制
+     */
+    public Result<Map<String, Object>> getData(String schema, String tableName, int page, int size, boolean columnar, String countMode) {
         validateIdentifiers(schema, tableName);
         int offset = (page - 1) * size;
-        long total = tableDataMapper.countData(schema, tableName);
-        List<Map<String, Object>> list = processResultList(tableDataMapper.getDataPage(schema, tableName, size, offset));
-        maskLobFields(schema, tableName, list);
+        long deadline = fanOut.deadline();
+        Future<Map<String, Object>> countF = fanOut.submit(() -> rowCounter.count(schema, tableName, countMode), deadline);
+        Future<List<Map<String, Object>>> pageF = fanOut.submit(() -> tableDataMapper.getDataPage(schema, tableName, size, offset), deadline);
+        Future<List<Map<String, Object>>> columnsF = fanOut.submit(() -> metadataCache.getColumns(schema, tableName), deadline);
+        Future<Boolean> viewF = fanOut.submit(() -> isViewObject(schema, tableName), deadline);
+        try {
+            Map<String, Object> res = new HashMap<>(FanOutExecutor.await(countF, deadline));
+            List<Map<String, Object>> columns = FanOutExecutor.await(columnsF, deadline);
+            List<Map<String, Object>> list = maskLobFields(columns, FanOutExecutor.await(pageF, deadline));
+            res.put("list", columnar ? toColumnar(list, columns) : list);
+            boolean isView = FanOutExecutor.await(viewF, deadline);
+            res.put("isView", isView);
+            if (isView) {
+                res.put("isSimpleView", analyzeViewComplexity(schema, tableName));
+            }
+            return Result.success(res);
+        } finally {
+            countF.cancel(true);
+            pageF.cancel(true);
+            columnsF.cancel(true);
+            viewF.cancel(true);
+        }
+    }
+
+    /**
+     * 游标分页浏览：按单列主键（无主键或复合主键时按 ROWID）定位下一页，翻页代价与页码深度无关。
+     * token 为上一次返回的 next/prev，为空时从第一页（last=true 时从最后一页）开始；count=true 时才按 countMode 统计总行数
+     */
+    public Result<Map<String, Object>> getDataBySeek(String schema, String tableName, int size, String token, boolean last, boolean count, String countMode, boolean columnar) {
+        validateIdentifiers(schema, tableName);
+        size = Math.max(1, size);
+        List<String> pkColumns = metadataCache.getPkColumns(schema, tableName);
+        String keyColumn = pkColumns.size() == 1 ? pkColumns.get(0) : null;
+
+        boolean backward = last;
+        Object keyValue = null;
+        if (token != null && !token.isEmpty()) {
+            SeekToken seek;
+            try {
+                seek = SeekToken.decode(token);
+            } catch (IllegalArgumentException e) {
+                return Result.error(e.getMessage());
+            }
+            if (!Objects.equals(seek.getKeyColumn(), keyColumn)) return Result.error("分页令牌已失效，请重新加载");
+            if (keyColumn == null && !isValidRowId(String.valueOf(seek.getValue()))) return Result.error("无效的分页令牌");
+            backward = seek.isBackward();
+            keyValue = seek.getValue();
+        }
+
+        // 多取一行判断该方向上是否还有数据
+        List<Map<String, Object>> rows = new ArrayList<>(tableDataMapper.getDataPageByKey(schema, tableName, keyColumn, keyValue, backward, size + 1));
+        boolean more = rows.size() > size;
+        if (more) rows.remove(size);
+        if (backward) Collections.reverse(rows);
+
+        String keyField = keyColumn != null ? keyColumn : "DB_INTERNAL_ID";
+        Object firstKey = rows.isEmpty() ? null : rows.get(0).get(keyField);
+        Object lastKey = rows.isEmpty() ? null : rows.get(rows.size() - 1).get(keyField);
+        boolean hasNext = (backward ? keyValue != null : more) && lastKey != null;
+        boolean hasPrev = (backward ? more : keyValue != null) && firstKey != null;
+
+        List<Map<String, Object>> list = maskLobFields(schema, tableName, rows);
         Map<String, Object> res = new HashMap<>();
-        res.put("total", total);
-        res.put("list", list);
+        res.put("list", columnar ? toColumnar(list, schema, tableName) : list);
+        res.put("size", size);
+        res.put("keyType", keyColumn != null ? "PK" : "ROWID");
+        res.put("keyColumn", keyColumn);
+        res.put("hasNext", hasNext);
+        res.put("hasPrev", hasPrev);
+        res.put("next", hasNext ? new SeekToken(false, keyColumn, keyValueOf(lastKey)).encode() : null);
+        res.put("prev", hasPrev ? new SeekToken(true, keyColumn, keyValueOf(firstKey)).encode() : null);
+        if (count) {
+            res.putAll(rowCounter.count(schema, tableName, countMode));
+        }
         boolean isView = isViewObject(schema, tableName);
         res.put("isView", isView);
         if (isView) {
@@ -53,21 +157,46 @@ public class TableDataServiceImpl extends AbstractDbService {
         return Result.success(res);
     }
 
+    // ROWID 对象转为字符串保存到令牌中
+    private static Object keyValueOf(Object key) {
+        return key instanceof RowId ? key.toString() : key;
+    }
+
     public Result<Map<String, Object>> filterData(Map<String, Object> payload) {
+        return filterData(payload, false);
+    }
+
+    /**
+     * 条件过滤：conditions [{field, operator, value}]，operator 支持 = != > >= < <= LIKE/CONTAINS PREFIX SUFFIX NOT LIKE IN NOT IN BETWEEN IS NULL IS NOT NULL，
+     * IN/BETWEEN 的 value 为数组（或逗号分隔）；orderBy [{field, direction}] 为可选的多列排序
+     */
+    public Result<Map<String, Object>> filterData(Map<String, Object> payload, boolean columnar) {
         String schema = (String) payload.get("schema");
         String tableName = (String) payload.get("tableName");
         String logic = (String) payload.get("logic");
-        List<Map<String, String>> conditions = (List<Map<String, String>>) payload.get("conditions");
+        List<Map<String, Object>> conditions = (List<Map<String, Object>>) payload.get("conditions");
+        List<Map<String, Object>> orderBy = (List<Map<String, Object>>) payload.get("orderBy");
         int page = payload.get("page") != null ? Integer.parseInt(String.valueOf(payload.get("page"))) : 1;
         int size = payload.get("size") != null ? Integer.parseInt(String.valueOf(payload.get("size"))) : 50;
         int offset = (page - 1) * size;
         validateIdentifiers(schema, tableName);
-        long total = tableDataMapper.countByConditions(schema, tableName, conditions, logic);
-        List<Map<String, Object>> list = processResultList(tableDataMapper.queryByConditionsPage(schema, tableName, conditions, logic, size, offset));
-        maskLobFields(schema, tableName, list);
+        FilterSpec filter;
+        try {
+            filter = buildFilter(schema, tableName, conditions, logic, orderBy);
+        } catch (IllegalArgumentException e) {
+            return Result.error("过滤条件错误: " + e.getMessage());
+        }
         Map<String, Object> res = new HashMap<>();
-        res.put("total", total);
-        res.put("list", list);
+        if (filter.isEmpty()) {
+            res.putAll(rowCounter.count(schema, tableName, (String) payload.get("countMode")));
+        } else {
+            // 带条件的总数没有统计信息可用，始终精确统计
+            res.put("total", tableDataMapper.countByConditions(schema, tableName, filter));
+            res.put("totalExact", true);
+            res.put("countMode", RowCounter.EXACT);
+        }
+        List<Map<String, Object>> list = maskLobFields(schema, tableName, tableDataMapper.queryByConditionsPage(schema, tableName, filter, size, offset));
+        res.put("list", columnar ? toColumnar(list, schema, tableName) : list);
         res.put("isView", isViewObject(schema, tableName));
         return Result.success(res);
     }
@@ -87,12 +216,13 @@ public class TableDataServiceImpl extends AbstractDbService {
                 if (row.containsKey("DB_INTERNAL_ID")) row.remove("DB_INTERNAL_ID");
                 tableDataMapper.insertData(schema, tableName, row);
             }
+            rowCounter.invalidate(schema, tableName);
             return Result.success("保存成功");
         } catch (Exception e) {
             log.error("Save data failed", e);
             Object pkVal = null;
             try {
-                String pkCol = metadataMapper.getPkColumn(schema, tableName);
+                String pkCol = metadataCache.getPkColumn(schema, tableName);
                 if (pkCol != null) {
                     Object rowId = row.get("DB_INTERNAL_ID");
                     if (rowId != null) {
@@ -113,83 +243,51 @@ public class TableDataServiceImpl extends AbstractDbService {
         List<Map<String, Object>> allRows = new ArrayList<>();
         if (insertList != null) allRows.addAll(insertList);
         if (updateList != null) allRows.addAll(updateList);
-        if (!allRows.isEmpty()) {
-            preprocessLobData(schema, tableName, allRows);
-        }
-        Map<String, Map<String, Object>> aggregatedConflicts = new HashMap<>();
+        if (allRows.isEmpty()) return Result.success("批量保存成功");
+        preprocessLobData(schema, tableName, allRows);
+        List<Map<String, Object>> conflicts = Collections.emptyList();
         boolean hasException = false;
         String exceptionMsg = "";
+        GridBatchWriter writer = new GridBatchWriter(DataSourceUtils.getConnection(dataSource), schema, tableName, gridBatchSize);
         try {
             if (insertList != null) {
+                // 按列集合分组，同组共用一条 INSERT 语句
+                Map<List<String>, List<Map<String, Object>>> groups = new LinkedHashMap<>();
                 for (Map<String, Object> row : insertList) {
-                    if (row.containsKey("DB_INTERNAL_ID")) row.remove("DB_INTERNAL_ID");
-                    tableDataMapper.insertData(schema, tableName, row);
+                    row.remove("DB_INTERNAL_ID");
+                    if (row.isEmpty()) continue;
+                    groups.computeIfAbsent(new ArrayList<>(new TreeSet<>(row.keySet())), k -> new ArrayList<>()).add(row);
+                }
+                for (Map.Entry<List<String>, List<Map<String, Object>>> group : groups.entrySet()) {
+                    writer.insert(group.getKey(), group.getValue());
                 }
             }
             if (updateList != null) {
                 for (Map<String, Object> row : updateList) {
-                    String rowId = (String) row.get("DB_INTERNAL_ID");
+                    Object rowId = row.get("DB_INTERNAL_ID");
                     if (rowId == null) continue;
-                    Map<String, Object> data = new HashMap<>(row);
-                    data.remove("DB_INTERNAL_ID");
-                    tableDataMapper.updateByRowId(schema, tableName, rowId, data);
+                    if (!isValidRowId(rowId.toString())) throw new IllegalArgumentException("非法 ROWID 格式: " + rowId);
+                    writer.update(rowId.toString(), row);
                 }
             }
+            rowCounter.invalidate(schema, tableName);
             return Result.success("批量保存成功");
         } catch (Exception e) {
             log.error("Batch save failed", e);
             hasException = true;
             exceptionMsg = e.getMessage();
             TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
-            if (allRows.isEmpty() && insertList != null) allRows.addAll(insertList);
-            if (allRows.isEmpty() && updateList != null) allRows.addAll(updateList);
-            for (Map<String, Object> row : allRows) {
-                if (row == null) continue;
-                Object pkVal = null;
-                if (row.containsKey("DB_INTERNAL_ID")) {
-                    try {
-                        String pkCol = metadataMapper.getPkColumn(schema, tableName);
-                        if (pkCol != null) {
-                            Map<String, Object> oldRow = tableDataMapper.getDataByRowId(schema, tableName, row.get("DB_INTERNAL_ID").toString());
-                            if (oldRow != null) pkVal = oldRow.get(pkCol);
-                        }
-                    } catch (Exception ex) {}
-                } else {
-                    try {
-                        String pkCol = metadataMapper.getPkColumn(schema, tableName);
-                        if (pkCol != null) pkVal = row.get(pkCol);
-                    } catch (Exception ex) {}
-                }
-                Result<Object> res = analyzeConflict(null, schema, tableName, pkVal, row);
-                if (res.getCode() == 503 && res.getData() != null) {
-                    List<Map<String, Object>> rowConflicts = (List<Map<String, Object>>) res.getData();
-                    for (Map<String, Object> c : rowConflicts) {
-                        String key = c.get("TABLE_NAME") + "|" + c.get("COLUMN_NAME");
-                        aggregatedConflicts.putIfAbsent(key, new HashMap<>());
-                        Map<String, Object> agg = aggregatedConflicts.get(key);
-                        agg.put("TABLE_NAME", c.get("TABLE_NAME"));
-                        agg.put("COLUMN_NAME", c.get("COLUMN_NAME"));
-                        Object cntVal = c.get("CNT");
-                        Object currentCnt = agg.get("CNT");
-                        if ("MISSING".equals(cntVal) || "MISSING".equals(currentCnt)) {
-                            agg.put("CNT", "MISSING");
-                        } else {
-                            int existing = currentCnt != null ? (Integer) currentCnt : 0;
-                            agg.put("CNT", existing + (Integer) cntVal);
-                        }
-                        List<Object> valList = (List<Object>) agg.getOrDefault("MY_VAL_LIST", new ArrayList<>());
-                        valList.add(c.get("MY_VAL"));
-                        agg.put("MY_VAL_LIST", valList);
-                    }
-                }
-            }
+            // 已成功写入的行不参与分析，从失败行开始
+            conflicts = analyzeBatchConflicts(schema, tableName, writer.remaining(), true);
+        } finally {
+            DataSourceUtils.releaseConnection(writer.conn, dataSource);
         }
         if (hasException) {
-            if (!aggregatedConflicts.isEmpty()) {
+            if (!conflicts.isEmpty()) {
                 Result<Object> r = new Result<>();
                 r.setCode(503);
                 r.setMsg("批量保存失败：存在数据完整性冲突");
-                r.setData(new ArrayList<>(aggregatedConflicts.values()));
+                r.setData(conflicts);
                 return r;
             }
             throw new RuntimeException("批量保存失败: " + exceptionMsg);
@@ -205,6 +303,7 @@ public class TableDataServiceImpl extends AbstractDbService {
                 return Result.error("删除失败：无法获取行唯一标识 (ROWID)");
             }
             tableDataMapper.deleteByRowId(schema, tableName, internalId.toString());
+            rowCounter.invalidate(schema, tableName);
             return Result.success("删除成功");
         } catch (Exception e) {
             log.error("Delete failed", e);
@@ -216,75 +315,95 @@ public class TableDataServiceImpl extends AbstractDbService {
         return deleteData(schema, tableName, internalId, pkValue);
     }
 
+    /**
+     * 批量删除：按 ROWID 分段执行 DELETE ... WHERE ROWID IN (...)，每段在保存点内执行。
+     * 某段失败时回滚到保存点并逐行重放该段，定位失败的 ROWID，再对其及之后的行做冲突分析
+     */
     @Transactional(rollbackFor = Exception.class)
     public Result<Object> deleteBatch(String schema, String tableName, List<String> rowIds) {
         validateIdentifiers(schema, tableName);
-        Map<String, Map<String, Object>> aggregatedConflicts = new HashMap<>();
-        boolean hasException = false;
+        if (rowIds == null || rowIds.isEmpty()) return Result.success("批量删除成功");
+        for (String id : rowIds) {
+            if (!isValidRowId(id)) return Result.error("非法 ROWID 格式: " + id);
+        }
+
+        TransactionStatus tx = TransactionAspectSupport.currentTransactionStatus();
+        int chunkSize = Math.max(1, deleteChunkSize);
+        List<Map<String, Object>> chunks = new ArrayList<>();
+        long deleted = 0;
         String exceptionMsg = "";
         int failIndex = -1;
-        for (int i = 0; i < rowIds.size(); i++) {
+        for (int from = 0; from < rowIds.size(); from += chunkSize) {
+            List<String> chunk = rowIds.subList(from, Math.min(from + chunkSize, rowIds.size()));
+            Object savepoint = tx.createSavepoint();
             try {
-                tableDataMapper.deleteByRowId(schema, tableName, rowIds.get(i));
+                int affected = tableDataMapper.deleteByRowIds(schema, tableName, chunk);
+                tx.releaseSavepoint(savepoint);
+                deleted += affected;
+                Map<String, Object> c = new HashMap<>();
+                c.put("from", from);
+                c.put("size", chunk.size());
+                c.put("affectedRows", affected);
+                chunks.add(c);
             } catch (Exception e) {
-                hasException = true;
+                tx.rollbackToSavepoint(savepoint);
                 exceptionMsg = e.getMessage();
-                failIndex = i;
+                failIndex = from + locateDeleteFailure(schema, tableName, chunk);
                 break;
             }
         }
-        if (hasException) {
-            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
-            try {
-                String pkCol = metadataMapper.getPkColumn(schema, tableName);
-                List<Map<String, String>> childTables = metadataMapper.getAllChildTables(schema, tableName);
-                if (pkCol != null && childTables != null && !childTables.isEmpty()) {
-                    for (int i = failIndex; i < rowIds.size(); i++) {
-                        String id = rowIds.get(i);
-                        try {
-                            Map<String, Object> row = tableDataMapper.getDataByRowId(schema, tableName, id);
-                            if (row == null) continue;
-                            Object pkVal = row.get(pkCol);
-                            for (Map<String, String> child : childTables) {
-                                String cTable = child.get("TABLE_NAME");
-                                String cCol = child.get("COLUMN_NAME");
-                                int count = tableDataMapper.countReference(schema, cTable, cCol, pkVal);
-                                if (count > 0) {
-                                    String key = cTable + "|" + cCol;
-                                    aggregatedConflicts.putIfAbsent(key, new HashMap<>());
-                                    Map<String, Object> agg = aggregatedConflicts.get(key);
-                                    agg.put("TABLE_NAME", cTable);
-                                    agg.put("COLUMN_NAME", cCol);
-                                    agg.put("CNT", (Integer) agg.getOrDefault("CNT", 0) + count);
-                                    List<Object> valList = (List<Object>) agg.getOrDefault("MY_VAL_LIST", new ArrayList<>());
-                                    valList.add(pkVal);
-                                    agg.put("MY_VAL_LIST", valList);
-                                }
-                            }
-                        } catch (Exception ex) {}
-                    }
-                }
-            } catch (Exception ex) {
-                log.error("Batch delete conflict analysis error", ex);
+
+        if (failIndex >= 0) {
+            tx.setRollbackOnly();
+            log.error("Batch delete failed at ROWID {}: {}", rowIds.get(failIndex), exceptionMsg);
+            // 失败行之前的删除在当前事务内已生效，只分析失败行及之后的行
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (String id : rowIds.subList(failIndex, rowIds.size())) {
+                rows.add(Collections.singletonMap("DB_INTERNAL_ID", id));
             }
-            if (!aggregatedConflicts.isEmpty()) {
+            List<Map<String, Object>> conflicts = analyzeBatchConflicts(schema, tableName, rows, false);
+            if (!conflicts.isEmpty()) {
                 Result<Object> r = new Result<>();
                 r.setCode(503);
                 r.setMsg("批量删除失败：检测到关联引用");
-                r.setData(new ArrayList<>(aggregatedConflicts.values()));
+                r.setData(conflicts);
                 return r;
             }
-            throw new RuntimeException("批量删除失败: " + exceptionMsg);
+            throw new RuntimeException("批量删除失败 (ROWID " + rowIds.get(failIndex) + "): " + exceptionMsg);
         }
-        return Result.success("批量删除成功");
+
+        rowCounter.invalidate(schema, tableName);
+        Map<String, Object> res = new HashMap<>();
+        res.put("total", rowIds.size());
+        res.put("deleted", deleted);
+        res.put("chunks", chunks);
+        return Result.success(res);
     }
 
-    private void maskLobFields(String schema, String tableName, List<Map<String, Object>> list) {
-        if (list == null || list.isEmpty()) return;
-        List<Map<String, Object>> columns = metadataMapper.getColumns(schema, tableName);
-        if (columns == null || columns.isEmpty()) {
-            columns = metadataMapper.getColumns(schema, tableName.toUpperCase());
+    // 逐行重放失败的分段，返回第一个失败行在段内的下标（重放均成功时返回 0）
+    private int locateDeleteFailure(String schema, String tableName, List<String> chunk) {
+        for (int i = 0; i < chunk.size(); i++) {
+            try {
+                tableDataMapper.deleteByRowId(schema, tableName, chunk.get(i));
+            } catch (Exception e) {
+                return i;
+            }
         }
+        return 0;
+    }
+
+    /**
+     * 数据浏览结果的 LOB 处理：CLOB 转文本，按元数据判定的二进制列及其他二进制值替换为占位文本，单次遍历完成
+     */
+    private List<Map<String, Object>> maskLobFields(String schema, String tableName, List<Map<String, Object>> list) {
+        if (list == null || list.isEmpty()) return maskLobFields(null, list);
+        return maskLobFields(metadataCache.getColumns(schema, tableName), list);
+    }
+
+    // columns 为表的列定义（已取得时直接传入，避免重复读取）
+    private List<Map<String, Object>> maskLobFields(List<Map<String, Object>> columns, List<Map<String, Object>> list) {
+        if (list == null) return new ArrayList<>();
+        if (list.isEmpty()) return list;
         Set<String> binaryLobCols = new HashSet<>();
         if (columns != null) {
             for (Map<String, Object> col : columns) {
@@ -299,34 +418,12 @@ public class TableDataServiceImpl extends AbstractDbService {
                 }
             }
         }
-        for (Map<String, Object> row : list) {
-            for (Map.Entry<String, Object> entry : row.entrySet()) {
-                String key = entry.getKey();
-                Object val = entry.getValue();
-                if (val == null) continue;
-                if (binaryLobCols.contains(key.toUpperCase())) {
-                    entry.setValue("[BINARY 数据]");
-                    continue;
-                }
-                if (val instanceof Clob) {
-                    entry.setValue("[CLOB 数据]");
-                } else if (val instanceof Blob) {
-                    entry.setValue("[BLOB 数据]");
-                } else if (val instanceof byte[]) {
-                    entry.setValue("[BINARY 数据]");
-                } else if (val instanceof InputStream) {
-                    entry.setValue("[BINARY 数据]");
-                }
-            }
-        }
+        return RowDecoder.convertRows(list, RowDecoder.LobMode.BROWSE, binaryLobCols);
     }
 
     private void preprocessLobData(String schema, String tableName, List<Map<String, Object>> rows) {
         if (rows == null || rows.isEmpty()) return;
-        List<Map<String, Object>> columns = metadataMapper.getColumns(schema, tableName);
-        if (columns == null || columns.isEmpty()) {
-            columns = metadataMapper.getColumns(schema, tableName.toUpperCase());
-        }
+        List<Map<String, Object>> columns = metadataCache.getColumns(schema, tableName);
         Set<String> blobColumns = new HashSet<>();
         if (columns != null) {
             for (Map<String, Object> col : columns) {
@@ -396,7 +493,7 @@ public class TableDataServiceImpl extends AbstractDbService {
         ResultSet rs = null;
 
         try {
-            conn = ConnectionManager.getNewConnection(connId);
+            conn = ConnectionManager.getNewConnection(connId, WorkloadClass.LOB);
             if (conn == null) {
                 response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid Connection ID or Session Expired");
                 return;
@@ -546,7 +643,7 @@ public class TableDataServiceImpl extends AbstractDbService {
         PreparedStatement ps = null;
 
         try {
-            conn = ConnectionManager.getNewConnection(connId);
+            conn = ConnectionManager.getNewConnection(connId, WorkloadClass.LOB);
             if (conn == null) return Result.error("无效的连接或会话已过期");
 
             String sql = String.format("UPDATE \"%s\".\"%s\" SET \"%s\" = ? WHERE ROWID = '%s'", schema, tableName, colName, rowId);
@@ -575,8 +672,105 @@ public class TableDataServiceImpl extends AbstractDbService {
         }
     }
 
-    private boolean isValidRowId(String rowId) {
-        if (rowId == null || rowId.isEmpty()) return false;
-        return rowId.matches("^[a-zA-Z0-9+/=]+$");
+    /**
+     * 表格批量保存的 JDBC 写入器，使用当前事务的连接
+     * 插入按列集合分组，每组一条 PreparedStatement，按 batchSize 分段 addBatch/executeBatch；
+     * 更新的 ROWID 无法绑定参数（达梦驱动报错），WHERE 条件只能拼接已校验的 ROWID，因此逐行执行，SET 的值仍绑定参数。
+     * ordered 按执行顺序记录行，succeeded 为已成功写入的行数，失败时 remaining() 即失败行及之后未执行的行
+     */
+    private static class GridBatchWriter {
+        final Connection conn;
+        final String target;
+        final int batchSize;
+        final List<Map<String, Object>> ordered = new ArrayList<>();
+        int succeeded;
+
+        GridBatchWriter(Connection conn, String schema, String tableName, int batchSize) {
+            this.conn = conn;
+            this.target = "\"" + schema + "\".\"" + tableName + "\"";
+            this.batchSize = Math.max(1, batchSize);
+        }
+
+        void insert(List<String> columns, List<Map<String, Object>> rows) throws SQLException {
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(target).append(" (");
+            StringBuilder marks = new StringBuilder();
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) {
+                    sql.append(", ");
+                    marks.append(", ");
+                }
+                sql.append('"').append(columns.get(i)).append('"');
+                marks.append('?');
+            }
+            sql.append(") VALUES (").append(marks).append(')');
+
+            int base = ordered.size();
+            ordered.addAll(rows);
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int from = 0; from < rows.size(); from += batchSize) {
+                    List<Map<String, Object>> chunk = rows.subList(from, Math.min(from + batchSize, rows.size()));
+                    for (Map<String, Object> row : chunk) {
+                        for (int i = 0; i < columns.size(); i++) {
+                            bind(ps, i + 1, row.get(columns.get(i)));
+                        }
+                        ps.addBatch();
+                    }
+                    try {
+                        ps.executeBatch();
+                    } catch (BatchUpdateException e) {
+                        // 驱动返回的计数覆盖到失败行之前（或标记 EXECUTE_FAILED），据此定位失败行
+                        succeeded = base + from + firstFailed(e.getUpdateCounts());
+                        throw e;
+                    }
+                    succeeded = base + from + chunk.size();
+                }
+            }
+        }
+
+        void update(String rowId, Map<String, Object> row) throws SQLException {
+            List<String> columns = new ArrayList<>();
+            for (String key : row.keySet()) {
+                if (!"DB_INTERNAL_ID".equals(key)) columns.add(key);
+            }
+            ordered.add(row);
+            if (columns.isEmpty()) {
+                succeeded++;
+                return;
+            }
+            StringBuilder sql = new StringBuilder("UPDATE ").append(target).append(" SET ");
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) sql.append(", ");
+                sql.append('"').append(columns.get(i)).append("\" = ?");
+            }
+            sql.append(" WHERE ROWID = '").append(rowId).append('\'');
+            try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                for (int i = 0; i < columns.size(); i++) {
+                    bind(ps, i + 1, row.get(columns.get(i)));
+                }
+                ps.executeUpdate();
+            }
+            succeeded++;
+        }
+
+        List<Map<String, Object>> remaining() {
+            return ordered.subList(Math.min(succeeded, ordered.size()), ordered.size());
+        }
+
+        private static int firstFailed(int[] counts) {
+            if (counts == null) return 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == Statement.EXECUTE_FAILED) return i;
+            }
+            return counts.length;
+        }
+
+        // 与 MyBatis 默认行为一致：null 按 Types.OTHER 绑定
+        private static void bind(PreparedStatement ps, int index, Object val) throws SQLException {
+            if (val == null) {
+                ps.setNull(index, Types.OTHER);
+            } else {
+                ps.setObject(index, val);
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -79,6 +79,7 @@ public class UserServiceImpl extends AbstractDbService {
                 sql += String.format(" DEFAULT TABLESPACE \"%s\"", tablespace);
             }
             sqlMapper.executeSql(sql);
+            metadataCache.invalidate();
             return Result.success("用户创建成功");
         } catch (Exception e) {
             return Result.error(getCleanError(e));
@@ -117,6 +118,7 @@ public class UserServiceImpl extends AbstractDbService {
                     return Result.error("不支持的操作类型");
             }
             sqlMapper.executeSql(sql);
+            metadataCache.invalidate();
             return Result.success("修改成功");
         } catch (Exception e) {
             return Result.error(getCleanError(e));
@@ -163,6 +165,7 @@ public class UserServiceImpl extends AbstractDbService {
             }
 
             sqlMapper.executeSql(sql);
+            metadataCache.invalidate();
             return Result.success(action + " 成功");
         } catch (Exception e) {
             return Result.error(getCleanError(e));
@@ -178,6 +181,7 @@ public class UserServiceImpl extends AbstractDbService {
         try {
             // CASCADE 会同时删除该用户模式下的所有对象
             sqlMapper.executeSql(String.format("DROP USER \"%s\" CASCADE", username));
+            metadataCache.invalidate();
             return Result.success("用户删除成功");
         } catch (Exception e) {
             return Result.error(getCleanError(e));
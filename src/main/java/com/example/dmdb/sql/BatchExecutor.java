@@ -0,0 +1,262 @@
+package com.example.dmdb.sql;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 分块批量执行引擎
+ * 按输入顺序执行，连续的同形 DML 改写为带绑定参数的 PreparedStatement 批处理，其余语句按普通 Statement 批处理；
+ * 每块不超过 chunkSize 条，每累计 commitInterval 条提交一次（0 表示全部成功后统一提交）。
+ * 块失败时回滚到块开始处的保存点并逐条重放，以定位失败语句的输入序号；
+ * continueOnError 为 true 时跳过失败语句继续执行，否则回滚尚未提交的部分并停止
+ */
+public class BatchExecutor {
+
+    private final Connection conn;
+    private final int chunkSize;
+    private final int commitInterval;
+    private final boolean continueOnError;
+
+    private final List<Map<String, Object>> chunks = new ArrayList<>();
+    private final List<Map<String, Object>> errors = new ArrayList<>();
+    private int total;
+    private int succeeded;
+    private long affectedRows;
+    // 尚未提交部分的影响行数，停止回滚时扣除
+    private long pendingRows;
+    private int committed;
+    private int rolledBack;
+    private int sinceCommit;
+    private boolean stopped;
+    private boolean schemaChanged;
+
+    private Statement plainStmt;
+    private PreparedStatement preparedStmt;
+    private String preparedTemplate;
+
+    public BatchExecutor(Connection conn, int chunkSize, int commitInterval, boolean continueOnError) {
+        this.conn = conn;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.commitInterval = Math.max(0, commitInterval);
+        this.continueOnError = continueOnError;
+    }
+
+    /**
+     * 执行语句列表，调用方负责关闭连接；返回汇总信息
+     */
+    public Map<String, Object> execute(List<String> sqlList) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try {
+            List<Item> chunk = new ArrayList<>(Math.min(chunkSize, sqlList.size()));
+            String chunkTemplate = null;
+            for (int i = 0; i < sqlList.size() && !stopped; i++) {
+                SqlStatement statement = SqlScriptReader.parse(sqlList.get(i));
+                if (statement == null) continue;
+                total++;
+                schemaChanged = schemaChanged || statement.isSchemaChange();
+                ParameterizedSql parameterized = ParameterizedSql.of(statement);
+                String template = parameterized != null ? parameterized.getTemplate() : null;
+
+                if (!chunk.isEmpty() && (!Objects.equals(template, chunkTemplate) || chunk.size() >= chunkSize)) {
+                    runChunk(chunk, chunkTemplate);
+                    chunk.clear();
+                }
+                chunk.add(new Item(i + 1, statement.getSql(), parameterized));
+                chunkTemplate = template;
+            }
+            if (!chunk.isEmpty() && !stopped) runChunk(chunk, chunkTemplate);
+
+            if (stopped) {
+                conn.rollback();
+                rolledBack = succeeded - committed;
+                succeeded = committed;
+                affectedRows -= pendingRows;
+            } else {
+                conn.commit();
+                committed += sinceCommit;
+                sinceCommit = 0;
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            closeQuietly(preparedStmt);
+            closeQuietly(plainStmt);
+            conn.setAutoCommit(autoCommit);
+        }
+        return summary();
+    }
+
+    private void runChunk(List<Item> chunk, String template) throws SQLException {
+        Map<String, Object> info = new HashMap<>();
+        info.put("from", chunk.get(0).index);
+        info.put("to", chunk.get(chunk.size() - 1).index);
+        info.put("size", chunk.size());
+        info.put("mode", template != null ? "PREPARED" : "STATEMENT");
+        chunks.add(info);
+
+        Savepoint savepoint = conn.setSavepoint();
+        try {
+            int[] counts;
+            if (template != null) {
+                PreparedStatement ps = prepared(template);
+                for (Item item : chunk) {
+                    bind(ps, item.parameterized.getParams());
+                    ps.addBatch();
+                }
+                counts = ps.executeBatch();
+            } else {
+                Statement stmt = plain();
+                for (Item item : chunk) {
+                    stmt.addBatch(item.sql);
+                }
+                counts = stmt.executeBatch();
+            }
+            long rows = 0;
+            for (int c : counts) {
+                if (c > 0) rows += c;
+            }
+            succeeded += chunk.size();
+            affectedRows += rows;
+            pendingRows += rows;
+            info.put("success", true);
+            info.put("affectedRows", rows);
+            advance(chunk.size());
+        } catch (SQLException e) {
+            clearBatchQuietly(template != null ? preparedStmt : plainStmt);
+            conn.rollback(savepoint);
+            replay(chunk, info);
+        }
+    }
+
+    // 块失败后逐条执行，每条语句使用独立保存点，找出失败的输入序号
+    private void replay(List<Item> chunk, Map<String, Object> info) throws SQLException {
+        int ok = 0;
+        long rows = 0;
+        List<Integer> failedIndexes = new ArrayList<>();
+        for (Item item : chunk) {
+            Savepoint savepoint = conn.setSavepoint();
+            try {
+                int count;
+                if (item.parameterized != null) {
+                    PreparedStatement ps = prepared(item.parameterized.getTemplate());
+                    bind(ps, item.parameterized.getParams());
+                    count = ps.executeUpdate();
+                } else {
+                    Statement stmt = plain();
+                    count = stmt.execute(item.sql) ? 0 : stmt.getUpdateCount();
+                }
+                ok++;
+                if (count > 0) rows += count;
+            } catch (SQLException e) {
+                conn.rollback(savepoint);
+                failedIndexes.add(item.index);
+                Map<String, Object> error = new HashMap<>();
+                error.put("index", item.index);
+                error.put("sql", item.sql.length() > 200 ? item.sql.substring(0, 200) + "..." : item.sql);
+                error.put("msg", e.getMessage());
+                errors.add(error);
+                if (!continueOnError) {
+                    stopped = true;
+                    break;
+                }
+            }
+        }
+        succeeded += ok;
+        affectedRows += rows;
+        pendingRows += rows;
+        info.put("success", false);
+        info.put("affectedRows", rows);
+        info.put("failedIndexes", failedIndexes);
+        if (!stopped) advance(chunk.size());
+    }
+
+    private void advance(int executed) throws SQLException {
+        sinceCommit += executed;
+        if (commitInterval > 0 && sinceCommit >= commitInterval) {
+            conn.commit();
+            committed += sinceCommit;
+            sinceCommit = 0;
+            pendingRows = 0;
+        }
+    }
+
+    private PreparedStatement prepared(String template) throws SQLException {
+        if (!template.equals(preparedTemplate)) {
+            closeQuietly(preparedStmt);
+            preparedStmt = conn.prepareStatement(template);
+            preparedTemplate = template;
+        }
+        return preparedStmt;
+    }
+
+    private Statement plain() throws SQLException {
+        if (plainStmt == null) plainStmt = conn.createStatement();
+        return plainStmt;
+    }
+
+    private static void bind(PreparedStatement ps, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+    }
+
+    private Map<String, Object> summary() {
+        Map<String, Object> res = new HashMap<>();
+        res.put("total", total);
+        res.put("succeeded", succeeded);
+        res.put("failed", errors.size());
+        res.put("affectedRows", affectedRows);
+        res.put("committed", committed);
+        res.put("rolledBack", rolledBack);
+        res.put("stopped", stopped);
+        res.put("chunks", chunks);
+        res.put("errors", errors);
+        return res;
+    }
+
+    public boolean isStopped() { return stopped; }
+    public boolean isSchemaChanged() { return schemaChanged; }
+    public long getAffectedRows() { return affectedRows; }
+    public int getFailedCount() { return errors.size(); }
+
+    /**
+     * 停止时第一条失败语句的错误信息
+     */
+    public Map<String, Object> getFirstError() {
+        return errors.isEmpty() ? null : errors.get(0);
+    }
+
+    private static void clearBatchQuietly(Statement stmt) {
+        try {
+            if (stmt != null) stmt.clearBatch();
+        } catch (SQLException ignored) {}
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            if (stmt != null) stmt.close();
+        } catch (SQLException ignored) {}
+    }
+
+    private static class Item {
+        final int index;
+        final String sql;
+        final ParameterizedSql parameterized;
+
+        Item(int index, String sql, ParameterizedSql parameterized) {
+            this.index = index;
+            this.sql = sql;
+            this.parameterized = parameterized;
+        }
+    }
+}
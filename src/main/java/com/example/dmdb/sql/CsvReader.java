@@ -0,0 +1,149 @@
+package com.example.dmdb.sql;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV 读取器（RFC 4180）
+ * 逐条返回记录，引号内可包含分隔符、引号（写作两个引号）和换行；兼容 \r\n、\n 换行和开头的 UTF-8 BOM。
+ * 按块读取字符，只缓存当前记录，适合大文件
+ */
+public class CsvReader implements Closeable {
+
+    private final Reader reader;
+    private final char delimiter;
+    private final char[] buf = new char[64 * 1024];
+    private int pos;
+    private int len;
+    private boolean eof;
+    private boolean started;
+    // 下一条记录的起始行号（从 1 开始）与当前记录的起始行号
+    private long line = 1;
+    private long recordLine;
+
+    public CsvReader(Reader reader, char delimiter) {
+        this.reader = reader;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * 读取下一条记录，文件结束时返回 null；空行被跳过
+     * @throws IllegalArgumentException 引号未闭合
+     */
+    public List<String> next() throws IOException {
+        if (!started) {
+            started = true;
+            if (fill() && buf[pos] == '\uFEFF') pos++;
+        }
+        while (true) {
+            if (!fill()) return null;
+            char c = buf[pos];
+            if (c == '\r' || c == '\n') {
+                consumeNewline();
+                continue;
+            }
+            break;
+        }
+
+        recordLine = line;
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        while (true) {
+            if (!fill()) {
+                if (quoted) throw new IllegalArgumentException("第 " + recordLine + " 行起的引号未闭合");
+                fields.add(field.toString());
+                return fields;
+            }
+            char c = buf[pos];
+            if (quoted) {
+                pos++;
+                if (c == '"') {
+                    if (fill() && buf[pos] == '"') {
+                        field.append('"');
+                        pos++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    if (c == '\n') line++;
+                    field.append(c);
+                }
+            } else if (c == delimiter) {
+                pos++;
+                fields.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == '\r' || c == '\n') {
+                consumeNewline();
+                fields.add(field.toString());
+                return fields;
+            } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                pos++;
+                quoted = true;
+                wasQuoted = true;
+            } else {
+                // 字段中间的引号按普通字符处理
+                pos++;
+                field.append(c);
+            }
+        }
+    }
+
+    /**
+     * 最近一次返回的记录在文件中的起始行号
+     */
+    public long getRecordLine() {
+        return recordLine;
+    }
+
+    private void consumeNewline() throws IOException {
+        if (buf[pos++] == '\r' && fill() && buf[pos] == '\n') pos++;
+        line++;
+    }
+
+    private boolean fill() throws IOException {
+        if (pos < len) return true;
+        if (eof) return false;
+        len = reader.read(buf, 0, buf.length);
+        pos = 0;
+        if (len <= 0) {
+            len = 0;
+            eof = true;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 按 RFC 4180 写出一条记录（不含换行），用于生成错误文件
+     */
+    public static String format(List<String> fields, char delimiter) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) sb.append(delimiter);
+            String v = fields.get(i);
+            if (v == null) continue;
+            boolean quote = false;
+            for (int j = 0; j < v.length() && !quote; j++) {
+                char c = v.charAt(j);
+                quote = c == delimiter || c == '"' || c == '\n' || c == '\r';
+            }
+            if (quote) {
+                sb.append('"').append(v.replace("\"", "\"\"")).append('"');
+            } else {
+                sb.append(v);
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.dmdb.sql;
+
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * CSV 表头到表列的映射
+ * 表头按列名（不区分大小写）匹配，也可以通过 mapping {表头: 列名} 显式指定，映射为空串的表头被忽略；
+ * 数据按列的 DATA_TYPE 严格转换：数值、日期时间无法解析时拒绝该行，二进制列按 Base64 解码（与导出格式一致），
+ * 非字符列的空串作为 NULL
+ */
+public final class CsvTableMapping {
+
+    private static final Set<String> NUMERIC_TYPES = new HashSet<>(Arrays.asList(
+            "NUMBER", "NUMERIC", "DECIMAL", "DEC", "INT", "INTEGER", "BIGINT", "SMALLINT", "TINYINT", "BYTE",
+            "FLOAT", "DOUBLE", "REAL", "DOUBLE PRECISION"));
+    private static final Set<String> BINARY_TYPES = new HashSet<>(Arrays.asList(
+            "BLOB", "BINARY", "VARBINARY", "IMAGE", "LONGVARBINARY", "RAW"));
+    private static final Set<String> TEXT_TYPES = new HashSet<>(Arrays.asList(
+            "CHAR", "CHARACTER", "VARCHAR", "VARCHAR2", "NCHAR", "NVARCHAR", "NVARCHAR2", "TEXT", "CLOB", "NCLOB", "LONGVARCHAR"));
+
+    private final int headerSize;
+    // 参与导入的 CSV 字段下标及对应列
+    private final int[] sourceIndexes;
+    private final String[] columns;
+    private final String[] types;
+    private final List<String> ignoredHeaders;
+    private final String insertSql;
+
+    private CsvTableMapping(int headerSize, int[] sourceIndexes, String[] columns, String[] types,
+                            List<String> ignoredHeaders, String insertSql) {
+        this.headerSize = headerSize;
+        this.sourceIndexes = sourceIndexes;
+        this.columns = columns;
+        this.types = types;
+        this.ignoredHeaders = ignoredHeaders;
+        this.insertSql = insertSql;
+    }
+
+    /**
+     * @param columnTypes 表的列名 -> DATA_TYPE
+     * @param mapping     可选的 表头 -> 列名；未列出的表头按同名列匹配，匹配不到时忽略
+     * @throws IllegalArgumentException 显式映射的列不存在、多个表头映射到同一列或没有可导入的列
+     */
+    public static CsvTableMapping of(String schema, String tableName, List<String> header,
+                                     Map<String, String> columnTypes, Map<String, String> mapping) {
+        Map<String, String> upperNames = new HashMap<>();
+        for (String name : columnTypes.keySet()) {
+            upperNames.put(name.toUpperCase(Locale.ROOT), name);
+        }
+
+        List<Integer> indexes = new ArrayList<>();
+        List<String> targets = new ArrayList<>();
+        List<String> ignored = new ArrayList<>();
+        Set<String> used = new HashSet<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim();
+            boolean explicit = mapping != null && mapping.containsKey(name);
+            String target = explicit ? mapping.get(name) : name;
+            if (target == null || target.trim().isEmpty()) {
+                ignored.add(name);
+                continue;
+            }
+            String column = columnTypes.containsKey(target) ? target : upperNames.get(target.trim().toUpperCase(Locale.ROOT));
+            if (column == null) {
+                if (explicit) throw new IllegalArgumentException("映射的列不存在: " + target);
+                ignored.add(name);
+                continue;
+            }
+            if (!used.add(column)) throw new IllegalArgumentException("多个字段映射到同一列: " + column);
+            indexes.add(i);
+            targets.add(column);
+        }
+        if (targets.isEmpty()) throw new IllegalArgumentException("CSV 表头与表中的列均不匹配");
+
+        String[] columns = targets.toArray(new String[0]);
+        String[] types = new String[columns.length];
+        int[] sourceIndexes = new int[columns.length];
+        StringBuilder cols = new StringBuilder();
+        StringBuilder marks = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            types[i] = baseType(columnTypes.get(columns[i]));
+            sourceIndexes[i] = indexes.get(i);
+            if (i > 0) {
+                cols.append(", ");
+                marks.append(", ");
+            }
+            cols.append('"').append(columns[i]).append('"');
+            marks.append('?');
+        }
+        String sql = "INSERT INTO \"" + schema + "\".\"" + tableName + "\" (" + cols + ") VALUES (" + marks + ")";
+        return new CsvTableMapping(header.size(), sourceIndexes, columns, types, ignored, sql);
+    }
+
+    public String getInsertSql() { return insertSql; }
+    public List<String> getColumns() { return Arrays.asList(columns); }
+    public List<String> getIgnoredHeaders() { return ignoredHeaders; }
+
+    /**
+     * 把一条记录转换为 INSERT 参数
+     * @throws IllegalArgumentException 字段数与表头不一致或取值无法转换
+     */
+    public Object[] toValues(List<String> record) {
+        if (record.size() != headerSize) {
+            throw new IllegalArgumentException("字段数 " + record.size() + " 与表头的 " + headerSize + " 列不一致");
+        }
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            try {
+                values[i] = convert(types[i], record.get(sourceIndexes[i]));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("列 " + columns[i] + " 的值 [" + abbreviate(record.get(sourceIndexes[i])) + "] 无法转换为 " + types[i]);
+            }
+        }
+        return values;
+    }
+
+    static Object convert(String type, String text) {
+        if (text == null) return null;
+        if (TEXT_TYPES.contains(type)) return text;
+        String v = text.trim();
+        if (v.isEmpty()) return null;
+        if (NUMERIC_TYPES.contains(type)) return new BigDecimal(v);
+        if (type.startsWith("TIMESTAMP") || type.equals("DATETIME") || type.equals("DATE")) {
+            return v.length() == 10 ? Timestamp.valueOf(v + " 00:00:00") : Timestamp.valueOf(v.replace('T', ' '));
+        }
+        if (type.equals("TIME")) return Time.valueOf(v);
+        if (BINARY_TYPES.contains(type)) return Base64.getDecoder().decode(v);
+        return text;
+    }
+
+    private static String baseType(String dataType) {
+        String type = dataType == null ? "" : dataType.toUpperCase(Locale.ROOT).trim();
+        int paren = type.indexOf('(');
+        return paren > 0 ? type.substring(0, paren).trim() : type;
+    }
+
+    private static String abbreviate(String v) {
+        return v != null && v.length() > 50 ? v.substring(0, 50) + "..." : v;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.dmdb.sql;
+
+import java.math.BigDecimal;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 数据过滤条件
+ * 把前端提交的条件 [{field, operator, value}] 与排序 [{field, direction}] 校验并规范化：
+ * 字段必须是表中的列，运算符限定在白名单内，值按列的 DATA_TYPE 转换类型后以参数绑定。
+ * 生成的 SQL 只取决于条件的结构（字段、运算符、IN 列表长度），值不同的重复过滤共用同一语句文本，可复用数据库的执行计划缓存。
+ * 计数与分页查询共用 TableDataMapper.xml 中的 filterWhere 片段
+ */
+public final class FilterSpec {
+
+    private static final Set<String> COMPARE_OPS = new HashSet<>(Arrays.asList("=", "!=", "<>", ">", ">=", "<", "<="));
+    private static final Set<String> NUMERIC_TYPES = new HashSet<>(Arrays.asList(
+            "NUMBER", "NUMERIC", "DECIMAL", "DEC", "INT", "INTEGER", "BIGINT", "SMALLINT", "TINYINT", "BYTE",
+            "FLOAT", "DOUBLE", "REAL", "DOUBLE PRECISION"));
+
+    /**
+     * 单个条件，op 为最终写入 SQL 的运算符，value/values 为绑定参数
+     */
+    public static final class Condition {
+        private final String field;
+        private final String op;
+        private final Object value;
+        private final List<Object> values;
+
+        Condition(String field, String op, Object value, List<Object> values) {
+            this.field = field;
+            this.op = op;
+            this.value = value;
+            this.values = values;
+        }
+
+        public String getField() { return field; }
+        public String getOp() { return op; }
+        public Object getValue() { return value; }
+        public List<Object> getValues() { return values; }
+    }
+
+    private final List<Condition> conditions;
+    private final String logic;
+    private final List<String> orderBy;
+
+    private FilterSpec(List<Condition> conditions, String logic, List<String> orderBy) {
+        this.conditions = conditions;
+        this.logic = logic;
+        this.orderBy = orderBy;
+    }
+
+    public List<Condition> getConditions() { return conditions; }
+    public String getLogic() { return logic; }
+    // 排序项，形如 "COL" DESC，字段已校验
+    public List<String> getOrderBy() { return orderBy; }
+
+    public boolean isEmpty() {
+        return conditions.isEmpty();
+    }
+
+    // 供 Mapper XML 判断，OGNL 无法在 JDK 9+ 上反射调用 JDK 内部集合类的方法
+    public boolean isOrdered() {
+        return !orderBy.isEmpty();
+    }
+
+    /**
+     * @param columnTypes 表的列名 -> DATA_TYPE，作为字段白名单
+     * @throws IllegalArgumentException 字段不存在、运算符不支持或值不完整
+     */
+    public static FilterSpec of(List<Map<String, Object>> conditions, String logic, List<Map<String, Object>> orderBy, Map<String, String> columnTypes) {
+        Map<String, String> upperNames = new HashMap<>();
+        for (String name : columnTypes.keySet()) {
+            upperNames.put(name.toUpperCase(Locale.ROOT), name);
+        }
+
+        List<Condition> list = new ArrayList<>();
+        if (conditions != null) {
+            for (Map<String, Object> cond : conditions) {
+                String field = resolveField(cond.get("field"), columnTypes, upperNames);
+                String type = columnTypes.get(field);
+                String operator = cond.get("operator") == null ? "=" : cond.get("operator").toString().trim().toUpperCase(Locale.ROOT);
+                list.add(compile(field, type, operator, cond.get("value")));
+            }
+        }
+
+        List<String> order = new ArrayList<>();
+        if (orderBy != null) {
+            for (Map<String, Object> item : orderBy) {
+                String field = resolveField(item.get("field"), columnTypes, upperNames);
+                String direction = item.get("direction") == null ? "ASC" : item.get("direction").toString().trim().toUpperCase(Locale.ROOT);
+                if (direction.startsWith("DESC")) direction = "DESC";
+                else if (direction.startsWith("ASC")) direction = "ASC";
+                else throw new IllegalArgumentException("不支持的排序方向: " + item.get("direction"));
+                order.add("\"" + field + "\" " + direction);
+            }
+        }
+
+        String normalizedLogic = "OR".equalsIgnoreCase(logic) ? "OR" : "AND";
+        return new FilterSpec(list, normalizedLogic, order);
+    }
+
+    private static Condition compile(String field, String type, String operator, Object raw) {
+        switch (operator) {
+            case "IS NULL":
+            case "IS NOT NULL":
+                return new Condition(field, operator, null, null);
+            // 旧版前端的 LIKE 即包含匹配
+            case "LIKE":
+            case "CONTAINS":
+                return new Condition(field, "LIKE", "%" + escapeLike(text(raw)) + "%", null);
+            case "NOT LIKE":
+                return new Condition(field, "NOT LIKE", "%" + escapeLike(text(raw)) + "%", null);
+            case "PREFIX":
+            case "STARTS WITH":
+                return new Condition(field, "LIKE", escapeLike(text(raw)) + "%", null);
+            case "SUFFIX":
+            case "ENDS WITH":
+                return new Condition(field, "LIKE", "%" + escapeLike(text(raw)), null);
+            case "IN":
+            case "NOT IN": {
+                List<Object> values = new ArrayList<>();
+                for (Object v : toList(raw)) values.add(coerce(type, v));
+                if (values.isEmpty()) throw new IllegalArgumentException("字段 " + field + " 的 IN 条件缺少取值");
+                return new Condition(field, operator, null, values);
+            }
+            case "BETWEEN": {
+                List<Object> range = toList(raw);
+                if (range.size() != 2) throw new IllegalArgumentException("字段 " + field + " 的 BETWEEN 条件需要两个取值");
+                return new Condition(field, operator, null, new ArrayList<>(Arrays.asList(coerce(type, range.get(0)), coerce(type, range.get(1)))));
+            }
+            default:
+                if (!COMPARE_OPS.contains(operator)) throw new IllegalArgumentException("不支持的运算符: " + operator);
+                return new Condition(field, "!=".equals(operator) ? "<>" : operator, coerce(type, raw), null);
+        }
+    }
+
+    private static String resolveField(Object field, Map<String, String> columnTypes, Map<String, String> upperNames) {
+        String name = field == null ? null : field.toString();
+        if (name != null && columnTypes.containsKey(name)) return name;
+        String resolved = name == null ? null : upperNames.get(name.toUpperCase(Locale.ROOT));
+        if (resolved == null) throw new IllegalArgumentException("字段不存在: " + name);
+        return resolved;
+    }
+
+    // 与旧版一致，空值的匹配条件按空串处理（匹配所有非空值）
+    private static String text(Object raw) {
+        return raw == null ? "" : raw.toString();
+    }
+
+    // 取值可以是数组，也可以是逗号分隔的字符串
+    private static List<Object> toList(Object raw) {
+        List<Object> list = new ArrayList<>();
+        if (raw instanceof List) {
+            list.addAll((List<?>) raw);
+        } else if (raw != null) {
+            for (String part : raw.toString().split(",")) {
+                String v = part.trim();
+                if (!v.isEmpty()) list.add(v);
+            }
+        }
+        return list;
+    }
+
+    static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * 按列类型转换取值；无法转换时保留字符串，由数据库按原有的隐式转换处理
+     */
+    static Object coerce(String dataType, Object raw) {
+        if (raw == null) return null;
+        if (!(raw instanceof String)) {
+            return raw instanceof Number ? new BigDecimal(raw.toString()) : raw;
+        }
+        String text = ((String) raw).trim();
+        String type = dataType == null ? "" : dataType.toUpperCase(Locale.ROOT);
+        int paren = type.indexOf('(');
+        if (paren > 0) type = type.substring(0, paren).trim();
+        try {
+            if (NUMERIC_TYPES.contains(type)) return new BigDecimal(text);
+            if (type.startsWith("TIMESTAMP") || type.equals("DATETIME") || type.equals("DATE")) {
+                return text.length() == 10 ? Timestamp.valueOf(text + " 00:00:00") : Timestamp.valueOf(text.replace('T', ' '));
+            }
+            if (type.equals("TIME")) return Time.valueOf(text);
+        } catch (IllegalArgumentException e) {
+            // 保留字符串
+        }
+        return raw;
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.dmdb.sql;
+
+import com.example.dmdb.sql.SqlLexer.Token;
+import com.example.dmdb.sql.SqlLexer.TokenType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * 将 DML 语句中的字面量改写为 ? 占位符，得到语句模板和参数值
+ * 模板相同的语句形状相同，可合并为同一个 PreparedStatement 批处理，省去数据库逐条解析
+ * 只改写可以安全绑定的位置：VALUES (...) / IN (...) 的直接元素，以及比较运算符 (= < >) 右侧的字面量；
+ * 函数参数、类型长度、DATE '...' 等位置保持原样
+ */
+public class ParameterizedSql {
+
+    private final String template;
+    private final List<Object> params;
+
+    private ParameterizedSql(String template, List<Object> params) {
+        this.template = template;
+        this.params = params;
+    }
+
+    public String getTemplate() { return template; }
+    public List<Object> getParams() { return params; }
+
+    /**
+     * 改写 DML 语句，非 DML、PL/SQL 块或没有可绑定字面量时返回 null
+     */
+    public static ParameterizedSql of(SqlStatement statement) {
+        if (statement == null || statement.getKind() != SqlStatement.Kind.DML || statement.isBlock()) return null;
+        try {
+            return rewrite(statement.getSql());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ParameterizedSql rewrite(String sql) throws IOException {
+        SqlLexer lexer = new SqlLexer(sql);
+        StringBuilder out = new StringBuilder(sql.length());
+        List<Object> params = new ArrayList<>();
+        // 每层括号是否允许绑定：由 VALUES / IN 打开，或多行 VALUES 中紧跟在此类括号之后
+        Deque<Boolean> parens = new ArrayDeque<>();
+        Token prevSignificant = null;
+        boolean lastClosedBindable = false;
+        boolean afterBindableRow = false;
+
+        Token t;
+        while ((t = lexer.next()) != null) {
+            TokenType type = t.getType();
+            if (type == TokenType.WHITESPACE || type == TokenType.LINE_COMMENT || type == TokenType.BLOCK_COMMENT) {
+                // 空白统一为单个空格，使格式略有差异的同形语句得到相同模板
+                if (out.length() > 0 && out.charAt(out.length() - 1) != ' ') out.append(' ');
+                continue;
+            }
+
+            String text = t.getText();
+            if (type == TokenType.SYMBOL && "(".equals(text)) {
+                parens.push(isWord(prevSignificant, "VALUES") || isWord(prevSignificant, "IN") || afterBindableRow);
+            } else if (type == TokenType.SYMBOL && ")".equals(text)) {
+                lastClosedBindable = !parens.isEmpty() && parens.pop();
+            }
+
+            Object value = null;
+            if ((type == TokenType.STRING || type == TokenType.NUMBER) && bindable(prevSignificant, parens)) {
+                value = literalValue(t);
+            }
+            if (value != null) {
+                out.append('?');
+                params.add(value);
+            } else {
+                out.append(text);
+            }
+
+            afterBindableRow = type == TokenType.SYMBOL && ",".equals(text)
+                    && isSymbol(prevSignificant, ")") && lastClosedBindable;
+            prevSignificant = t;
+        }
+
+        int end = out.length();
+        while (end > 0 && out.charAt(end - 1) == ' ') end--;
+        out.setLength(end);
+        return params.isEmpty() ? null : new ParameterizedSql(out.toString(), params);
+    }
+
+    private static boolean bindable(Token prevSignificant, Deque<Boolean> parens) {
+        // 前一个记号是单词时不改写（DATE '...'、N'...'、LIMIT 10 等）
+        if (prevSignificant == null || prevSignificant.getType() != TokenType.SYMBOL) return false;
+        String p = prevSignificant.getText();
+        if ("=".equals(p) || "<".equals(p) || ">".equals(p)) return true;
+        return ("(".equals(p) || ",".equals(p)) && !parens.isEmpty() && parens.peek();
+    }
+
+    private static Object literalValue(Token t) {
+        String text = t.getText();
+        if (t.getType() == TokenType.NUMBER) {
+            try {
+                return new BigDecimal(text);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        // 未闭合的字符串保持原样
+        if (text.length() < 2 || text.charAt(text.length() - 1) != '\'') return null;
+        return text.substring(1, text.length() - 1).replace("''", "'");
+    }
+
+    private static boolean isWord(Token t, String word) {
+        return t != null && t.getType() == TokenType.WORD && t.getText().equalsIgnoreCase(word);
+    }
+
+    private static boolean isSymbol(Token t, String symbol) {
+        return t != null && t.getType() == TokenType.SYMBOL && t.getText().equals(symbol);
+    }
+}
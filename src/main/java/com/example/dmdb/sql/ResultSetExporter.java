@@ -0,0 +1,391 @@
+package com.example.dmdb.sql;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * 结果集导出
+ * 逐行读取只进 ResultSet 并直接写出，不缓存行数据：CSV（带 BOM 便于 Excel 识别 UTF-8）、JSON Lines、INSERT 脚本。
+ * CLOB 通过字符流、BLOB 通过字节流分块写出（CSV/JSONL 为 Base64，INSERT 为 0x 十六进制常量），内存占用与行数和 LOB 大小无关
+ */
+public final class ResultSetExporter {
+
+    public enum Format {
+        CSV("csv", "text/csv"),
+        JSONL("jsonl", "application/x-ndjson"),
+        SQL("sql", "application/sql");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() { return extension; }
+        public String getContentType() { return contentType; }
+
+        /**
+         * 解析格式名（csv/jsonl/json/sql/insert），无法识别时抛出 IllegalArgumentException
+         */
+        public static Format of(String name) {
+            String n = name == null ? "csv" : name.trim().toLowerCase(Locale.ROOT);
+            switch (n) {
+                case "csv": return CSV;
+                case "json":
+                case "jsonl":
+                case "ndjson": return JSONL;
+                case "sql":
+                case "insert": return SQL;
+                default: throw new IllegalArgumentException("不支持的导出格式: " + name);
+            }
+        }
+    }
+
+    private enum Kind { NUMBER, TIMESTAMP, DATE, TIME, TEXT, CLOB, BINARY, OTHER }
+
+    private static final JsonFactory JSON = new JsonFactory();
+    // Base64 分块须为 3 的倍数，保证分块编码后直接拼接仍是合法的 Base64
+    private static final int BINARY_CHUNK = 3 * 4096;
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private final Format format;
+    private final String insertTarget;
+
+    /**
+     * @param insertTarget INSERT 格式的目标表（已加引号的完整名称），其他格式忽略
+     */
+    public ResultSetExporter(Format format, String insertTarget) {
+        this.format = format;
+        this.insertTarget = insertTarget;
+    }
+
+    /**
+     * 导出全部行，返回导出的行数。out 由调用方关闭
+     */
+    public long export(ResultSet rs, OutputStream out) throws SQLException, IOException {
+        ResultSetMetaData md = rs.getMetaData();
+        int columns = md.getColumnCount();
+        String[] labels = new String[columns];
+        Kind[] kinds = new Kind[columns];
+        for (int i = 0; i < columns; i++) {
+            labels[i] = md.getColumnLabel(i + 1);
+            kinds[i] = kindOf(md.getColumnType(i + 1));
+        }
+
+        if (format == Format.JSONL) {
+            return exportJsonLines(rs, labels, kinds, out);
+        }
+
+        Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        long rows = 0;
+        if (format == Format.CSV) {
+            w.write('\uFEFF');
+            for (int i = 0; i < columns; i++) {
+                if (i > 0) w.write(',');
+                writeCsvText(w, labels[i]);
+            }
+            w.write("\r\n");
+            while (rs.next()) {
+                for (int i = 0; i < columns; i++) {
+                    if (i > 0) w.write(',');
+                    writeCsvValue(w, rs, i + 1, kinds[i]);
+                }
+                w.write("\r\n");
+                rows++;
+            }
+        } else {
+            StringBuilder prefix = new StringBuilder("INSERT INTO ").append(insertTarget).append(" (");
+            for (int i = 0; i < columns; i++) {
+                if (i > 0) prefix.append(", ");
+                prefix.append('"').append(labels[i].replace("\"", "\"\"")).append('"');
+            }
+            prefix.append(") VALUES (");
+            String head = prefix.toString();
+            while (rs.next()) {
+                w.write(head);
+                for (int i = 0; i < columns; i++) {
+                    if (i > 0) w.write(", ");
+                    writeSqlValue(w, rs, i + 1, kinds[i]);
+                }
+                w.write(");\n");
+                rows++;
+            }
+            if (rows > 0) w.write("COMMIT;\n");
+        }
+        w.flush();
+        return rows;
+    }
+
+    private long exportJsonLines(ResultSet rs, String[] labels, Kind[] kinds, OutputStream out) throws SQLException, IOException {
+        JsonGenerator gen = JSON.createGenerator(out, JsonEncoding.UTF8);
+        gen.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        gen.setRootValueSeparator(null);
+        long rows = 0;
+        while (rs.next()) {
+            gen.writeStartObject();
+            for (int i = 0; i < labels.length; i++) {
+                gen.writeFieldName(labels[i]);
+                writeJsonValue(gen, rs, i + 1, kinds[i]);
+            }
+            gen.writeEndObject();
+            gen.writeRaw('\n');
+            rows++;
+        }
+        gen.flush();
+        return rows;
+    }
+
+    private static void writeJsonValue(JsonGenerator gen, ResultSet rs, int col, Kind kind) throws SQLException, IOException {
+        switch (kind) {
+            case NUMBER: {
+                BigDecimal v = rs.getBigDecimal(col);
+                if (v == null) gen.writeNull(); else gen.writeNumber(v);
+                return;
+            }
+            case CLOB: {
+                Reader r = rs.getCharacterStream(col);
+                if (r == null) {
+                    gen.writeNull();
+                    return;
+                }
+                try (Reader reader = r) {
+                    gen.writeString(reader, -1);
+                }
+                return;
+            }
+            case BINARY: {
+                InputStream in = rs.getBinaryStream(col);
+                if (in == null) {
+                    gen.writeNull();
+                    return;
+                }
+                try (InputStream is = in) {
+                    gen.writeBinary(is, -1);
+                }
+                return;
+            }
+            default: {
+                String v = text(rs, col, kind);
+                if (v == null) gen.writeNull(); else gen.writeString(v);
+            }
+        }
+    }
+
+    private static void writeCsvValue(Writer w, ResultSet rs, int col, Kind kind) throws SQLException, IOException {
+        switch (kind) {
+            case CLOB: {
+                Reader r = rs.getCharacterStream(col);
+                if (r == null) return;
+                // 长文本无法预先判断是否需要引号，一律加引号
+                try (Reader reader = r) {
+                    w.write('"');
+                    char[] buf = new char[8192];
+                    int n;
+                    while ((n = reader.read(buf)) > 0) {
+                        for (int i = 0; i < n; i++) {
+                            if (buf[i] == '"') w.write('"');
+                            w.write(buf[i]);
+                        }
+                    }
+                    w.write('"');
+                }
+                return;
+            }
+            case BINARY: {
+                InputStream in = rs.getBinaryStream(col);
+                if (in == null) return;
+                try (InputStream is = in) {
+                    writeBase64(w, is);
+                }
+                return;
+            }
+            default: {
+                String v = text(rs, col, kind);
+                if (v != null) writeCsvText(w, v);
+            }
+        }
+    }
+
+    private static void writeSqlValue(Writer w, ResultSet rs, int col, Kind kind) throws SQLException, IOException {
+        switch (kind) {
+            case NUMBER: {
+                BigDecimal v = rs.getBigDecimal(col);
+                w.write(v == null ? "NULL" : v.toPlainString());
+                return;
+            }
+            case CLOB: {
+                Reader r = rs.getCharacterStream(col);
+                if (r == null) {
+                    w.write("NULL");
+                    return;
+                }
+                try (Reader reader = r) {
+                    w.write('\'');
+                    char[] buf = new char[8192];
+                    int n;
+                    while ((n = reader.read(buf)) > 0) {
+                        for (int i = 0; i < n; i++) {
+                            if (buf[i] == '\'') w.write('\'');
+                            w.write(buf[i]);
+                        }
+                    }
+                    w.write('\'');
+                }
+                return;
+            }
+            case BINARY: {
+                InputStream in = rs.getBinaryStream(col);
+                if (in == null) {
+                    w.write("NULL");
+                    return;
+                }
+                try (InputStream is = in) {
+                    w.write("0x");
+                    byte[] buf = new byte[8192];
+                    int n;
+                    while ((n = is.read(buf)) > 0) {
+                        for (int i = 0; i < n; i++) {
+                            w.write(HEX[(buf[i] >> 4) & 0xF]);
+                            w.write(HEX[buf[i] & 0xF]);
+                        }
+                    }
+                }
+                return;
+            }
+            default: {
+                String v = text(rs, col, kind);
+                if (v == null) {
+                    w.write("NULL");
+                    return;
+                }
+                if (kind == Kind.TIMESTAMP) w.write("TIMESTAMP ");
+                else if (kind == Kind.DATE) w.write("DATE ");
+                else if (kind == Kind.TIME) w.write("TIME ");
+                w.write('\'');
+                w.write(v.replace("'", "''"));
+                w.write('\'');
+            }
+        }
+    }
+
+    private static String text(ResultSet rs, int col, Kind kind) throws SQLException {
+        switch (kind) {
+            case NUMBER: {
+                BigDecimal v = rs.getBigDecimal(col);
+                return v == null ? null : v.toPlainString();
+            }
+            case TIMESTAMP: {
+                Timestamp v = rs.getTimestamp(col);
+                return v == null ? null : v.toString();
+            }
+            case DATE: {
+                java.sql.Date v = rs.getDate(col);
+                return v == null ? null : v.toString();
+            }
+            case TIME: {
+                java.sql.Time v = rs.getTime(col);
+                return v == null ? null : v.toString();
+            }
+            case TEXT:
+                return rs.getString(col);
+            default: {
+                Object v = rs.getObject(col);
+                return v == null ? null : v.toString();
+            }
+        }
+    }
+
+    private static void writeCsvText(Writer w, String v) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < v.length() && !quote; i++) {
+            char c = v.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            w.write(v);
+            return;
+        }
+        w.write('"');
+        w.write(v.replace("\"", "\"\""));
+        w.write('"');
+    }
+
+    private static void writeBase64(Writer w, InputStream in) throws IOException {
+        Base64.Encoder encoder = Base64.getEncoder();
+        byte[] buf = new byte[BINARY_CHUNK];
+        int filled = 0;
+        int n;
+        while ((n = in.read(buf, filled, buf.length - filled)) > 0) {
+            filled += n;
+            if (filled == buf.length) {
+                w.write(encoder.encodeToString(buf));
+                filled = 0;
+            }
+        }
+        if (filled > 0) {
+            byte[] tail = new byte[filled];
+            System.arraycopy(buf, 0, tail, 0, filled);
+            w.write(encoder.encodeToString(tail));
+        }
+    }
+
+    private static Kind kindOf(int sqlType) {
+        switch (sqlType) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.REAL:
+                return Kind.NUMBER;
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return Kind.TIMESTAMP;
+            case Types.DATE:
+                return Kind.DATE;
+            case Types.TIME:
+            case Types.TIME_WITH_TIMEZONE:
+                return Kind.TIME;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+                return Kind.TEXT;
+            case Types.CLOB:
+            case Types.NCLOB:
+            case Types.LONGVARCHAR:
+            case Types.LONGNVARCHAR:
+                return Kind.CLOB;
+            case Types.BLOB:
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+                return Kind.BINARY;
+            default:
+                return Kind.OTHER;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.dmdb.sql;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.Reader;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 行解码器
+ * 每个 ResultSetMetaData 只分析一次：缓存列名、ROWID 列位置、每列的取值方式 (getLong/getBigDecimal/getString/getObject)，
+ * 以及 LOB 列的 schema/table/column 坐标，逐行读取时不再访问元数据。
+ * 同时提供对 MyBatis 返回的 Map 行做同样的 LOB 处理（见 {@link #convertRows}）
+ */
+public final class RowDecoder {
+
+    /**
+     * LOB 值的处理方式
+     * REFERENCE：控制台查询，有 ROWID 时生成 LOB_REF 句柄，否则生成预览
+     * MASK：全部替换为占位文本
+     * TEXT：CLOB 转为字符串，ROWID 转为字符串，其他值原样保留（元数据查询）
+     * BROWSE：同 TEXT，二进制值另外替换为占位文本（数据浏览）
+     */
+    public enum LobMode { REFERENCE, MASK, TEXT, BROWSE }
+
+    private static final int PREVIEW_BYTES = 20 * 1024;
+    private static final int PREVIEW_CHARS = 2048;
+    private static final String TIP_TOO_LARGE = "[LOB_TIP:type=BINARY,msg=数据过大,hint=请在SQL中添加 ROWID 列以支持预览和下载]";
+
+    private enum Getter { LONG, DECIMAL, STRING, OBJECT }
+
+    private final String[] labels;
+    private final Getter[] getters;
+    // LOB 句柄前缀 "[LOB_REF:schema=..,table=..,col=..,rowId="，无表信息的列为 null
+    private final String[] refPrefixes;
+    private final int rowIdIndex;
+
+    private RowDecoder(ResultSetMetaData md) throws SQLException {
+        int columns = md.getColumnCount();
+        labels = new String[columns];
+        getters = new Getter[columns];
+        refPrefixes = new String[columns];
+        int rowId = -1;
+        for (int i = 0; i < columns; i++) {
+            labels[i] = md.getColumnLabel(i + 1);
+            getters[i] = getterFor(md.getColumnType(i + 1));
+            if (rowId < 0 && ("ROWID".equalsIgnoreCase(labels[i]) || "DB_INTERNAL_ID".equalsIgnoreCase(labels[i]))) {
+                rowId = i;
+            }
+            if (getters[i] == Getter.OBJECT) {
+                refPrefixes[i] = refPrefix(md, i + 1);
+            }
+        }
+        rowIdIndex = rowId;
+    }
+
+    public static RowDecoder of(ResultSetMetaData md) throws SQLException {
+        return new RowDecoder(md);
+    }
+
+    public int getColumnCount() {
+        return labels.length;
+    }
+
+    public List<String> getLabels() {
+        return Collections.unmodifiableList(Arrays.asList(labels));
+    }
+
+    /**
+     * 读取当前行的值数组，LOB 字段转换为引用句柄或预览
+     */
+    public Object[] readValues(ResultSet rs) throws SQLException {
+        Object[] values = new Object[labels.length];
+        boolean hasLob = false;
+        for (int i = 0; i < values.length; i++) {
+            int col = i + 1;
+            switch (getters[i]) {
+                case LONG:
+                    long l = rs.getLong(col);
+                    values[i] = rs.wasNull() ? null : l;
+                    break;
+                case DECIMAL:
+                    values[i] = rs.getBigDecimal(col);
+                    break;
+                case STRING:
+                    values[i] = rs.getString(col);
+                    break;
+                default:
+                    Object val = rs.getObject(col);
+                    values[i] = val;
+                    hasLob = hasLob || isLob(val);
+            }
+        }
+        if (!hasLob) return values;
+
+        Object rowId = rowIdIndex >= 0 ? values[rowIdIndex] : null;
+        for (int i = 0; i < values.length; i++) {
+            Object val = values[i];
+            if (getters[i] != Getter.OBJECT || !isLob(val)) continue;
+            if (rowId != null && refPrefixes[i] != null) {
+                values[i] = refPrefixes[i] + rowId + (val instanceof Clob ? ",type=TEXT]" : ",type=BINARY]");
+            } else {
+                values[i] = preview(val);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 读取当前行为 Map（列名 -> 值）
+     */
+    public Map<String, Object> readRow(ResultSet rs) throws SQLException {
+        return toMap(readValues(rs));
+    }
+
+    public Map<String, Object> toMap(Object[] values) {
+        Map<String, Object> row = new LinkedHashMap<>(labels.length * 4 / 3 + 1);
+        for (int i = 0; i < labels.length; i++) {
+            row.put(labels[i], values[i]);
+        }
+        return row;
+    }
+
+    /**
+     * 对 MyBatis 返回的 Map 行做 LOB 处理，原地修改并返回
+     * binaryColumns 为按元数据判定的二进制列（大写列名），这些列的值一律替换为占位文本；
+     * 每个列名只判定一次，逐个单元格不再转换大小写
+     */
+    public static List<Map<String, Object>> convertRows(List<Map<String, Object>> rows, LobMode mode, Set<String> binaryColumns) {
+        if (rows == null || rows.isEmpty()) return rows;
+        boolean hasBinary = binaryColumns != null && !binaryColumns.isEmpty();
+        Map<String, Boolean> binaryKeys = hasBinary ? new HashMap<>() : null;
+        for (Map<String, Object> row : rows) {
+            for (Map.Entry<String, Object> entry : row.entrySet()) {
+                Object val = entry.getValue();
+                if (val == null) continue;
+                if (hasBinary && binaryKeys.computeIfAbsent(entry.getKey(), k -> binaryColumns.contains(k.toUpperCase()))) {
+                    entry.setValue("[BINARY 数据]");
+                    continue;
+                }
+                Object converted = convertValue(val, mode);
+                if (converted != val) entry.setValue(converted);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Map 行转为列式结构 {"columns": [...], "rows": [[...]]}，列名只输出一次
+     * MyBatis 返回的行不含值为 NULL 的列：列顺序取 columnNames（可为空），其后补上任一行中出现的其他列
+     */
+    public static Map<String, Object> toColumnar(List<Map<String, Object>> rows, List<String> columnNames) {
+        Set<String> names = new LinkedHashSet<>();
+        if (columnNames != null) names.addAll(columnNames);
+        if (rows != null) {
+            for (Map<String, Object> row : rows) names.addAll(row.keySet());
+        }
+        List<String> columns = new ArrayList<>(names);
+        List<Object[]> values = new ArrayList<>(rows == null ? 0 : rows.size());
+        if (rows != null) {
+            for (Map<String, Object> row : rows) {
+                Object[] rowValues = new Object[columns.size()];
+                for (int i = 0; i < rowValues.length; i++) {
+                    rowValues[i] = row.get(columns.get(i));
+                }
+                values.add(rowValues);
+            }
+        }
+        Map<String, Object> res = new LinkedHashMap<>();
+        res.put("columns", columns);
+        res.put("rows", values);
+        return res;
+    }
+
+    /**
+     * 按模式转换单个值，不需要转换时原样返回
+     */
+    public static Object convertValue(Object val, LobMode mode) {
+        if (val == null) return null;
+        if (mode == LobMode.TEXT || mode == LobMode.BROWSE) {
+            if (val instanceof Clob) return clobToString((Clob) val);
+            if (val instanceof RowId) return val.toString();
+            if (mode == LobMode.TEXT) return val;
+            if (val instanceof Blob) return "[BLOB 数据]";
+            if (val instanceof byte[] || val instanceof InputStream) return "[BINARY 数据]";
+            return val;
+        }
+        if (mode == LobMode.REFERENCE) {
+            return isLob(val) ? preview(val) : val;
+        }
+        if (val instanceof Clob) return "[CLOB 数据]";
+        if (val instanceof Blob) return "[BLOB 数据]";
+        if (val instanceof byte[]) return "[BINARY 数据]";
+        if (val instanceof InputStream) return "[InputStream 数据]";
+        // 防止达梦驱动的其他内部对象导致序列化失败
+        if (val.getClass().getName().startsWith("dm.jdbc")) return "[DM Object: " + val.getClass().getSimpleName() + "]";
+        return val;
+    }
+
+    public static String clobToString(Clob clob) {
+        try {
+            long len = clob.length();
+            if (len == 0) return "";
+            return clob.getSubString(1, (int) len);
+        } catch (SQLException e) {
+            e.printStackTrace();
+            return "";
+        }
+    }
+
+    /**
+     * 无 ROWID 时的 LOB 预览：文本取前 2048 字符，二进制不超过 20KB 时以 Base64 返回
+     */
+    public static String preview(Object val) {
+        try {
+            InputStream is = null;
+            if (val instanceof Blob) {
+                is = ((Blob) val).getBinaryStream();
+            } else if (val instanceof Clob) {
+                Reader reader = ((Clob) val).getCharacterStream();
+                char[] buf = new char[PREVIEW_CHARS];
+                int len = reader.read(buf);
+                if (len > 0) return new String(buf, 0, len) + (len == PREVIEW_CHARS ? "..." : "");
+                return "";
+            } else if (val instanceof byte[]) {
+                byte[] bytes = (byte[]) val;
+                if (bytes.length > PREVIEW_BYTES) return TIP_TOO_LARGE;
+                return "[LOB_B64:data=" + Base64.getEncoder().encodeToString(bytes) + "]";
+            } else if (val instanceof InputStream) {
+                is = (InputStream) val;
+            }
+
+            if (is != null) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                int nRead;
+                byte[] data = new byte[1024];
+                int totalRead = 0;
+                while ((nRead = is.read(data, 0, data.length)) != -1 && totalRead < PREVIEW_BYTES) {
+                    buffer.write(data, 0, nRead);
+                    totalRead += nRead;
+                }
+                if (totalRead >= PREVIEW_BYTES) return TIP_TOO_LARGE;
+                return "[LOB_B64:data=" + Base64.getEncoder().encodeToString(buffer.toByteArray()) + "]";
+            }
+        } catch (Exception e) {
+            return "[LOB Error]";
+        }
+        // 处理达梦内部对象，防止序列化报错
+        return "[DM Object: " + val.getClass().getSimpleName() + "]";
+    }
+
+    private static boolean isLob(Object val) {
+        return val != null && (val instanceof Blob || val instanceof Clob || val instanceof byte[] || val instanceof InputStream
+                || val.getClass().getName().startsWith("dm.jdbc"));
+    }
+
+    // 数值与短字符串列使用专用 getter，其余（含 LOB、日期等）使用 getObject 保持驱动原有类型
+    private static Getter getterFor(int sqlType) {
+        switch (sqlType) {
+            case Types.BIGINT:
+            case Types.INTEGER:
+            case Types.SMALLINT:
+            case Types.TINYINT:
+                return Getter.LONG;
+            case Types.NUMERIC:
+            case Types.DECIMAL:
+                return Getter.DECIMAL;
+            case Types.CHAR:
+            case Types.VARCHAR:
+            case Types.NCHAR:
+            case Types.NVARCHAR:
+                return Getter.STRING;
+            default:
+                return Getter.OBJECT;
+        }
+    }
+
+    private static String refPrefix(ResultSetMetaData md, int col) {
+        try {
+            String table = md.getTableName(col);
+            if (table == null || table.isEmpty()) return null;
+            String schema = md.getSchemaName(col);
+            if (schema == null || schema.isEmpty()) schema = "SYSDBA";
+            return "[LOB_REF:schema=" + schema + ",table=" + table + ",col=" + md.getColumnName(col) + ",rowId=";
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.dmdb.sql;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * 游标分页（keyset）的续页令牌
+ * 记录翻页方向、排序键（主键列名，null 表示 ROWID）和边界值，边界值保留数值/时间/字符串类型，
+ * 以便按原类型绑定参数。序列化为 URL 安全的 Base64，对客户端不透明
+ */
+public final class SeekToken {
+
+    private static final String VERSION = "1";
+
+    private final boolean backward;
+    private final String keyColumn;
+    private final Object value;
+
+    public SeekToken(boolean backward, String keyColumn, Object value) {
+        this.backward = backward;
+        this.keyColumn = keyColumn;
+        this.value = value;
+    }
+
+    public boolean isBackward() { return backward; }
+    public String getKeyColumn() { return keyColumn; }
+    public Object getValue() { return value; }
+
+    public String encode() {
+        String type;
+        String text;
+        if (value instanceof Number) {
+            type = "N";
+            text = new BigDecimal(value.toString()).toPlainString();
+        } else if (value instanceof Date) {
+            type = "T";
+            // 按 Timestamp 文本编码，保留纳秒精度
+            Timestamp ts = value instanceof Timestamp ? (Timestamp) value : new Timestamp(((Date) value).getTime());
+            text = ts.toString();
+        } else {
+            type = "S";
+            text = String.valueOf(value);
+        }
+        String raw = VERSION + "\n" + (backward ? "P" : "N") + "\n" + (keyColumn == null ? "" : keyColumn) + "\n" + type + "\n" + text;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析令牌，格式不正确时抛出 IllegalArgumentException
+     */
+    public static SeekToken decode(String token) {
+        String raw;
+        try {
+            raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的分页令牌");
+        }
+        String[] parts = raw.split("\n", 5);
+        if (parts.length != 5 || !VERSION.equals(parts[0])) throw new IllegalArgumentException("无效的分页令牌");
+        Object value;
+        try {
+            switch (parts[3]) {
+                case "N":
+                    value = new BigDecimal(parts[4]);
+                    break;
+                case "T":
+                    value = Timestamp.valueOf(parts[4]);
+                    break;
+                default:
+                    value = parts[4];
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的分页令牌");
+        }
+        return new SeekToken("P".equals(parts[1]), parts[2].isEmpty() ? null : parts[2], value);
+    }
+}
@@ -0,0 +1,199 @@
+package com.example.dmdb.sql;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * 单遍 SQL 词法分析器
+ * 按字符顺序扫描，不回溯：识别单引号字符串 ('' 转义)、双引号标识符、行注释、块注释、分号等，
+ * 保证字符串或标识符中的 -- 和 /* 不会被误当作注释。输入来自 Reader，可用于流式读取大脚本
+ */
+public class SqlLexer {
+
+    public enum TokenType {
+        WORD, QUOTED_IDENTIFIER, STRING, NUMBER, SYMBOL, WHITESPACE, LINE_COMMENT, BLOCK_COMMENT, SEMICOLON
+    }
+
+    public static final class Token {
+        private final TokenType type;
+        private final String text;
+        // 该记号之前同一行只有空白（用于识别单独成行的 / 结束符）
+        private final boolean lineStart;
+
+        Token(TokenType type, String text, boolean lineStart) {
+            this.type = type;
+            this.text = text;
+            this.lineStart = lineStart;
+        }
+
+        public TokenType getType() { return type; }
+        public String getText() { return text; }
+        public boolean isLineStart() { return lineStart; }
+
+        @Override
+        public String toString() {
+            return type + "[" + text + "]";
+        }
+    }
+
+    private static final int EOF = -1;
+
+    private final Reader reader;
+    private final char[] buf = new char[8192];
+    private final StringBuilder sb = new StringBuilder();
+    private int pos;
+    private int len;
+    private long offset;
+    private boolean lineStart = true;
+
+    public SqlLexer(Reader reader) {
+        this.reader = reader;
+    }
+
+    public SqlLexer(String text) {
+        this(new StringReader(text));
+    }
+
+    /**
+     * 已消费的字符数
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * 读取下一个记号，输入结束时返回 null
+     */
+    public Token next() throws IOException {
+        int c = peek();
+        if (c == EOF) return null;
+
+        boolean atLineStart = lineStart;
+        sb.setLength(0);
+
+        if (Character.isWhitespace(c)) {
+            while ((c = peek()) != EOF && Character.isWhitespace(c)) {
+                sb.append((char) read());
+                if (c == '\n') lineStart = true;
+            }
+            return new Token(TokenType.WHITESPACE, sb.toString(), atLineStart);
+        }
+
+        lineStart = false;
+        sb.append((char) read());
+        TokenType type;
+        switch (c) {
+            case '\'':
+                readQuoted('\'');
+                type = TokenType.STRING;
+                break;
+            case '"':
+                readQuoted('"');
+                type = TokenType.QUOTED_IDENTIFIER;
+                break;
+            case ';':
+                type = TokenType.SEMICOLON;
+                break;
+            case '-':
+                if (peek() == '-') {
+                    // 行注释不包含结尾换行，换行作为空白记号返回
+                    while ((c = peek()) != EOF && c != '\n') sb.append((char) read());
+                    type = TokenType.LINE_COMMENT;
+                } else {
+                    type = TokenType.SYMBOL;
+                }
+                break;
+            case '/':
+                if (peek() == '*') {
+                    sb.append((char) read());
+                    readBlockComment();
+                    type = TokenType.BLOCK_COMMENT;
+                } else {
+                    type = TokenType.SYMBOL;
+                }
+                break;
+            default:
+                if (isWordStart(c)) {
+                    while ((c = peek()) != EOF && isWordPart(c)) sb.append((char) read());
+                    type = TokenType.WORD;
+                } else if (isDigit(c) || (c == '.' && isDigit(peek()))) {
+                    readNumber();
+                    type = TokenType.NUMBER;
+                } else {
+                    type = TokenType.SYMBOL;
+                }
+        }
+        return new Token(type, sb.toString(), atLineStart);
+    }
+
+    private void readQuoted(char quote) throws IOException {
+        int c;
+        while ((c = read()) != EOF) {
+            sb.append((char) c);
+            if (c == quote) {
+                // 连续两个引号为转义，继续读取
+                if (peek() == quote) {
+                    sb.append((char) read());
+                } else {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void readBlockComment() throws IOException {
+        int c;
+        boolean star = false;
+        while ((c = read()) != EOF) {
+            sb.append((char) c);
+            if (star && c == '/') return;
+            star = c == '*';
+        }
+    }
+
+    private void readNumber() throws IOException {
+        int c;
+        while ((c = peek()) != EOF && (isDigit(c) || c == '.')) sb.append((char) read());
+        if (c == 'e' || c == 'E') {
+            sb.append((char) read());
+            c = peek();
+            if (c == '+' || c == '-') sb.append((char) read());
+            while ((c = peek()) != EOF && isDigit(c)) sb.append((char) read());
+        }
+    }
+
+    private int peek() throws IOException {
+        if (pos >= len) {
+            if (len == EOF) return EOF;
+            len = reader.read(buf, 0, buf.length);
+            pos = 0;
+            if (len <= 0) {
+                len = EOF;
+                return EOF;
+            }
+        }
+        return buf[pos];
+    }
+
+    private int read() throws IOException {
+        int c = peek();
+        if (c != EOF) {
+            pos++;
+            offset++;
+        }
+        return c;
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isWordStart(int c) {
+        return Character.isLetter(c) || c == '_' || c == '$' || c == '#';
+    }
+
+    private static boolean isWordPart(int c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$' || c == '#';
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.dmdb.sql;
+
+import com.example.dmdb.sql.SqlLexer.Token;
+import com.example.dmdb.sql.SqlLexer.TokenType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * SQL 脚本切分器
+ * 基于 SqlLexer 单遍读取，逐条返回语句，不需要把整个脚本读入内存：
+ * 普通语句以分号结束；CREATE PROCEDURE/FUNCTION/TRIGGER/PACKAGE/TYPE、BEGIN、DECLARE 等
+ * PL/SQL 块内的分号不切分，以单独成行的 / 结束。注释被去除（优化器提示 /*+ ... *&#47; 保留）
+ */
+public class SqlScriptReader implements Closeable {
+
+    // 用于判断语句类型和是否为 PL/SQL 块的前导关键字个数
+    private static final int LEADING_WORDS = 5;
+
+    private final Reader reader;
+    private final SqlLexer lexer;
+    // 为 false 时不按分号切分，整段文本作为一条语句（单条执行模式）
+    private final boolean splitOnSemicolon;
+    private Token pending;
+    private int index;
+
+    public SqlScriptReader(Reader reader) {
+        this(reader, true);
+    }
+
+    private SqlScriptReader(Reader reader, boolean splitOnSemicolon) {
+        this.reader = reader;
+        this.lexer = new SqlLexer(reader);
+        this.splitOnSemicolon = splitOnSemicolon;
+    }
+
+    /**
+     * 将整段脚本切分为语句列表
+     */
+    public static List<SqlStatement> split(String script) {
+        List<SqlStatement> list = new ArrayList<>();
+        if (script == null) return list;
+        try (SqlScriptReader reader = new SqlScriptReader(new StringReader(script))) {
+            SqlStatement stmt;
+            while ((stmt = reader.next()) != null) list.add(stmt);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return list;
+    }
+
+    /**
+     * 解析单条语句：去除注释和结尾分号并识别类型，不做切分；内容为空时返回 null
+     */
+    public static SqlStatement parse(String sql) {
+        if (sql == null) return null;
+        try (SqlScriptReader reader = new SqlScriptReader(new StringReader(sql), false)) {
+            return reader.next();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 已读取的字符数
+     */
+    public long getOffset() {
+        return lexer.getOffset();
+    }
+
+    /**
+     * 读取下一条语句，脚本结束时返回 null
+     */
+    public SqlStatement next() throws IOException {
+        StringBuilder text = new StringBuilder();
+        List<String> words = new ArrayList<>(LEADING_WORDS);
+        boolean block = false;
+        Token t;
+        while ((t = nextToken()) != null) {
+            switch (t.getType()) {
+                case WHITESPACE:
+                    if (text.length() > 0) text.append(t.getText());
+                    continue;
+                case LINE_COMMENT:
+                    continue;
+                case BLOCK_COMMENT:
+                    if (t.getText().startsWith("/*+")) {
+                        text.append(t.getText());
+                    } else if (text.length() > 0) {
+                        text.append(' ');
+                    }
+                    continue;
+                case SEMICOLON:
+                    if (block || !splitOnSemicolon) {
+                        if (text.length() > 0) text.append(';');
+                        continue;
+                    }
+                    if (text.length() > 0) return build(text, words, false);
+                    continue;
+                case SYMBOL:
+                    if ("/".equals(t.getText()) && t.isLineStart() && isLineEnd(peekToken())) {
+                        if (text.length() > 0) return build(text, words, block);
+                        continue;
+                    }
+                    break;
+                case WORD:
+                    if (words.size() < LEADING_WORDS) {
+                        words.add(t.getText().toUpperCase(Locale.ROOT));
+                        block = block || isBlockStart(words);
+                    }
+                    break;
+                default:
+                    break;
+            }
+            text.append(t.getText());
+        }
+        return text.length() > 0 ? build(text, words, block) : null;
+    }
+
+    private SqlStatement build(StringBuilder text, List<String> words, boolean block) {
+        int end = text.length();
+        while (end > 0 && Character.isWhitespace(text.charAt(end - 1))) end--;
+        // 单条模式下普通语句去掉结尾分号，PL/SQL 块保留 END; 的分号
+        if (!block) {
+            while (end > 0 && (text.charAt(end - 1) == ';' || Character.isWhitespace(text.charAt(end - 1)))) end--;
+        }
+        if (end == 0) return null;
+        return new SqlStatement(++index, text.substring(0, end), classify(words), block);
+    }
+
+    private Token nextToken() throws IOException {
+        if (pending != null) {
+            Token t = pending;
+            pending = null;
+            return t;
+        }
+        return lexer.next();
+    }
+
+    private Token peekToken() throws IOException {
+        if (pending == null) pending = lexer.next();
+        return pending;
+    }
+
+    // / 之后到行尾只有空白或注释时，视为语句结束符
+    private static boolean isLineEnd(Token next) {
+        if (next == null || next.getType() == TokenType.LINE_COMMENT) return true;
+        return next.getType() == TokenType.WHITESPACE && next.getText().indexOf('\n') >= 0;
+    }
+
+    private static boolean isBlockStart(List<String> words) {
+        String first = words.get(0);
+        if ("BEGIN".equals(first) || "DECLARE".equals(first)) return true;
+        if (!"CREATE".equals(first)) return false;
+        for (int i = 1; i < words.size(); i++) {
+            switch (words.get(i)) {
+                case "PROCEDURE":
+                case "FUNCTION":
+                case "TRIGGER":
+                case "PACKAGE":
+                case "TYPE":
+                case "CLASS":
+                    return true;
+                case "OR":
+                case "REPLACE":
+                case "EDITIONABLE":
+                case "NONEDITIONABLE":
+                case "BODY":
+                    continue;
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+
+    private static SqlStatement.Kind classify(List<String> words) {
+        if (words.isEmpty()) return SqlStatement.Kind.OTHER;
+        switch (words.get(0)) {
+            case "SELECT":
+            case "WITH":
+                return SqlStatement.Kind.QUERY;
+            case "INSERT":
+            case "UPDATE":
+            case "DELETE":
+            case "MERGE":
+                return SqlStatement.Kind.DML;
+            case "CREATE":
+            case "ALTER":
+            case "DROP":
+            case "TRUNCATE":
+            case "COMMENT":
+            case "GRANT":
+            case "REVOKE":
+            case "RENAME":
+                return SqlStatement.Kind.DDL;
+            case "COMMIT":
+            case "ROLLBACK":
+            case "SAVEPOINT":
+                return SqlStatement.Kind.TRANSACTION;
+            case "SET":
+                return words.size() > 1 && "TRANSACTION".equals(words.get(1))
+                        ? SqlStatement.Kind.TRANSACTION : SqlStatement.Kind.OTHER;
+            case "BEGIN":
+            case "DECLARE":
+            case "CALL":
+            case "EXEC":
+            case "EXECUTE":
+                return SqlStatement.Kind.PLSQL;
+            default:
+                return SqlStatement.Kind.OTHER;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.dmdb.sql;
+
+/**
+ * 切分后的一条 SQL 语句（已去除注释和结尾分号）
+ */
+public class SqlStatement {
+
+    public enum Kind { QUERY, DML, DDL, TRANSACTION, PLSQL, OTHER }
+
+    private final int index;
+    private final String sql;
+    private final Kind kind;
+    // PL/SQL 块：内部分号属于语句本身，由单独成行的 / 结束
+    private final boolean block;
+
+    public SqlStatement(int index, String sql, Kind kind, boolean block) {
+        this.index = index;
+        this.sql = sql;
+        this.kind = kind;
+        this.block = block;
+    }
+
+    /**
+     * 在脚本中的序号，从 1 开始
+     */
+    public int getIndex() { return index; }
+    public String getSql() { return sql; }
+    public Kind getKind() { return kind; }
+    public boolean isBlock() { return block; }
+
+    public boolean isQuery() {
+        return kind == Kind.QUERY;
+    }
+
+    /**
+     * 是否可能改变数据库对象定义：DDL，以及可能通过 EXECUTE IMMEDIATE 执行 DDL 的匿名块；
+     * CALL/EXEC 过程调用不计入，避免每次调用都清空元数据缓存
+     */
+    public boolean isSchemaChange() {
+        return kind == Kind.DDL || (kind == Kind.PLSQL && block);
+    }
+
+    @Override
+    public String toString() {
+        return index + ":" + kind + ":" + sql;
+    }
+}
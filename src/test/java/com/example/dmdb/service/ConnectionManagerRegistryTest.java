@@ -0,0 +1,143 @@
+package com.example.dmdb.service;
+
+import com.example.dmdb.config.DynamicContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionManagerRegistryTest {
+
+    private static final int KEYS = 5000;
+
+    private final ConnectionManager manager = new ConnectionManager();
+
+    @AfterEach
+    void cleanUp() {
+        DynamicContext.clear();
+        for (int i = 0; i < KEYS; i++) {
+            manager.removeDataSource("k" + i);
+            manager.removeDataSource("churn" + i);
+        }
+    }
+
+    @Test
+    void routesByDirectLookup() {
+        for (int i = 0; i < KEYS; i++) manager.register("k" + i, new StubDataSource("k" + i));
+
+        DynamicContext.setKey("k4321");
+        assertEquals("k4321", ((StubDataSource) manager.determineTargetDataSource()).key);
+
+        DynamicContext.setKey("missing");
+        assertThrows(IllegalStateException.class, manager::determineTargetDataSource);
+    }
+
+    @Test
+    void swapAndRemoveRetirePreviousDataSource() {
+        StubDataSource first = new StubDataSource("k1");
+        StubDataSource second = new StubDataSource("k1");
+        assertNull(manager.register("k1", first));
+        assertSame(first, manager.register("k1", second));
+        assertTrue(first.closed);
+        assertFalse(second.closed);
+
+        manager.removeDataSource("k1");
+        assertTrue(second.closed);
+        assertFalse(manager.hasDataSource("k1"));
+    }
+
+    @Test
+    void lookupsNeverSeeMissingKeysUnderChurn() throws Exception {
+        for (int i = 0; i < KEYS; i++) manager.register("k" + i, new StubDataSource("k" + i));
+
+        int readers = 4;
+        int writers = 4;
+        int lookupsPerReader = 200_000;
+        int changesPerWriter = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        AtomicLong lookups = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int r = 0; r < readers; r++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < lookupsPerReader; i++) {
+                        String key = "k" + random.nextInt(KEYS);
+                        DynamicContext.setKey(key);
+                        DataSource ds = manager.determineTargetDataSource();
+                        if (!key.equals(((StubDataSource) ds).key)) throw new AssertionError("routed " + key + " elsewhere");
+                        lookups.incrementAndGet();
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                } finally {
+                    DynamicContext.clear();
+                }
+            }));
+        }
+        for (int w = 0; w < writers; w++) {
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < changesPerWriter; i++) {
+                        int n = random.nextInt(KEYS);
+                        switch (random.nextInt(3)) {
+                            case 0: manager.register("churn" + n, new StubDataSource("churn" + n)); break;
+                            case 1: manager.removeDataSource("churn" + n); break;
+                            default: manager.register("k" + n, new StubDataSource("k" + n));
+                        }
+                    }
+                } catch (Throwable e) {
+                    failures.add(e);
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        start.countDown();
+        for (Thread t : threads) t.join(60_000);
+
+        assertTrue(failures.isEmpty(), () -> "failures: " + failures);
+        assertEquals((long) readers * lookupsPerReader, lookups.get());
+        for (int i = 0; i < KEYS; i++) assertTrue(manager.hasDataSource("k" + i));
+    }
+
+    private static final class StubDataSource extends AbstractDataSource implements Closeable {
+        private final String key;
+        private volatile boolean closed;
+
+        StubDataSource(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public Connection getConnection() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
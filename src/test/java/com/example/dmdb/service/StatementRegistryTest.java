@@ -0,0 +1,33 @@
+package com.example.dmdb.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatementRegistryTest {
+
+    private final StatementRegistry registry = new StatementRegistry();
+
+    @Test
+    void cancelCountsOnlyForStatementInFlight() throws Exception {
+        StatementRegistry.Running running = registry.register("r1", "c1", stubStatement(), 0);
+        assertTrue(registry.cancel("r1", "c1"));
+        assertEquals(StatementRegistry.CODE_CANCELLED, registry.interruptCode(running, new SQLException("cancelled")));
+
+        // 取消之后才开始的语句出错，按普通错误处理
+        Thread.sleep(5);
+        running.restart();
+        assertTrue(running.isCancelled());
+        assertEquals(0, registry.interruptCode(running, new SQLException("ORA-00942")));
+    }
+
+    private static Statement stubStatement() {
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[]{Statement.class},
+                (proxy, method, args) -> null);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.dmdb.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvReaderTest {
+
+    @Test
+    void readsQuotedFieldsAcrossLines() throws Exception {
+        CsvReader csv = new CsvReader(new StringReader("\uFEFFID,NAME\r\n1,\"a,\"\"b\"\"\r\nc\"\n\n2,\n"), ',');
+        assertEquals(Arrays.asList("ID", "NAME"), csv.next());
+        assertEquals(Arrays.asList("1", "a,\"b\"\r\nc"), csv.next());
+        assertEquals(2, csv.getRecordLine());
+        assertEquals(Arrays.asList("2", ""), csv.next());
+        assertEquals(5, csv.getRecordLine());
+        assertNull(csv.next());
+    }
+
+    @Test
+    void rejectsUnterminatedQuote() throws Exception {
+        CsvReader csv = new CsvReader(new StringReader("A\n\"x"), ',');
+        assertEquals(Collections.singletonList("A"), csv.next());
+        assertThrows(IllegalArgumentException.class, csv::next);
+    }
+
+    @Test
+    void formatRoundTrips() throws Exception {
+        String line = CsvReader.format(Arrays.asList("x;y", "q\"", "plain"), ';');
+        assertEquals("\"x;y\";\"q\"\"\";plain", line);
+        assertEquals(Arrays.asList("x;y", "q\"", "plain"), new CsvReader(new StringReader(line), ';').next());
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.dmdb.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvTableMappingTest {
+
+    private static final Map<String, String> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        COLUMNS.put("ID", "NUMBER");
+        COLUMNS.put("NAME", "VARCHAR");
+        COLUMNS.put("CREATED", "TIMESTAMP(6)");
+    }
+
+    @Test
+    void mapsHeadersCaseInsensitivelyAndIgnoresUnknown() {
+        CsvTableMapping m = CsvTableMapping.of("S", "T", Arrays.asList("created", "id", "extra", "label"), COLUMNS,
+                Collections.singletonMap("label", "NAME"));
+        assertEquals("INSERT INTO \"S\".\"T\" (\"CREATED\", \"ID\", \"NAME\") VALUES (?, ?, ?)", m.getInsertSql());
+        assertEquals(Collections.singletonList("extra"), m.getIgnoredHeaders());
+        assertArrayEquals(new Object[]{Timestamp.valueOf("2024-01-02 00:00:00"), new BigDecimal("7"), ""},
+                m.toValues(Arrays.asList("2024-01-02", " 7 ", "x", "")));
+    }
+
+    @Test
+    void rejectsBadValuesAndMappings() {
+        CsvTableMapping m = CsvTableMapping.of("S", "T", Arrays.asList("ID", "NAME"), COLUMNS, null);
+        assertArrayEquals(new Object[]{null, "a"}, m.toValues(Arrays.asList("", "a")));
+        assertThrows(IllegalArgumentException.class, () -> m.toValues(Arrays.asList("abc", "a")));
+        assertThrows(IllegalArgumentException.class, () -> m.toValues(Collections.singletonList("1")));
+        assertThrows(IllegalArgumentException.class,
+                () -> CsvTableMapping.of("S", "T", Arrays.asList("ID", "id"), COLUMNS, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> CsvTableMapping.of("S", "T", Collections.singletonList("A"), COLUMNS, Collections.singletonMap("A", "MISSING")));
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.dmdb.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FilterSpecTest {
+
+    private static final Map<String, String> COLUMNS = new LinkedHashMap<>();
+
+    static {
+        COLUMNS.put("ID", "NUMBER");
+        COLUMNS.put("NAME", "VARCHAR");
+        COLUMNS.put("CREATED", "TIMESTAMP");
+    }
+
+    private static Map<String, Object> cond(String field, String operator, Object value) {
+        Map<String, Object> c = new HashMap<>();
+        c.put("field", field);
+        c.put("operator", operator);
+        c.put("value", value);
+        return c;
+    }
+
+    @Test
+    void coercesValuesByColumnType() {
+        FilterSpec spec = FilterSpec.of(Arrays.asList(
+                cond("ID", ">", "10"),
+                cond("created", "BETWEEN", Arrays.asList("2024-01-01", "2024-02-01 12:00:00")),
+                cond("ID", "IN", "1, 2,3")), "or", null, COLUMNS);
+        List<FilterSpec.Condition> conds = spec.getConditions();
+        assertEquals("OR", spec.getLogic());
+        assertEquals(new BigDecimal("10"), conds.get(0).getValue());
+        assertEquals("CREATED", conds.get(1).getField());
+        assertEquals(Timestamp.valueOf("2024-01-01 00:00:00"), conds.get(1).getValues().get(0));
+        assertEquals(Arrays.asList(new BigDecimal("1"), new BigDecimal("2"), new BigDecimal("3")), conds.get(2).getValues());
+    }
+
+    @Test
+    void likeModesEscapeWildcards() {
+        FilterSpec spec = FilterSpec.of(Arrays.asList(
+                cond("NAME", "LIKE", "50%_off"),
+                cond("NAME", "PREFIX", "ab"),
+                cond("NAME", "SUFFIX", "yz")), null, null, COLUMNS);
+        assertEquals("%50\\%\\_off%", spec.getConditions().get(0).getValue());
+        assertEquals("ab%", spec.getConditions().get(1).getValue());
+        assertEquals("%yz", spec.getConditions().get(2).getValue());
+        assertEquals("AND", spec.getLogic());
+    }
+
+    @Test
+    void rejectsUnknownFieldsAndOperators() {
+        assertThrows(IllegalArgumentException.class,
+                () -> FilterSpec.of(Collections.singletonList(cond("X\" OR 1=1 --", "=", "1")), null, null, COLUMNS));
+        assertThrows(IllegalArgumentException.class,
+                () -> FilterSpec.of(Collections.singletonList(cond("ID", "; DROP", "1")), null, null, COLUMNS));
+        Map<String, Object> order = new HashMap<>();
+        order.put("field", "NAME");
+        order.put("direction", "desc");
+        assertEquals(Collections.singletonList("\"NAME\" DESC"),
+                FilterSpec.of(null, null, Collections.singletonList(order), COLUMNS).getOrderBy());
+    }
+}
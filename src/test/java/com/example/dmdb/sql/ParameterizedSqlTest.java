@@ -0,0 +1,32 @@
+package com.example.dmdb.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ParameterizedSqlTest {
+
+    private static ParameterizedSql of(String sql) {
+        return ParameterizedSql.of(SqlScriptReader.parse(sql));
+    }
+
+    @Test
+    void sameShapeInsertsShareTemplate() {
+        ParameterizedSql a = of("INSERT INTO \"S\".\"T\" (\"A\", \"B\") VALUES (1, 'x''y');");
+        ParameterizedSql b = of("INSERT INTO \"S\".\"T\"  (\"A\", \"B\") \nVALUES (2.5, 'z')");
+        assertEquals("INSERT INTO \"S\".\"T\" (\"A\", \"B\") VALUES (?, ?)", a.getTemplate());
+        assertEquals(a.getTemplate(), b.getTemplate());
+        assertEquals(Arrays.asList(new BigDecimal("1"), "x'y"), a.getParams());
+    }
+
+    @Test
+    void keepsLiteralsThatCannotBeBound() {
+        ParameterizedSql p = of("UPDATE T SET D = DATE '2024-01-01', C = SUBSTR('abc', 1, 2), N = 3 WHERE ID IN (7, 8)");
+        assertEquals("UPDATE T SET D = DATE '2024-01-01', C = SUBSTR('abc', 1, 2), N = ? WHERE ID IN (?, ?)", p.getTemplate());
+        assertNull(of("CREATE TABLE T (A VARCHAR(10))"));
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.dmdb.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ResultSetExporterTest {
+
+    private static final String[] LABELS = {"ID", "NAME"};
+    private static final int[] TYPES = {Types.NUMERIC, Types.VARCHAR};
+    private static final Object[][] ROWS = {
+            {new BigDecimal("1"), "a,b"},
+            {new BigDecimal("2"), null},
+            {new BigDecimal("3"), "it's \"x\""}};
+
+    // 只实现导出用到的方法的内存结果集
+    private static ResultSet resultSet() {
+        ResultSetMetaData md = (ResultSetMetaData) Proxy.newProxyInstance(ResultSetMetaData.class.getClassLoader(),
+                new Class[]{ResultSetMetaData.class}, (p, m, args) -> {
+                    switch (m.getName()) {
+                        case "getColumnCount": return LABELS.length;
+                        case "getColumnLabel": return LABELS[(Integer) args[0] - 1];
+                        case "getColumnType": return TYPES[(Integer) args[0] - 1];
+                        default: throw new UnsupportedOperationException(m.getName());
+                    }
+                });
+        int[] cursor = {-1};
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class[]{ResultSet.class}, (p, m, args) -> {
+                    switch (m.getName()) {
+                        case "getMetaData": return md;
+                        case "next": return ++cursor[0] < ROWS.length;
+                        case "getBigDecimal":
+                        case "getString":
+                        case "getObject": return ROWS[cursor[0]][(Integer) args[0] - 1];
+                        default: throw new UnsupportedOperationException(m.getName());
+                    }
+                });
+    }
+
+    private static String export(ResultSetExporter.Format format) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long rows = new ResultSetExporter(format, "\"S\".\"T\"").export(resultSet(), out);
+        assertEquals(ROWS.length, rows);
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void csvQuotesOnlyWhenNeeded() throws Exception {
+        assertEquals("\uFEFFID,NAME\r\n1,\"a,b\"\r\n2,\r\n3,\"it's \"\"x\"\"\"\r\n", export(ResultSetExporter.Format.CSV));
+    }
+
+    @Test
+    void jsonLinesKeepNumbersAndNulls() throws Exception {
+        assertEquals("{\"ID\":1,\"NAME\":\"a,b\"}\n{\"ID\":2,\"NAME\":null}\n{\"ID\":3,\"NAME\":\"it's \\\"x\\\"\"}\n",
+                export(ResultSetExporter.Format.JSONL));
+    }
+
+    @Test
+    void insertScriptEscapesQuotes() throws Exception {
+        assertEquals("INSERT INTO \"S\".\"T\" (\"ID\", \"NAME\") VALUES (1, 'a,b');\n"
+                        + "INSERT INTO \"S\".\"T\" (\"ID\", \"NAME\") VALUES (2, NULL);\n"
+                        + "INSERT INTO \"S\".\"T\" (\"ID\", \"NAME\") VALUES (3, 'it''s \"x\"');\n"
+                        + "COMMIT;\n",
+                export(ResultSetExporter.Format.SQL));
+    }
+
+    @Test
+    void parsesFormatNames() {
+        assertEquals(ResultSetExporter.Format.JSONL, ResultSetExporter.Format.of("ndjson"));
+        assertEquals(ResultSetExporter.Format.SQL, ResultSetExporter.Format.of("INSERT"));
+        assertEquals(ResultSetExporter.Format.CSV, ResultSetExporter.Format.of(null));
+        assertThrows(IllegalArgumentException.class, () -> ResultSetExporter.Format.of("xlsx"));
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.dmdb.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RowDecoderTest {
+
+    @Test
+    void columnarKeepsColumnsMissingFromFirstRow() {
+        // MyBatis 不返回值为 NULL 的列：第一行没有 NAME，第二行没有 AGE
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("DB_INTERNAL_ID", "r1");
+        first.put("ID", 1);
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("DB_INTERNAL_ID", "r2");
+        second.put("ID", 2);
+        second.put("NAME", "b");
+
+        Map<String, Object> table = RowDecoder.toColumnar(Arrays.asList(first, second),
+                Arrays.asList("DB_INTERNAL_ID", "ID", "NAME", "AGE"));
+        assertEquals(Arrays.asList("DB_INTERNAL_ID", "ID", "NAME", "AGE"), table.get("columns"));
+        List<?> rows = (List<?>) table.get("rows");
+        assertArrayEquals(new Object[]{"r1", 1, null, null}, (Object[]) rows.get(0));
+        assertArrayEquals(new Object[]{"r2", 2, "b", null}, (Object[]) rows.get(1));
+
+        // 没有列定义时取所有行的列名并集
+        Map<String, Object> union = RowDecoder.toColumnar(Arrays.asList(first, second), null);
+        assertEquals(Arrays.asList("DB_INTERNAL_ID", "ID", "NAME"), union.get("columns"));
+        assertArrayEquals(new Object[]{"r1", 1, null}, (Object[]) ((List<?>) union.get("rows")).get(0));
+    }
+}
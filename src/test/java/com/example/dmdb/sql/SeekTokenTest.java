@@ -0,0 +1,40 @@
+package com.example.dmdb.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeekTokenTest {
+
+    @Test
+    void roundTripKeepsValueType() {
+        SeekToken num = SeekToken.decode(new SeekToken(false, "ID", 42L).encode());
+        assertFalse(num.isBackward());
+        assertEquals("ID", num.getKeyColumn());
+        assertEquals(new BigDecimal("42"), num.getValue());
+
+        Timestamp ts = new Timestamp(1700000000000L);
+        assertEquals(ts, SeekToken.decode(new SeekToken(false, "CREATED", ts).encode()).getValue());
+
+        Timestamp nanos = Timestamp.valueOf("2024-02-29 23:59:59.123456789");
+        assertEquals(nanos, SeekToken.decode(new SeekToken(false, "CREATED", nanos).encode()).getValue());
+
+        SeekToken rowId = SeekToken.decode(new SeekToken(true, null, "AAAAAAAAAAAAAAAAAB\nx").encode());
+        assertTrue(rowId.isBackward());
+        assertNull(rowId.getKeyColumn());
+        assertEquals("AAAAAAAAAAAAAAAAAB\nx", rowId.getValue());
+    }
+
+    @Test
+    void rejectsGarbage() {
+        assertThrows(IllegalArgumentException.class, () -> SeekToken.decode("not a token!"));
+        assertThrows(IllegalArgumentException.class, () -> SeekToken.decode("Zm9v"));
+    }
+}
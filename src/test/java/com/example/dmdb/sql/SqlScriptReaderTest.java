@@ -0,0 +1,62 @@
+package com.example.dmdb.sql;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SqlScriptReaderTest {
+
+    @Test
+    void splitsOnSemicolonAndStripsComments() {
+        List<SqlStatement> list = SqlScriptReader.split(
+                "-- 注释\nSELECT 1 FROM DUAL; /* 块注释 */\nINSERT INTO T VALUES (1);\n\n;COMMIT");
+        assertEquals(3, list.size());
+        assertEquals("SELECT 1 FROM DUAL", list.get(0).getSql());
+        assertEquals(SqlStatement.Kind.QUERY, list.get(0).getKind());
+        assertEquals("INSERT INTO T VALUES (1)", list.get(1).getSql());
+        assertEquals(SqlStatement.Kind.DML, list.get(1).getKind());
+        assertEquals(SqlStatement.Kind.TRANSACTION, list.get(2).getKind());
+        assertEquals(3, list.get(2).getIndex());
+    }
+
+    @Test
+    void keepsCommentMarkersInsideLiterals() {
+        List<SqlStatement> list = SqlScriptReader.split(
+                "SELECT 'a;--b', 'it''s /* x */' AS \"c;--\" FROM T;SELECT 2");
+        assertEquals(2, list.size());
+        assertEquals("SELECT 'a;--b', 'it''s /* x */' AS \"c;--\" FROM T", list.get(0).getSql());
+    }
+
+    @Test
+    void plsqlBlockEndsWithSlash() {
+        String script = "CREATE OR REPLACE PROCEDURE P1 AS\nBEGIN\n  UPDATE T SET A = 1;\n  COMMIT;\nEND;\n/\n"
+                + "SELECT 10 / 2 FROM DUAL;";
+        List<SqlStatement> list = SqlScriptReader.split(script);
+        assertEquals(2, list.size());
+        assertTrue(list.get(0).isBlock());
+        assertEquals(SqlStatement.Kind.DDL, list.get(0).getKind());
+        assertTrue(list.get(0).getSql().endsWith("END;"));
+        assertEquals("SELECT 10 / 2 FROM DUAL", list.get(1).getSql());
+    }
+
+    @Test
+    void procedureCallIsNotSchemaChange() {
+        assertTrue(SqlScriptReader.parse("CREATE TABLE T (A INT)").isSchemaChange());
+        assertTrue(SqlScriptReader.parse("BEGIN EXECUTE IMMEDIATE 'DROP TABLE T'; END;").isSchemaChange());
+        assertFalse(SqlScriptReader.parse("CALL P1(1)").isSchemaChange());
+        assertFalse(SqlScriptReader.parse("EXEC P1").isSchemaChange());
+        assertFalse(SqlScriptReader.parse("SELECT 1 FROM DUAL").isSchemaChange());
+    }
+
+    @Test
+    void parseKeepsHintsAndDropsTrailingSemicolon() {
+        SqlStatement stmt = SqlScriptReader.parse("SELECT /*+ INDEX(T I1) */ * FROM T -- tail\n;");
+        assertEquals("SELECT /*+ INDEX(T I1) */ * FROM T", stmt.getSql());
+        assertNull(SqlScriptReader.parse("  -- only comment\n"));
+    }
+}